@@ -0,0 +1,174 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * GridBenchmark measures the cost of the Grid operations that touch the 
+ * JavaFX nodes: resizing the grid, recolouring the cells for a temperature 
+ * change, flipping and moving cells. The JavaFX toolkit is started so that 
+ * the Cells can be created, which needs a display (or a headless platform 
+ * such as Monocle).
+ */
+package phillockett65.PTable.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.application.Platform;
+import javafx.scene.input.KeyCode;
+import phillockett65.PTable.ChangeChecker;
+import phillockett65.PTable.MainController;
+import phillockett65.PTable.table.Grid;
+import phillockett65.PTable.table.RenderContext;
+import phillockett65.PTable.table.Selection;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridBenchmark {
+
+	private static final int LOW_TEMP = 0;
+	private static final int HIGH_TEMP = 6000;
+	private static final int TEMP_STEP = 10;
+
+	/**
+	 * Grid size as "ROWSxCOLS". The grid is created with the standard size 
+	 * and then resized, so larger grids are mostly blank cells.
+	 */
+	@Param({ "10x18", "32x32", "64x64" })
+	public String size;
+
+	private int rows;
+	private int cols;
+	private Grid grid;
+	private Selection selection;
+	private boolean toggle;
+	private int temp;
+
+	@Setup
+	public void setup() {
+		try {
+			Platform.startup(() -> {});
+		} catch (IllegalStateException e) {
+			// Toolkit already started.
+		}
+
+		final String[] dims = size.split("x");
+		rows = Integer.parseInt(dims[0]);
+		cols = Integer.parseInt(dims[1]);
+
+		grid = new Grid(new MainController());
+		grid.updateLayout(
+				new ChangeChecker(grid.getRows(), rows), 
+				new ChangeChecker(grid.getCols(), cols), 
+				noChange(), noChange(), noChange());
+
+		selection = new Selection(rows, cols);
+		selection.setPosition(Layouts.STANDARD_ROWS / 2, Layouts.STANDARD_COLS / 2);
+		selection.saveCurrent();
+		toggle = false;
+		temp = LOW_TEMP;
+	}
+
+	private void setTemp(int temp) {
+		final RenderContext context = grid.getContext();
+		grid.setContext(context.withTemp(temp));
+	}
+
+	private static ChangeChecker noChange(int value) {
+		return new ChangeChecker(value, value);
+	}
+
+	private static ChangeChecker noChange() {
+		return noChange(0);
+	}
+
+	/**
+	 * Add then remove a column, repositioning every cell each time.
+	 */
+	@Benchmark
+	public boolean resize() {
+		toggle = !toggle;
+		final int from = toggle ? cols : cols + 1;
+		final int to = toggle ? cols + 1 : cols;
+
+		return grid.updateLayout(
+				noChange(rows), new ChangeChecker(from, to), 
+				noChange(), noChange(), noChange());
+	}
+
+	/**
+	 * Swing the temperature between extremes and recolour every element.
+	 */
+	@Benchmark
+	public void updateStates() {
+		toggle = !toggle;
+		setTemp(toggle ? HIGH_TEMP : LOW_TEMP);
+		grid.updateStates();
+	}
+
+	/**
+	 * Step the temperature as a slider drag would, recolouring only the 
+	 * elements that change state.
+	 */
+	@Benchmark
+	public void stepStates() {
+		final int from = temp;
+		temp = (temp + TEMP_STEP) % HIGH_TEMP;
+		setTemp(temp);
+		grid.updateStates(from, temp);
+	}
+
+	/**
+	 * Reverse the order of the columns.
+	 */
+	@Benchmark
+	public void flipColumns() {
+		grid.flipColumns();
+	}
+
+	/**
+	 * Move a single cell right then back left.
+	 */
+	@Benchmark
+	public boolean moveSelection() {
+		toggle = !toggle;
+		final KeyCode code = toggle ? KeyCode.RIGHT : KeyCode.LEFT;
+		final boolean moved = grid.moveSelection(selection, code);
+		selection.move(code);
+
+		return moved;
+	}
+
+}
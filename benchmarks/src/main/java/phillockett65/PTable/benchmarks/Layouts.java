@@ -0,0 +1,57 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * Layouts is a helper class that builds the layouts used by the benchmarks.
+ */
+package phillockett65.PTable.benchmarks;
+
+import phillockett65.PTable.table.Layout;
+
+public class Layouts {
+
+	public static final int STANDARD_ROWS = 10;
+	public static final int STANDARD_COLS = 18;
+
+	/**
+	 * Create a layout of the given size. The standard size holds the 
+	 * standard layout. Larger sizes are synthetic, built by tiling the 
+	 * standard layout across the grid, so every position has realistic 
+	 * neighbours and elements are repeated.
+	 * 
+	 * @param rows	in the layout.
+	 * @param cols	in the layout.
+	 * @return the new layout.
+	 */
+	public static Layout create(int rows, int cols) {
+		final Layout standard = Layout.standard(STANDARD_ROWS, STANDARD_COLS);
+		if ((rows <= STANDARD_ROWS) && (cols <= STANDARD_COLS))
+			return Layout.standard(rows, cols);
+
+		Layout layout = new Layout(rows, cols);
+		for (int r = 0; r < rows; ++r)
+			for (int c = 0; c < cols; ++c)
+				layout.setKey(r, c, standard.getKey(r % STANDARD_ROWS, c % STANDARD_COLS));
+
+		return layout;
+	}
+
+}
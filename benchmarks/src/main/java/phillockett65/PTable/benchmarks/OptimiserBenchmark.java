@@ -0,0 +1,140 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * OptimiserBenchmark measures the throughput of the optimisers on the 
+ * standard layout: the cost of a single annealing step (a proposal, its 
+ * incremental score and the accept/reject decision) and of a single 
+ * generation of the genetic search (selection, crossover, mutation and 
+ * scoring of the population). Each invocation runs a search with a fixed 
+ * budget and seed, and the time is divided by the budget. The genetic 
+ * search also creates and scores its initial population, which is 
+ * measured separately by initialPopulation(). No JavaFX nodes are involved 
+ * so these benchmarks run headless.
+ */
+package phillockett65.PTable.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import phillockett65.PTable.optimiser.Annealer;
+import phillockett65.PTable.optimiser.GeneticSearch;
+import phillockett65.PTable.table.Layout;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptimiserBenchmark {
+
+	private static final int STEPS = 100_000;
+	private static final int GENERATIONS = 20;
+
+	private Annealer annealer;
+
+	/**
+	 * The genetic searches, which are parameterized by the number of 
+	 * threads used to score the population.
+	 */
+	@State(Scope.Thread)
+	public static class Genetic {
+
+		@Param({ "1", "4" })
+		public int parallelism;
+
+		private GeneticSearch generations;
+		private GeneticSearch initial;
+
+		@Setup
+		public void setup() {
+			generations = create(GENERATIONS);
+			initial = create(0);
+		}
+
+		/**
+		 * Create a genetic search of the standard layout with a fixed seed.
+		 * 
+		 * @param count	of the generations to evolve.
+		 * @return the genetic search.
+		 */
+		private GeneticSearch create(int count) {
+			GeneticSearch search = new GeneticSearch(
+					Layouts.create(Layouts.STANDARD_ROWS, Layouts.STANDARD_COLS));
+			search.setSeed(42);
+			search.setParallelism(parallelism);
+			search.setMaxGenerations(count);
+			search.setMaxTime(Long.MAX_VALUE);
+
+			return search;
+		}
+	}
+
+	@Setup
+	public void setup() {
+		annealer = new Annealer(Layouts.create(Layouts.STANDARD_ROWS, Layouts.STANDARD_COLS));
+		annealer.setSeed(42);
+		annealer.setMaxIterations(STEPS);
+		annealer.setMaxTime(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Run the annealer for STEPS valid proposals, giving the time per step.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Layout annealerStep() {
+		return annealer.run();
+	}
+
+	/**
+	 * Evolve GENERATIONS generations, giving the time per generation, 
+	 * including a share of the initial population.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(GENERATIONS)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Layout geneticGeneration(Genetic genetic) {
+		return genetic.generations.run();
+	}
+
+	/**
+	 * Create and score the initial population only.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Layout initialPopulation(Genetic genetic) {
+		return genetic.initial.run();
+	}
+
+}
@@ -0,0 +1,167 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * ScoringBenchmark measures the cost of scoring a layout, both as a full 
+ * rescan and as an incremental re-score after a single cell move, and the 
+ * cost of looking up a layout that has already been scored. No JavaFX 
+ * nodes are involved so these benchmarks run headless.
+ */
+package phillockett65.PTable.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import phillockett65.PTable.table.Layout;
+import phillockett65.PTable.table.Quantifier;
+import phillockett65.PTable.table.Quantities;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+
+	private static final int MOVES = 1024;
+
+	/**
+	 * Grid size as "ROWSxCOLS". The standard 10x18 table holds the real 
+	 * layout, larger sizes are filled with a synthetic repeating layout.
+	 */
+	@Param({ "10x18", "32x32", "64x64" })
+	public String size;
+
+	private Layout layout;
+	private Quantifier quantifier;
+
+	private int[] moveRow;
+	private int[] moveCol;
+	private int[] moveDir;
+	private int next;
+
+	@Setup
+	public void setup() {
+		final String[] dims = size.split("x");
+		final int rows = Integer.parseInt(dims[0]);
+		final int cols = Integer.parseInt(dims[1]);
+
+		layout = Layouts.create(rows, cols);
+		quantifier = new Quantifier(layout);
+
+		// Pre-generate single cell moves that stay within the grid.
+		SplittableRandom random = new SplittableRandom(42);
+		moveRow = new int[MOVES];
+		moveCol = new int[MOVES];
+		moveDir = new int[MOVES];
+		for (int i = 0; i < MOVES; ) {
+			final int r = random.nextInt(rows);
+			final int c = random.nextInt(cols);
+			final int dir = random.nextInt(Layout.MAX_DIRECTION);
+			if (!layout.isMove(r, c, r, c, dir))
+				continue;
+
+			moveRow[i] = r;
+			moveCol[i] = c;
+			moveDir[i] = dir;
+			++i;
+		}
+		next = 0;
+	}
+
+	/**
+	 * Score the whole grid from scratch. The cache is cleared so that the 
+	 * full rescan is measured.
+	 */
+	@Benchmark
+	public Quantities fullScore() {
+		quantifier.getCache().clear();
+		quantifier.invalidate();
+
+		return quantifier.getQuantities();
+	}
+
+	/**
+	 * Look up the score of a grid that has been scored before.
+	 */
+	@Benchmark
+	public Quantities cachedScore() {
+		quantifier.invalidate();
+
+		return quantifier.getQuantities();
+	}
+
+	/**
+	 * Move a single cell and incrementally re-score the grid.
+	 */
+	@Benchmark
+	public Quantities moveRescore() {
+		final int i = next;
+		next = (next + 1) % MOVES;
+
+		final int r = moveRow[i];
+		final int c = moveCol[i];
+		final int dir = moveDir[i];
+
+		quantifier.beginChange();
+		quantifier.markCell(r, c);
+		switch (dir) {
+		case Layout.UP:		quantifier.markCell(r-1, c); break;
+		case Layout.DOWN:	quantifier.markCell(r+1, c); break;
+		case Layout.LEFT:	quantifier.markCell(r, c-1); break;
+		case Layout.RIGHT:	quantifier.markCell(r, c+1); break;
+		}
+		layout.moveBlock(r, c, r, c, dir);
+		quantifier.endChange();
+
+		return quantifier.getQuantities();
+	}
+
+	/**
+	 * Move a single cell and score the whole grid from scratch, for 
+	 * comparison with moveRescore().
+	 */
+	@Benchmark
+	public Quantities moveFullScore() {
+		final int i = next;
+		next = (next + 1) % MOVES;
+
+		layout.moveBlock(moveRow[i], moveCol[i], moveRow[i], moveCol[i], moveDir[i]);
+		quantifier.getCache().clear();
+		quantifier.invalidate();
+
+		return quantifier.getQuantities();
+	}
+
+}
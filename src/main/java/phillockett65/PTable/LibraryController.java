@@ -0,0 +1,387 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LibraryController is a class that is responsible for handling the control 
+ * of the Library tab, which lists the layouts in a layout library with their 
+ * Quantities.
+ * 
+ * The Quantities are taken from a ScoreIndex saved alongside the library, 
+ * which is only rebuilt, on a background thread, if the library has changed, 
+ * so sorting and filtering never score a layout. The table holds the 
+ * numbers of the layouts in the current order, not the layouts themselves, 
+ * and the TableView only creates cells for the visible rows, so a library 
+ * of any size opens as quickly as its index can be read. Double-clicking a 
+ * row loads the layout.
+ */
+package phillockett65.PTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.stage.FileChooser;
+import phillockett65.PTable.io.LayoutFile;
+import phillockett65.PTable.io.LayoutFileReader;
+import phillockett65.PTable.io.ScoreIndex;
+
+public class LibraryController {
+
+	private MainController main;
+	@FXML private Button btnLibOpen;
+	@FXML private Label lblLibFile;
+	@FXML private ProgressIndicator prgLibOpen;
+	@FXML private ChoiceBox<String> chcLibFilter;
+	@FXML private TextField txtLibMin;
+	@FXML private TextField txtLibMax;
+	@FXML private Button btnLibFilter;
+	@FXML private Button btnLibClear;
+	@FXML private TableView<Integer> tblLibrary;
+	@FXML private TableColumn<Integer, String> colLibEntry;
+	@FXML private TableColumn<Integer, String> colLibRows;
+	@FXML private TableColumn<Integer, String> colLibCols;
+	@FXML private TableColumn<Integer, String> colLibElementCount;
+	@FXML private TableColumn<Integer, String> colLibNeighbourCount;
+	@FXML private TableColumn<Integer, String> colLibElectronShell;
+	@FXML private TableColumn<Integer, String> colLibElectronSubshell;
+	@FXML private TableColumn<Integer, String> colLibElectronConfig;
+
+	// The descriptions of the columns that can be filtered on, indexed by 
+	// the ScoreIndex column.
+	private final static String[] COLUMN_NAMES = {
+		"Entry", "Rows", "Columns", "Element count", "Neighbour count", 
+		"Electron shell similarity", "Electron subshell similarity", 
+		"Electron configuration similarity" };
+
+	// A single daemon thread, so the index can be built without freezing the 
+	// UI and doesn't prevent the application from exiting.
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "Library indexing");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private Task<ScoreIndex> task = null;
+
+	private Path library = null;
+	private ScoreIndex index = null;
+
+	// The numbers of the layouts that pass the filter, in library order, and 
+	// the rows of the table, which are the same layouts in display order.
+	private int[] filtered = new int[0];
+	private final Entries entries = new Entries();
+
+	/**
+	 * The rows of the table, presented as a List of layout numbers backed by 
+	 * an array, so that sorting a large library doesn't box every number.
+	 */
+	private static class Entries extends AbstractList<Integer> {
+		private int[] order = new int[0];
+
+		public void setOrder(int[] order) {
+			this.order = order;
+		}
+
+		@Override
+		public Integer get(int index) {
+			return order[index];
+		}
+
+		@Override
+		public int size() {
+			return order.length;
+		}
+	}
+
+	/**
+	 * Constructor.
+	 */
+	public LibraryController() {
+//		System.out.println("LibraryController constructed.");
+	}
+
+	/**
+	 * Called by the FXML mechanism to initialize the controller. Sets up the 
+	 * columns, the sort policy and the row factory of the table, and the 
+	 * ChoiceBox of columns to filter on.
+	 */
+	@FXML public void initialize() {
+//		System.out.println("LibraryController initialized.");
+		initColumn(colLibEntry, ScoreIndex.ENTRY);
+		initColumn(colLibRows, ScoreIndex.ROWS);
+		initColumn(colLibCols, ScoreIndex.COLS);
+		initColumn(colLibElementCount, ScoreIndex.ELEMENT_COUNT);
+		initColumn(colLibNeighbourCount, ScoreIndex.NEIGHBOUR_COUNT);
+		initColumn(colLibElectronShell, ScoreIndex.SHELL_SIMILARITY);
+		initColumn(colLibElectronSubshell, ScoreIndex.SUBSHELL_SIMILARITY);
+		initColumn(colLibElectronConfig, ScoreIndex.CONFIG_SIMILARITY);
+
+		tblLibrary.setSortPolicy(table -> {
+			sortEntries();
+			return true;
+		});
+
+		tblLibrary.setRowFactory(table -> {
+			TableRow<Integer> row = new TableRow<Integer>();
+			row.setOnMouseClicked(event -> {
+				if ((event.getClickCount() == 2) && (!row.isEmpty()))
+					loadEntry(row.getItem());
+			});
+			return row;
+		});
+
+		chcLibFilter.setItems(FXCollections.observableArrayList(COLUMN_NAMES));
+		chcLibFilter.getSelectionModel().select(ScoreIndex.CONFIG_SIMILARITY);
+	}
+
+	/**
+	 * Set up a column of the table to display the values of the given 
+	 * ScoreIndex column. The column is tagged with the ScoreIndex column so 
+	 * that the sort policy can identify it.
+	 * 
+	 * @param column	- of the table.
+	 * @param id		- ScoreIndex column, ENTRY to CONFIG_SIMILARITY.
+	 */
+	private void initColumn(TableColumn<Integer, String> column, int id) {
+		column.setUserData(id);
+		column.setCellValueFactory(cell -> 
+			new ReadOnlyStringWrapper(formatValue(id, index.getValue(id, cell.getValue()))));
+	}
+
+	/**
+	 * Check if the given ScoreIndex column is a similarity, which is 
+	 * displayed and filtered as a percentage change, as on the Status tab.
+	 * 
+	 * @param id	ScoreIndex column.
+	 * @return true if the column is a similarity.
+	 */
+	private static boolean isPercent(int id) {
+		return id >= ScoreIndex.SHELL_SIMILARITY;
+	}
+
+	/**
+	 * Format a value of the given ScoreIndex column for display.
+	 * 
+	 * @param id	- ScoreIndex column.
+	 * @param value	- to format.
+	 * @return the value as a String.
+	 */
+	private static String formatValue(int id, float value) {
+		if (isPercent(id))
+			return String.valueOf(value * 100);
+
+		return String.valueOf((int)value);
+	}
+
+	/**
+	 * Event handler for the Library tab Open Library button.
+	 * 
+	 * @param event triggered by button click.
+	 */
+	@FXML void btnLibOpenClicked(ActionEvent event) {
+//		System.out.println("Open Library.");
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Open Library");
+		chooser.getExtensionFilters().add(
+				new FileChooser.ExtensionFilter("Layout Files", "*" + LayoutFile.EXTENSION));
+
+		final File file = chooser.showOpenDialog(btnLibOpen.getScene().getWindow());
+		if (file == null)
+			return;
+
+		openLibrary(file.toPath());
+	}
+
+	/**
+	 * Event handler for the Library tab Filter button.
+	 * 
+	 * @param event triggered by button click.
+	 */
+	@FXML void btnLibFilterClicked(ActionEvent event) {
+//		System.out.println("Filter Library.");
+		if (index == null)
+			return;
+
+		final int id = chcLibFilter.getSelectionModel().getSelectedIndex();
+		if (id < 0)
+			return;
+
+		try {
+			final float scale = isPercent(id) ? 100 : 1;
+			final float min = parseLimit(txtLibMin.getText(), Float.NEGATIVE_INFINITY) / scale;
+			final float max = parseLimit(txtLibMax.getText(), Float.POSITIVE_INFINITY) / scale;
+			setFiltered(index.filter(index.getEntries(), id, min, max));
+		} catch (NumberFormatException e) {
+			lblLibFile.setText("Filter limits must be numbers");
+		}
+	}
+
+	/**
+	 * Event handler for the Library tab Clear button, which shows all the 
+	 * layouts again.
+	 * 
+	 * @param event triggered by button click.
+	 */
+	@FXML void btnLibClearClicked(ActionEvent event) {
+//		System.out.println("Clear Filter.");
+		txtLibMin.setText("");
+		txtLibMax.setText("");
+		if (index != null)
+			setFiltered(index.getEntries());
+	}
+
+	/**
+	 * Parse a filter limit.
+	 * 
+	 * @param text			- entered as the limit.
+	 * @param unlimited		- value to use if no limit was entered.
+	 * @return the limit.
+	 * @throws NumberFormatException if the limit is not a number.
+	 */
+	private static float parseLimit(String text, float unlimited) {
+		if ((text == null) || text.trim().isEmpty())
+			return unlimited;
+
+		return Float.parseFloat(text.trim());
+	}
+
+	/**
+	 * Open the given library. The index is loaded, or built if the library 
+	 * has changed, on the background thread and the table is filled when it 
+	 * completes. Any request still in progress is cancelled, which stops 
+	 * the build of its index.
+	 * 
+	 * @param path	of the layout library.
+	 */
+	private void openLibrary(Path path) {
+		if (task != null)
+			task.cancel();
+
+		final Task<ScoreIndex> request = new Task<ScoreIndex>() {
+			@Override
+			protected ScoreIndex call() throws Exception {
+				return ScoreIndex.load(path, progress -> updateProgress(progress, 1), this::isCancelled);
+			}
+		};
+
+		// Handlers are called on the JavaFX Application Thread.
+		request.setOnSucceeded(e -> {
+			if (request != task)
+				return;
+
+			task = null;
+			prgLibOpen.setVisible(false);
+			library = path;
+			index = request.getValue();
+			lblLibFile.setText(path.getFileName() + ": " + index.getCount() + " layouts");
+			setFiltered(index.getEntries());
+		});
+		request.setOnFailed(e -> {
+			if (request != task)
+				return;
+
+			task = null;
+			prgLibOpen.setVisible(false);
+			lblLibFile.setText(request.getException().getMessage());
+		});
+
+		task = request;
+		prgLibOpen.progressProperty().bind(request.progressProperty());
+		prgLibOpen.setVisible(true);
+		lblLibFile.setText("Indexing " + path.getFileName());
+		executor.submit(request);
+	}
+
+	/**
+	 * Set the layouts that pass the filter and display them in the current 
+	 * sort order. The table is given a new list, as the number of rows has 
+	 * changed.
+	 * 
+	 * @param numbers	of the layouts, in library order.
+	 */
+	private void setFiltered(int[] numbers) {
+		filtered = numbers;
+		sortEntries();
+		tblLibrary.setItems(FXCollections.observableList(entries));
+	}
+
+	/**
+	 * Sort the layouts that pass the filter on the first column of the sort 
+	 * order of the table, using the index, and redisplay the visible rows. 
+	 * With no sort order the layouts are shown in library order.
+	 */
+	private void sortEntries() {
+		if (index == null)
+			return;
+
+		int[] order = filtered;
+		if (!tblLibrary.getSortOrder().isEmpty()) {
+			final TableColumn<Integer, ?> column = tblLibrary.getSortOrder().get(0);
+			final boolean descending = (column.getSortType() == TableColumn.SortType.DESCENDING);
+			order = index.sort(filtered, (Integer)column.getUserData(), descending);
+		}
+
+		entries.setOrder(order);
+		tblLibrary.refresh();
+	}
+
+	/**
+	 * Load the given layout of the library.
+	 * 
+	 * @param entry	number of the layout in the library.
+	 */
+	private void loadEntry(int entry) {
+		try (LayoutFileReader reader = new LayoutFileReader(library)) {
+			if (!reader.seek(index.getOffset(entry)))
+				throw new IOException(library.getFileName() + ": layout " + entry + " not found");
+
+			main.loadRecord(reader.getRecord(), library.getFileName() + "#" + entry);
+			lblLibFile.setText("Loaded layout " + entry + " of " + library.getFileName());
+		} catch (IOException e) {
+			lblLibFile.setText(e.getMessage());
+		}
+	}
+
+	/**
+	 * Called by the centralized controller to provide a callback.
+	 * 
+	 * @param mainController used to call the centralized controller.
+	 */
+	public void init(MainController mainController) {
+//		System.out.println("LibraryController init() called.");
+		main = mainController;
+	}
+}
@@ -21,14 +21,29 @@
 /*
  * LytSettingsController is a class that is responsible for handling the control 
  * of the Layout Settings tab.
+ * 
+ * The tab can also sweep the temperature from 0 to the maximum temperature at 
+ * the selected rate, using an AnimationTimer. The temperature for each frame 
+ * is derived from the time elapsed since the sweep started, so if frames are 
+ * missed the next frame simply covers a larger change in temperature in a 
+ * single update rather than falling further behind.
  */
 package phillockett65.PTable;
 
+import java.io.File;
+import java.io.IOException;
+
+import javafx.animation.AnimationTimer;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
 import javafx.scene.control.Spinner;
 import javafx.scene.control.SpinnerValueFactory;
+import javafx.stage.FileChooser;
+import phillockett65.PTable.io.LayoutFile;
+import phillockett65.PTable.io.TextFormat;
 
 public class LytSettingsController {
 
@@ -40,8 +55,29 @@ public class LytSettingsController {
 	@FXML private Spinner<Integer> spnLytTemp;
 	@FXML private Button btnLytColFlip;
 	@FXML private Button btnLytRowFlip;
+	@FXML private CheckBox chkLytCanvas;
+	@FXML private Spinner<Integer> spnLytSweepRate;
+	@FXML private Button btnLytSweep;
+	@FXML private Button btnLytSave;
+	@FXML private Button btnLytLoad;
+	@FXML private Button btnLytExportSettings;
+	@FXML private Button btnLytImportSettings;
+	@FXML private Button btnLytExportResults;
+	@FXML private Label lblLytFile;
 	@FXML private Button btnLytSettings;
 
+	private boolean sweeping = false;
+
+	// Time the sweep started, in nanoseconds, or 0 until the first frame.
+	private long sweepStart = 0;
+
+	private final AnimationTimer sweepTimer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			sweepFrame(now);
+		}
+	};
+
 	/**
 	 * Constructor.
 	 */
@@ -77,6 +113,133 @@ public class LytSettingsController {
 		main.flipRows();
 	}
 
+	/**
+	 * Event handler for the Layout Settings tab Canvas Rendering check box.
+	 * 
+	 * @param event triggered by check box click.
+	 */
+	@FXML void chkSettingsCanvasClicked(ActionEvent event) {
+//		System.out.println("Canvas Rendering " + chkLytCanvas.isSelected());
+		main.setCanvasRendering(chkLytCanvas.isSelected());
+	}
+
+	/**
+	 * Event handler for the Layout Settings tab Sweep Temperature button. 
+	 * Starts a sweep, or stops the sweep if one is running.
+	 * 
+	 * @param event triggered by button click.
+	 */
+	@FXML void btnSettingsSweepClicked(ActionEvent event) {
+//		System.out.println("Sweep Temperature.");
+		if (isSweeping())
+			stopSweep();
+		else
+			startSweep();
+	}
+
+	/**
+	 * Event handler for the Layout Settings tab Save Layout button.
+	 * 
+	 * @param event triggered by button click.
+	 */
+	@FXML void btnSettingsSaveClicked(ActionEvent event) {
+//		System.out.println("Save Layout.");
+		final File file = createFileChooser("Save Layout", "layout" + LayoutFile.EXTENSION, true)
+				.showSaveDialog(btnLytSave.getScene().getWindow());
+		if (file == null)
+			return;
+
+		try {
+			main.saveLayout(file);
+			lblLytFile.setText("Saved " + file.getName());
+		} catch (IOException e) {
+			lblLytFile.setText(e.getMessage());
+		}
+	}
+
+	/**
+	 * Event handler for the Layout Settings tab Load Layout button.
+	 * 
+	 * @param event triggered by button click.
+	 */
+	@FXML void btnSettingsLoadClicked(ActionEvent event) {
+//		System.out.println("Load Layout.");
+		final File file = createFileChooser("Load Layout", null, true)
+				.showOpenDialog(btnLytLoad.getScene().getWindow());
+		if (file == null)
+			return;
+
+		if (isSweeping())
+			stopSweep();
+
+		try {
+			main.loadLayout(file);
+			lblLytFile.setText("Loaded " + file.getName());
+		} catch (IOException e) {
+			lblLytFile.setText(e.getMessage());
+		}
+	}
+
+	/**
+	 * Event handler for the Layout Settings tab Export Settings button.
+	 * 
+	 * @param event triggered by button click.
+	 */
+	@FXML void btnSettingsExportSettingsClicked(ActionEvent event) {
+//		System.out.println("Export Settings.");
+		final File file = createFileChooser("Export Settings", "settings" + TextFormat.JSON_EXTENSION, false)
+				.showSaveDialog(btnLytExportSettings.getScene().getWindow());
+		if (file == null)
+			return;
+
+		try {
+			main.exportSettings(file);
+			lblLytFile.setText("Exported " + file.getName());
+		} catch (IOException e) {
+			lblLytFile.setText(e.getMessage());
+		}
+	}
+
+	/**
+	 * Event handler for the Layout Settings tab Import Settings button.
+	 * 
+	 * @param event triggered by button click.
+	 */
+	@FXML void btnSettingsImportSettingsClicked(ActionEvent event) {
+//		System.out.println("Import Settings.");
+		final File file = createFileChooser("Import Settings", null, false)
+				.showOpenDialog(btnLytImportSettings.getScene().getWindow());
+		if (file == null)
+			return;
+
+		try {
+			main.importSettings(file);
+			lblLytFile.setText("Imported " + file.getName());
+		} catch (IOException e) {
+			lblLytFile.setText(e.getMessage());
+		}
+	}
+
+	/**
+	 * Event handler for the Layout Settings tab Export Results button.
+	 * 
+	 * @param event triggered by button click.
+	 */
+	@FXML void btnSettingsExportResultsClicked(ActionEvent event) {
+//		System.out.println("Export Results.");
+		final File file = createFileChooser("Export Results", "results" + TextFormat.CSV_EXTENSION, false)
+				.showSaveDialog(btnLytExportResults.getScene().getWindow());
+		if (file == null)
+			return;
+
+		try {
+			main.exportResults(file);
+			lblLytFile.setText("Exported " + file.getName());
+		} catch (IOException e) {
+			lblLytFile.setText(e.getMessage());
+		}
+	}
+
 	/**
 	 * Event handler for the Layout Settings tab Apply Change button.
 	 * 
@@ -102,6 +265,80 @@ public class LytSettingsController {
 	}
 
 
+
+
+/************************************************************************
+ * Temperature sweep support section.
+ */
+
+	/**
+	 * Indicate if a temperature sweep is running.
+	 * 
+	 * @return true if a sweep is running.
+	 */
+	public boolean isSweeping() {
+		return sweeping;
+	}
+
+	/**
+	 * Start sweeping the temperature up from 0 on the next frame.
+	 */
+	private void startSweep() {
+		sweeping = true;
+		sweepStart = 0;
+		btnLytSweep.setText("Stop Sweep");
+		setTemperature(0);
+		sweepTimer.start();
+	}
+
+	/**
+	 * Stop sweeping the temperature, leaving it at its current value.
+	 */
+	private void stopSweep() {
+		sweepTimer.stop();
+		sweeping = false;
+		btnLytSweep.setText("Sweep Temperature");
+	}
+
+	/**
+	 * Advance the sweep to the temperature for the given frame time and stop 
+	 * once the maximum temperature is reached. Only the elements that change 
+	 * state are recoloured.
+	 * 
+	 * @param now	time of the frame in nanoseconds.
+	 */
+	private void sweepFrame(long now) {
+		if (sweepStart == 0)
+			sweepStart = now;
+
+		final int rate = spnLytSweepRate.getValue();
+		final int max = main.getMaxTemp();
+		final long temp = (now - sweepStart) * rate / 1_000_000_000L;
+
+		if (temp >= max) {
+			setTemperature(max);
+			stopSweep();
+
+			return;
+		}
+
+		// Nothing to do if the temperature hasn't changed since the last frame.
+		if (temp != main.getTemp())
+			setTemperature((int)temp);
+	}
+
+	/**
+	 * Set the temperature of the table and keep the Temperature Spinner in 
+	 * sync.
+	 * 
+	 * @param temp	- Temperature.
+	 */
+	private void setTemperature(int temp) {
+		spnLytTemp.getValueFactory().setValue(temp);
+		main.setTemperature(temp);
+	}
+
+
 	/**
 	 * Called by the centralized controller to provide a callback.
 	 * 
@@ -111,25 +348,84 @@ public class LytSettingsController {
 //		System.out.println("LytSettingsController init() called.");
 		main = mainController;
 		initSpnSettings();
+		chkLytCanvas.setSelected(main.isCanvasRendering());
+	}
+
+	/**
+	 * Called by the centralized controller when the grid size is changed 
+	 * other than by this tab, e.g. by undo, to keep the Spinners in sync.
+	 * 
+	 * @param rows	- Row count.
+	 * @param cols	- Column count.
+	 */
+	public void setGridSize(int rows, int cols) {
+		spnLytRows.getValueFactory().setValue(rows);
+		spnLytColumns.getValueFactory().setValue(cols);
+	}
+
+	/**
+	 * Called by the centralized controller to set the Spinners to the values 
+	 * in the model after a layout is loaded. Any temperature sweep is 
+	 * stopped, as it would overwrite the loaded temperature.
+	 */
+	public void syncSettings() {
+		if (isSweeping())
+			stopSweep();
+
+		spnLytRows.getValueFactory().setValue(main.getRows());
+		spnLytColumns.getValueFactory().setValue(main.getCols());
+		spnLytTile.getValueFactory().setValue(main.getTileSize());
+		spnLytBorder.getValueFactory().setValue(main.getBorderSize());
+		spnLytTemp.getValueFactory().setValue(main.getTemp());
+	}
+
+	/**
+	 * Create a FileChooser for the files that can be exchanged with other 
+	 * tools and, optionally, binary layout files. The format is determined 
+	 * by the extension of the chosen file.
+	 * 
+	 * @param title			of the dialog.
+	 * @param initialName	of the file, or null for none.
+	 * @param layouts		true to include binary layout files.
+	 * @return the FileChooser.
+	 */
+	private FileChooser createFileChooser(String title, String initialName, boolean layouts) {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle(title);
+		if (layouts)
+			chooser.getExtensionFilters().add(
+					new FileChooser.ExtensionFilter("Layout Files", "*" + LayoutFile.EXTENSION));
+		chooser.getExtensionFilters().add(
+				new FileChooser.ExtensionFilter("JSON Files", 
+						"*" + TextFormat.JSON_EXTENSION, "*" + TextFormat.JSON_LINES_EXTENSION));
+		chooser.getExtensionFilters().add(
+				new FileChooser.ExtensionFilter("CSV Files", "*" + TextFormat.CSV_EXTENSION));
+		if (initialName != null)
+			chooser.setInitialFileName(initialName);
+
+		return chooser;
 	}
 
 	/**
 	 * Initialize all the Spinners.
 	 */
 	private void initSpnSettings() {
-		SpinnerValueFactory<Integer> vFRows = new SpinnerValueFactory.IntegerSpinnerValueFactory(8, 45, main.getRows());
+		SpinnerValueFactory<Integer> vFRows = new SpinnerValueFactory.IntegerSpinnerValueFactory(Model.MIN_ROWS, Model.MAX_ROWS, main.getRows());
 		spnLytRows.setValueFactory(vFRows);
 
-		SpinnerValueFactory<Integer> vFColumns = new SpinnerValueFactory.IntegerSpinnerValueFactory(18, 45, main.getCols());
+		SpinnerValueFactory<Integer> vFColumns = new SpinnerValueFactory.IntegerSpinnerValueFactory(Model.MIN_COLS, Model.MAX_COLS, main.getCols());
 		spnLytColumns.setValueFactory(vFColumns);
 
-		SpinnerValueFactory<Integer> vFTile = new SpinnerValueFactory.IntegerSpinnerValueFactory(25, 100, main.getTileSize());
+		SpinnerValueFactory<Integer> vFTile = new SpinnerValueFactory.IntegerSpinnerValueFactory(Model.MIN_TILE_SIZE, Model.MAX_TILE_SIZE, main.getTileSize());
 		spnLytTile.setValueFactory(vFTile);
 
-		SpinnerValueFactory<Integer> vFBorder = new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 10, main.getBorderSize());
+		SpinnerValueFactory<Integer> vFBorder = new SpinnerValueFactory.IntegerSpinnerValueFactory(Model.MIN_BORDER_SIZE, Model.MAX_BORDER_SIZE, main.getBorderSize());
 		spnLytBorder.setValueFactory(vFBorder);
 
 		SpinnerValueFactory<Integer> vFTemp = new SpinnerValueFactory.IntegerSpinnerValueFactory(0, main.getMaxTemp(), main.getTemp());
 		spnLytTemp.setValueFactory(vFTemp);
+
+		SpinnerValueFactory<Integer> vFSweepRate = new SpinnerValueFactory.IntegerSpinnerValueFactory(10, 2000, 500, 10);
+		spnLytSweepRate.setValueFactory(vFSweepRate);
 	}
 }
@@ -25,17 +25,37 @@
  */
 package phillockett65.PTable;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
 import javafx.fxml.FXML;
 import javafx.scene.paint.Color;
+import phillockett65.PTable.batch.ResultWriter;
 import phillockett65.PTable.elements.ElementConfig;
+import phillockett65.PTable.io.LayoutFile;
+import phillockett65.PTable.io.LayoutFileReader;
+import phillockett65.PTable.io.LayoutRecord;
+import phillockett65.PTable.io.LayoutTextReader;
+import phillockett65.PTable.io.LayoutTextWriter;
+import phillockett65.PTable.io.ModelSettings;
+import phillockett65.PTable.io.TextFormat;
 import phillockett65.PTable.table.Cell;
 import phillockett65.PTable.table.Desc;
+import phillockett65.PTable.table.Layout;
 import phillockett65.PTable.table.PTable;
+import phillockett65.PTable.table.Quantifier;
 import phillockett65.PTable.table.Quantities;
+import phillockett65.PTable.table.RenderContext;
 
 public class MainController {
 
 	@FXML StatusController statusTabController;
+	@FXML LibraryController libraryTabController;
 	@FXML DetailsController detailsTabController;
 	@FXML LytSettingsController lytSettingsTabController;
 	@FXML SttSettingsController sttSettingsTabController;
@@ -62,6 +82,7 @@ public class MainController {
 	@FXML public void initialize() {
 //		System.out.println("MainController initialized.");
 		statusTabController.init(this);
+		libraryTabController.init(this);
 		detailsTabController.init(this);
 		lytSettingsTabController.init(this);
 		sttSettingsTabController.init(this);
@@ -150,6 +171,14 @@ public class MainController {
 		return model.getSymbol();
 	}
 
+	public RenderContext getRenderContext() {
+		return model.getRenderContext();
+	}
+
+	public boolean isCanvasRendering() {
+		return model.isCanvasRendering();
+	}
+
 	/**
 	 * Called by the "Subcategory Settings" tab when the "Apply Change" button 
 	 * is clicked. Updates the model and the colours on the table.
@@ -235,6 +264,53 @@ public class MainController {
 		table.updateLayout(rowCkr, colCkr, tileCkr, brdrCkr, tempCkr);
 	}
 
+	/**
+	 * Called by the "Layout Settings" tab to change just the temperature, 
+	 * e.g. while sweeping. Only the elements that change state are updated.
+	 * 
+	 * @param temp	- Temperature.
+	 */
+	public void setTemperature(int temp) {
+		updateLayout(getRows(), getCols(), getTileSize(), getBorderSize(), temp);
+	}
+
+	/**
+	 * Called by the table when undoing or redoing a change to the number of 
+	 * rows or columns. Updates the model, the Layout Settings tab and the 
+	 * table.
+	 * 
+	 * @param rows	- Row count.
+	 * @param cols	- Column count.
+	 */
+	public void setGridSize(int rows, int cols) {
+		ChangeChecker rowCkr = new ChangeChecker(getRows(), rows);
+		if (rowCkr.isChanged())
+			model.setRows(rowCkr.getNewValue());
+
+		ChangeChecker colCkr = new ChangeChecker(getCols(), cols);
+		if (colCkr.isChanged())
+			model.setCols(colCkr.getNewValue());
+
+		lytSettingsTabController.setGridSize(rows, cols);
+
+		ChangeChecker tileCkr = new ChangeChecker(getTileSize(), getTileSize());
+		ChangeChecker brdrCkr = new ChangeChecker(getBorderSize(), getBorderSize());
+		ChangeChecker tempCkr = new ChangeChecker(getTemp(), getTemp());
+		table.updateLayout(rowCkr, colCkr, tileCkr, brdrCkr, tempCkr);
+	}
+
+	/**
+	 * Called by the "Layout Settings" tab when the "Canvas Rendering" check 
+	 * box is changed. Switches the table between drawing on a single Canvas 
+	 * and using a node per cell.
+	 * 
+	 * @param enabled	- true to draw on a Canvas, false to use nodes.
+	 */
+	public void setCanvasRendering(boolean enabled) {
+		model.setCanvasRendering(enabled);
+		table.setCanvasRendering(enabled);
+	}
+
 	/**
 	 * Reverses the order of the columns and repositions the cells.
 	 */
@@ -253,7 +329,328 @@ public class MainController {
 		return table.getQuantities();
 	}
 
+	public Quantifier getSnapshotQuantifier() {
+		return table.getSnapshotQuantifier();
+	}
+
+	public boolean isQuantitiesValid() {
+		return table.isQuantitiesValid();
+	}
+
+	public int getChangeCount() {
+		return table.getChangeCount();
+	}
+
+	public void setQuantifier(Quantifier quantifier, int changes) {
+		table.setQuantifier(quantifier, changes);
+	}
+
+	/**
+	 * Called by the table after every edit to the layout. The Status tab 
+	 * coalesces these into at most one update per frame.
+	 */
+	public void layoutChanged() {
+		statusTabController.requestUpdate();
+	}
+
 	public void setSelected(Cell cell) {
 		detailsTabController.setSelected(cell);
 	}
+
+
+
+/************************************************************************
+ * File support section.
+ */
+
+	/**
+	 * Pack a colour into an int as 0xRRGGBBAA for saving.
+	 * 
+	 * @param colour to pack.
+	 * @return the packed colour.
+	 */
+	private static int packColour(Color colour) {
+		return ((int)Math.round(colour.getRed() * 255) << 24) | 
+			((int)Math.round(colour.getGreen() * 255) << 16) | 
+			((int)Math.round(colour.getBlue() * 255) << 8) | 
+			(int)Math.round(colour.getOpacity() * 255);
+	}
+
+	/**
+	 * Unpack a colour saved by packColour().
+	 * 
+	 * @param packed colour.
+	 * @return the colour.
+	 */
+	private static Color unpackColour(int packed) {
+		return Color.rgb((packed >>> 24) & 0xFF, (packed >>> 16) & 0xFF, 
+				(packed >>> 8) & 0xFF, (packed & 0xFF) / 255.0);
+	}
+
+	private int[] packStateColours() {
+		int[] colours = new int[Model.MAX_STATE];
+		for (int i = 0; i < colours.length; ++i)
+			colours[i] = packColour(model.getStateColour(i));
+
+		return colours;
+	}
+
+	private int[] packSubcategoryColours() {
+		int[] colours = new int[Model.MAX_SUBCATEGORY];
+		for (int i = 0; i < colours.length; ++i)
+			colours[i] = packColour(model.getSubcategoryColour(i));
+
+		return colours;
+	}
+
+	/**
+	 * Update the model and the table with the given colour tables and 
+	 * descriptions, ignoring any entries the model doesn't have.
+	 * 
+	 * @param stateNames			- descriptions of the states, may be null.
+	 * @param stateColours			- packed state colours.
+	 * @param subcategoryNames		- descriptions of the subcategories, may be 
+	 * 								  null.
+	 * @param subcategoryColours	- packed subcategory colours.
+	 */
+	private void applyColours(String[] stateNames, int[] stateColours, 
+			String[] subcategoryNames, int[] subcategoryColours) {
+		for (int i = 0; i < stateColours.length; ++i) {
+			final Color colour = unpackColour(stateColours[i]);
+			if (model.setStateColour(i, colour)) {
+				table.setStateColour(i, colour);
+				if (stateNames != null)
+					model.setStateString(i, stateNames[i]);
+			}
+		}
+
+		for (int i = 0; i < subcategoryColours.length; ++i) {
+			final Color colour = unpackColour(subcategoryColours[i]);
+			if (model.setSubcategoryColour(i, colour)) {
+				table.setSubcategoryColour(i, colour);
+				if (subcategoryNames != null)
+					model.setSubcategoryString(i, subcategoryNames[i]);
+			}
+		}
+
+		sttSettingsTabController.syncSettings();
+		subSettingsTabController.syncSettings();
+	}
+
+	/**
+	 * Get the text format to exchange the given file in.
+	 * 
+	 * @param file	to exchange.
+	 * @return TextFormat.CSV or TextFormat.JSON.
+	 * @throws IOException if the file name doesn't indicate a text format.
+	 */
+	private static int findTextFormat(File file) throws IOException {
+		final int format = TextFormat.findFormat(file.getName());
+		if (format == TextFormat.UNKNOWN)
+			throw new IOException(file.getName() + ": use a " + TextFormat.JSON_EXTENSION + 
+					" or " + TextFormat.CSV_EXTENSION + " file");
+
+		return format;
+	}
+
+	/**
+	 * Get the name of the given file without the extension, which is used to 
+	 * name the layout in the text formats.
+	 * 
+	 * @param file	to name the layout after.
+	 * @return the name of the layout.
+	 */
+	private static String findLayoutName(File file) {
+		final String name = file.getName();
+		final int dot = name.lastIndexOf('.');
+
+		return (dot > 0) ? name.substring(0, dot) : name;
+	}
+
+	/**
+	 * Called by the "Layout Settings" tab to save the current layout and the 
+	 * layout settings to the given file. Files with a JSON or CSV extension 
+	 * are exported as text, otherwise the binary layout format is used and 
+	 * the colour tables are also saved.
+	 * 
+	 * @param file	to save to, any existing content is replaced.
+	 * @throws IOException if the file can't be written.
+	 */
+	public void saveLayout(File file) throws IOException {
+		final Layout layout = new Layout(table.getLayout());
+		final int format = TextFormat.findFormat(file.getName());
+		if (format == TextFormat.UNKNOWN) {
+			LayoutRecord record = new LayoutRecord(layout, getTileSize(), getBorderSize(), getTemp(), 
+					packStateColours(), packSubcategoryColours());
+			LayoutFile.write(file.toPath(), Collections.singletonList(record));
+
+			return;
+		}
+
+		try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			LayoutTextWriter writer = new LayoutTextWriter(out, format);
+			writer.writeHeader();
+			writer.write(findLayoutName(file), 
+					new LayoutRecord(layout, getTileSize(), getBorderSize(), getTemp()));
+		}
+	}
+
+	/**
+	 * Called by the "Layout Settings" tab to load the first layout in the 
+	 * given file, either binary or, if the file has a JSON or CSV extension, 
+	 * text. Updates the model, the colours if they were saved and the table.
+	 * 
+	 * @param file	to load from.
+	 * @throws IOException if the file can't be read or holds no layouts.
+	 */
+	public void loadLayout(File file) throws IOException {
+		LayoutRecord record = null;
+		final int format = TextFormat.findFormat(file.getName());
+		if (format == TextFormat.UNKNOWN) {
+			// Only the first layout is needed, so don't decode the rest.
+			try (LayoutFileReader reader = new LayoutFileReader(file.toPath())) {
+				if (reader.next())
+					record = reader.getRecord();
+			}
+		} else {
+			try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+				record = new LayoutTextReader(in, format, file.getName()).next();
+			}
+		}
+
+		if (record == null)
+			throw new IOException(file.getName() + ": no layouts found");
+
+		loadRecord(record, file.getName());
+	}
+
+	/**
+	 * Check that a setting read from a file is within the range offered by 
+	 * the "Layout Settings" tab.
+	 * 
+	 * @param source	- name of the layout source, used in the message.
+	 * @param setting	- description of the setting.
+	 * @param value		- read from the file.
+	 * @param min		- lowest allowed value.
+	 * @param max		- highest allowed value.
+	 * @throws IOException if the value is out of range.
+	 */
+	private static void checkSetting(String source, String setting, int value, int min, int max) 
+			throws IOException {
+		if ((value < min) || (value > max))
+			throw new IOException(source + ": " + setting + " " + value + 
+					" is outside the range " + min + " to " + max);
+	}
+
+	/**
+	 * Check that the given layout and its settings can be loaded, before 
+	 * the model is changed.
+	 * 
+	 * @param record	- to check.
+	 * @param source	- name of the layout source, used in the message.
+	 * @throws IOException if a setting is out of range or the layout holds 
+	 * an invalid or repeated element.
+	 */
+	private void checkRecord(LayoutRecord record, String source) throws IOException {
+		final Layout layout = record.getLayout();
+		checkSetting(source, "rows", layout.getRows(), Model.MIN_ROWS, Model.MAX_ROWS);
+		checkSetting(source, "columns", layout.getCols(), Model.MIN_COLS, Model.MAX_COLS);
+		checkSetting(source, "tile size", record.getTileSize(), Model.MIN_TILE_SIZE, Model.MAX_TILE_SIZE);
+		checkSetting(source, "border size", record.getBorderSize(), Model.MIN_BORDER_SIZE, Model.MAX_BORDER_SIZE);
+		checkSetting(source, "temperature", record.getTemp(), 0, getMaxTemp());
+
+		final int invalid = layout.findInvalidKey();
+		if (invalid >= 0)
+			throw new IOException(source + ": invalid or repeated element key " + 
+					layout.getKey(invalid) + " at position " + invalid);
+	}
+
+	/**
+	 * Called by the "Layout Settings" and "Library" tabs to load the given 
+	 * layout. The record is checked first, so an invalid record leaves the 
+	 * model unchanged. Updates the model, the colours if they were saved, 
+	 * the table and the "Layout Settings" tab.
+	 * 
+	 * @param record	- to load.
+	 * @param source	- name of the layout source, used in error messages.
+	 * @throws IOException if the record can't be loaded.
+	 */
+	public void loadRecord(LayoutRecord record, String source) throws IOException {
+		checkRecord(record, source);
+
+		if (record.hasColours())
+			applyColours(null, record.getStateColours(), null, record.getSubcategoryColours());
+
+		final Layout layout = record.getLayout();
+		updateLayout(layout.getRows(), layout.getCols(), 
+				record.getTileSize(), record.getBorderSize(), record.getTemp());
+		table.loadLayout(layout);
+		lytSettingsTabController.syncSettings();
+	}
+
+	/**
+	 * Called by the "Layout Settings" tab to export the descriptions and 
+	 * colours of the states and subcategories as JSON or CSV.
+	 * 
+	 * @param file	to export to, any existing content is replaced.
+	 * @throws IOException if the file can't be written.
+	 */
+	public void exportSettings(File file) throws IOException {
+		final int format = findTextFormat(file);
+
+		String[] stateNames = new String[Model.MAX_STATE];
+		for (int i = 0; i < stateNames.length; ++i)
+			stateNames[i] = model.getStateString(i);
+
+		String[] subcategoryNames = new String[Model.MAX_SUBCATEGORY];
+		for (int i = 0; i < subcategoryNames.length; ++i)
+			subcategoryNames[i] = model.getSubcategoryString(i);
+
+		ModelSettings settings = new ModelSettings(stateNames, packStateColours(), 
+				subcategoryNames, packSubcategoryColours());
+		try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			settings.write(out, format);
+		}
+	}
+
+	/**
+	 * Called by the "Layout Settings" tab to import the descriptions and 
+	 * colours of the states and subcategories from JSON or CSV. Updates the 
+	 * model, the settings tabs and the colours on the table.
+	 * 
+	 * @param file	to import from.
+	 * @throws IOException if the file can't be read or is not valid.
+	 */
+	public void importSettings(File file) throws IOException {
+		final int format = findTextFormat(file);
+
+		ModelSettings settings;
+		try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			settings = ModelSettings.read(in, format, file.getName());
+		}
+
+		applyColours(settings.getStateNames(), settings.getStateColours(), 
+				settings.getSubcategoryNames(), settings.getSubcategoryColours());
+	}
+
+	/**
+	 * Called by the "Layout Settings" tab to export the quantities of the 
+	 * current layout as JSON or CSV, in the same form as the batch results.
+	 * 
+	 * @param file	to export to, any existing content is replaced.
+	 * @throws IOException if the file can't be written.
+	 */
+	public void exportResults(File file) throws IOException {
+		final int format = findTextFormat(file);
+
+		try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			ResultWriter results = new ResultWriter(out, format);
+			results.writeHeader();
+
+			StringBuilder batch = new StringBuilder();
+			results.format(batch, findLayoutName(file), getRows(), getCols(), getQuantities());
+			results.write(batch);
+		}
+	}
+
 }
@@ -25,10 +25,12 @@
 package phillockett65.PTable;
 
 import javafx.scene.paint.Color;
+import phillockett65.PTable.elements.ElementColumns;
 import phillockett65.PTable.elements.ElementConfig;
 import phillockett65.PTable.elements.Elements;
-import phillockett65.PTable.table.Cell;
+import phillockett65.PTable.io.Limits;
 import phillockett65.PTable.table.Desc;
+import phillockett65.PTable.table.RenderContext;
 
 public class Model {
 
@@ -50,9 +52,20 @@ public class Model {
 	public final static int NOBLE_GAS = 10;
 	public final static int MAX_SUBCATEGORY = 11;
 
-	public final static int INIT_TEMP = 274;
-	public final static int INIT_TILE_SIZE = 50;
-	public final static int INIT_BORDER_SIZE = 2;
+	public final static int INIT_TEMP = Limits.INIT_TEMP;
+	public final static int INIT_TILE_SIZE = Limits.INIT_TILE_SIZE;
+	public final static int INIT_BORDER_SIZE = Limits.INIT_BORDER_SIZE;
+
+	// The ranges of the layout settings offered by the Layout Settings tab, 
+	// which layouts read from a file must also respect (see Limits).
+	public final static int MIN_ROWS = Limits.MIN_ROWS;
+	public final static int MAX_ROWS = Limits.MAX_ROWS;
+	public final static int MIN_COLS = Limits.MIN_COLS;
+	public final static int MAX_COLS = Limits.MAX_COLS;
+	public final static int MIN_TILE_SIZE = Limits.MIN_TILE_SIZE;
+	public final static int MAX_TILE_SIZE = Limits.MAX_TILE_SIZE;
+	public final static int MIN_BORDER_SIZE = Limits.MIN_BORDER_SIZE;
+	public final static int MAX_BORDER_SIZE = Limits.MAX_BORDER_SIZE;
 
 	private int temp;
 	private int maxTemp = 0;
@@ -61,9 +74,11 @@ public class Model {
 	private int cols = 18;
 	private int tileSize;
 	private int borderSize;
+	private boolean canvasRendering = false;
 
 	private Desc Z = new Desc();
 	private Desc symbol = new Desc();
+	private RenderContext context;
 
 	private String[] states = { "UNDEFINED", "Solid", "Liquid", "Gas" };
 	private Color[] stateColours = {
@@ -122,16 +137,12 @@ public class Model {
 			subcategories[i] = new String(Elements.getSubcategory(i));
 		}
 
-		// Call the setters for these values here to ensure that Cell Class 
-		// variables are kept in sync. This is only a problem if there are 
-		// multiple instances of the Model.
+		// Call the setters for these values here to ensure that the 
+		// RenderContext is kept in sync.
 		setTemp(INIT_TEMP);
 		setTileSize(INIT_TILE_SIZE);
 		setBorderSize(INIT_BORDER_SIZE);
 
-		Cell.setZDesc(Z);
-		Cell.setSymbolDesc(symbol);
-
 		maxTemp = findMaxTemp();
 	}
 
@@ -142,17 +153,9 @@ public class Model {
 	 * @return the highest melting/boiling point temperature.
 	 */
 	private int findMaxTemp() {
-		float max = 0F;
-		for (int i = Elements.firstKey(); i <= Elements.lastKey(); i = Elements.nextKey(i)) {
-			if (!Elements.isKeyValid(i)) {
-				continue;
-			}
-			ElementConfig e = Elements.element(i);
-			if (e.getBoil() > max)
-				max = e.getBoil();
-			if (e.getMelt() > max)
-				max = e.getMelt();
-		}
+		final ElementColumns columns = Elements.getColumns();
+		final float max = Math.max(columns.findMax(columns.getBoil()), 
+				columns.findMax(columns.getMelt()));
 
 		return (int)max + 1;
 	}
@@ -165,7 +168,8 @@ public class Model {
 	}
 	public void setTemp(int temp) {
 		this.temp = temp;
-		Cell.setTemp(temp);
+		if (context != null)
+			context = context.withTemp(temp);
 	}
 	public int getRows() {
 		return rows;
@@ -184,7 +188,6 @@ public class Model {
 	}
 	public void setTileSize(int tileSize) {
 		this.tileSize = tileSize;
-		Cell.setTileSize(tileSize);
 
 		Z.setSize((float)tileSize / 4F);
 		Z.setDx((int)((float)tileSize * 0.8));
@@ -193,12 +196,15 @@ public class Model {
 		symbol.setSize((float)tileSize * 0.6F);
 		symbol.setDx(0);
 		symbol.setDy((int)(symbol.getSize() * 1.4));
+
+		updateContext();
 	}
 	public int getBorderSize() {
 		return borderSize;
 	}
 	public void setBorderSize(int borderSize) {
 		this.borderSize = borderSize;
+		updateContext();
 	}
 	public int getStepSize() {
 		return borderSize+tileSize;
@@ -218,6 +224,30 @@ public class Model {
 		return symbol;
 	}
 
+	/**
+	 * Get the settings used to draw the cells. A new context is created 
+	 * whenever the temperature, tile size or border size changes.
+	 * 
+	 * @return the current RenderContext.
+	 */
+	public RenderContext getRenderContext() {
+		return context;
+	}
+
+	/**
+	 * Create a new RenderContext from the current settings.
+	 */
+	private void updateContext() {
+		context = new RenderContext(temp, tileSize, borderSize, Z, symbol);
+	}
+
+	public boolean isCanvasRendering() {
+		return canvasRendering;
+	}
+	public void setCanvasRendering(boolean canvasRendering) {
+		this.canvasRendering = canvasRendering;
+	}
+
 	public boolean isValidStateIndex(int index) {
 		if ((index < 0) || (index >= MAX_STATE))
 			return false;
@@ -21,13 +21,31 @@
 /*
  * StatusController is a class that is responsible for handling the control 
  * of the Status tab.
+ * 
+ * The quantities are calculated on a background thread, from a snapshot of 
+ * the grid taken when the update is requested, so that scoring large grids 
+ * doesn't freeze the UI. Only the most recent request is of interest, so 
+ * any request still in progress is cancelled when a new one is made.
+ * 
+ * The display is also updated automatically after every edit. Edits only 
+ * request an update, which is carried out at most once per frame by an 
+ * AnimationTimer, so a burst of key presses results in a single update. If 
+ * the table has kept its quantities up to date incrementally they are 
+ * displayed directly, otherwise the background calculation is used.
  */
 package phillockett65.PTable;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.animation.AnimationTimer;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import phillockett65.PTable.table.Quantifier;
 import phillockett65.PTable.table.Quantities;
 
 public class StatusController {
@@ -39,6 +57,28 @@ public class StatusController {
 	@FXML private Label datStatusElectronShell;
 	@FXML private Label datStatusElectronSubshell;
 	@FXML private Label datStatusElectronConfig;
+	@FXML private ProgressIndicator prgStatusUpdate;
+
+	// A single daemon thread, so requests are handled in order and don't 
+	// prevent the application from exiting.
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "Status scoring");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private Task<Quantities> task = null;
+
+	private boolean pending = false;
+	private final AnimationTimer timer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			stop();
+			if (pending) {
+				pending = false;
+				refresh();
+			}
+		}
+	};
 
 	/**
 	 * Constructor.
@@ -65,10 +105,87 @@ public class StatusController {
 	}
 
 	/**
-	 * Apply the changes selected by the user.
+	 * Called by the centralized controller after every edit to the layout. 
+	 * The update is deferred until the next frame so that many edits in the 
+	 * same frame result in a single update.
+	 */
+	public void requestUpdate() {
+		if (pending)
+			return;
+
+		pending = true;
+		timer.start();
+	}
+
+	/**
+	 * Update the display, using the incrementally maintained quantities if 
+	 * they are up to date, otherwise calculate them in the background.
+	 */
+	private void refresh() {
+		if (!main.isQuantitiesValid()) {
+			updateSettings();
+			return;
+		}
+
+		// Any background request is now out of date.
+		if (task != null) {
+			task.cancel();
+			task = null;
+			prgStatusUpdate.setVisible(false);
+		}
+
+		setQuantities(main.getQuantities());
+	}
+
+	/**
+	 * Request the quantities for the current grid. A snapshot of the grid is 
+	 * scored on the background thread and the display is updated when it 
+	 * completes, unless a newer request has been made in the mean time.
 	 */
 	public void updateSettings() {
-		Quantities quantities = main.getQuantities();
+		if (task != null)
+			task.cancel();
+
+		final Quantifier quantifier = main.getSnapshotQuantifier();
+		final int changes = main.getChangeCount();
+		final Task<Quantities> request = new Task<Quantities>() {
+			@Override
+			protected Quantities call() throws Exception {
+				return quantifier.getQuantities();
+			}
+		};
+
+		// Handlers are called on the JavaFX Application Thread.
+		request.setOnSucceeded(e -> {
+			if (request != task)
+				return;
+
+			task = null;
+			prgStatusUpdate.setVisible(false);
+			setQuantities(request.getValue());
+
+			// Reuse the results if the grid hasn't changed since.
+			main.setQuantifier(quantifier, changes);
+		});
+		request.setOnFailed(e -> {
+			if (request != task)
+				return;
+
+			task = null;
+			prgStatusUpdate.setVisible(false);
+		});
+
+		task = request;
+		prgStatusUpdate.setVisible(true);
+		executor.submit(request);
+	}
+
+	/**
+	 * Display the given quantities.
+	 * 
+	 * @param quantities to display.
+	 */
+	private void setQuantities(Quantities quantities) {
 		datStatusElementCount.setText(quantities.getElementCount());
 		datStatusNeighbourCount.setText(quantities.getNeighbourCount());
 		datStatusElectronShell.setText(quantities.getElectronShellSimilarityPercent());
@@ -119,6 +119,16 @@ public class SttSettingsController {
 		chcSttSettings.getSelectionModel().select(1);
 	}
 
+	/**
+	 * Called by the centralized controller when the descriptions or colours 
+	 * are changed other than by this tab, e.g. by loading a layout or 
+	 * importing settings, to keep the ChoiceBox and ColorPicker in sync.
+	 */
+	public void syncSettings() {
+		initChcSettings();
+		initColSettings();
+	}
+
 	/**
 	 * Initialize the ColorPicker with data from the Model.
 	 */
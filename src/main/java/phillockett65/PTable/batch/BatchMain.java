@@ -0,0 +1,389 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * BatchMain is a headless entry point that scores layout files without 
+ * starting the JavaFX toolkit. Each file is read by LayoutReader and every 
+ * layout in it is scored by a Quantifier, with deviations relative to the 
+ * standard layout as on the Status tab. Files are processed in parallel by a 
+ * pool of worker threads, each with its own Quantifier, and the results are 
+ * streamed as CSV or JSON Lines by ResultWriter.
+ * 
+ * With -O, every layout is instead used as the starting point of a search 
+ * for an improved layout by the given optimiser, which runs for the given 
+ * number of seconds. The files are processed one at a time, as the 
+ * tempering and genetic searches use every core, and the best layout found 
+ * for each is written by LayoutWriter, with its score, so that it can be 
+ * scored by a second run.
+ * 
+ * Usage: BatchMain [-f csv|json] [-t threads] [-o output] file...
+ *        BatchMain -O anneal|tempering|genetic [-s seconds] [-o output] file...
+ */
+package phillockett65.PTable.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import phillockett65.PTable.optimiser.Annealer;
+import phillockett65.PTable.optimiser.GeneticSearch;
+import phillockett65.PTable.optimiser.Objective;
+import phillockett65.PTable.optimiser.ParallelTempering;
+import phillockett65.PTable.table.Layout;
+import phillockett65.PTable.table.Quantifier;
+import phillockett65.PTable.table.Quantities;
+
+public class BatchMain {
+
+	// Size of a batch of formatted results before it is written.
+	private final static int BATCH_SIZE = 64 * 1024;
+
+	// The optimisers that can be selected with -O.
+	public final static int ANNEAL = 0;
+	public final static int TEMPERING = 1;
+	public final static int GENETIC = 2;
+	private final static String[] OPTIMISERS = { "anneal", "tempering", "genetic" };
+
+	// Default time to optimise each layout for (in seconds).
+	private final static int OPTIMISE_TIME = 10;
+
+	private final ResultWriter results;
+
+	// Each worker thread has its own Quantifier as they are not thread safe.
+	private final ThreadLocal<Quantifier> quantifiers = ThreadLocal.withInitial(
+			Quantifier::createStandard);
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param results	destination of the formatted results.
+	 */
+	public BatchMain(ResultWriter results) {
+		this.results = results;
+	}
+
+	/**
+	 * Score every layout read from the given reader and write the results. 
+	 * An error is written for each layout that is invalid and scoring 
+	 * continues with the next one.
+	 * 
+	 * @param reader	to read the layouts from.
+	 * @param source	name of the layout source.
+	 * @return the number of layouts scored.
+	 * @throws IOException if the results can't be written.
+	 */
+	public int score(BufferedReader reader, String source) throws IOException {
+		final Quantifier quantifier = quantifiers.get();
+		final LayoutReader layouts = new LayoutReader(reader, source);
+		final StringBuilder batch = new StringBuilder(BATCH_SIZE + 256);
+		int count = 0;
+
+		while (true) {
+			Layout layout;
+			try {
+				layout = layouts.next();
+			} catch (IOException e) {
+				// Report an invalid layout and carry on with the next one.
+				results.formatError(batch, source, e.getMessage());
+				if (layouts.canResume())
+					continue;
+
+				break;
+			}
+
+			if (layout == null)
+				break;
+
+			quantifier.setLayout(layout);
+			final Quantities quantities = quantifier.getQuantities();
+			results.format(batch, layouts.getName(), layout.getRows(), layout.getCols(), quantities);
+			count++;
+
+			if (batch.length() >= BATCH_SIZE) {
+				results.write(batch);
+				batch.setLength(0);
+			}
+		}
+
+		results.write(batch);
+
+		return count;
+	}
+
+	/**
+	 * Score every layout in the given file and write the results.
+	 * 
+	 * @param file	containing the layouts.
+	 * @return the number of layouts scored.
+	 * @throws IOException if the results can't be written.
+	 */
+	public int score(String file) throws IOException {
+		BufferedReader reader;
+		try {
+			reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			StringBuilder batch = new StringBuilder();
+			results.formatError(batch, file, "unable to read file " + e.getMessage());
+			results.write(batch);
+
+			return 0;
+		}
+
+		try (reader) {
+			return score(reader, file);
+		}
+	}
+
+	/**
+	 * Score the given files in parallel using the given number of threads.
+	 * 
+	 * @param files		containing the layouts.
+	 * @param threads	number of worker threads.
+	 * @return the total number of layouts scored.
+	 * @throws IOException if the results can't be written.
+	 */
+	public int score(List<String> files, int threads) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>(files.size());
+			for (String file : files)
+				futures.add(pool.submit(() -> score(file)));
+
+			int total = 0;
+			for (Future<Integer> future : futures)
+				total += future.get();
+
+			return total;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+			results.flush();
+		}
+	}
+
+	/**
+	 * Search for an improved arrangement of the given layout.
+	 * 
+	 * @param start		layout to start the search from.
+	 * @param optimiser	ANNEAL, TEMPERING or GENETIC.
+	 * @param maxTime	to search for, in milliseconds.
+	 * @return the best layout found.
+	 */
+	public static Layout optimise(Layout start, int optimiser, long maxTime) {
+		switch (optimiser) {
+		case TEMPERING: {
+			ParallelTempering search = new ParallelTempering(start);
+			search.setMaxTime(maxTime);
+			return search.run();
+		}
+
+		case GENETIC: {
+			GeneticSearch search = new GeneticSearch(start);
+			search.setMaxTime(maxTime);
+			return search.run();
+		}
+
+		default: {
+			Annealer search = new Annealer(start);
+			search.setMaxTime(maxTime);
+			return search.run();
+		}
+		}
+	}
+
+	/**
+	 * Optimise every layout read from the given reader and write the best 
+	 * layout found for each, with a comment giving the scores (see 
+	 * Objective) of the starting and best layouts. Invalid layouts are 
+	 * reported on the standard error stream and skipped.
+	 * 
+	 * @param reader	to read the layouts from.
+	 * @param source	name of the layout source.
+	 * @param layouts	destination of the best layouts.
+	 * @param optimiser	ANNEAL, TEMPERING or GENETIC.
+	 * @param maxTime	to search for each layout, in milliseconds.
+	 * @return the number of layouts optimised.
+	 * @throws IOException if the layouts can't be written.
+	 */
+	public static int optimise(BufferedReader reader, String source, LayoutWriter layouts, 
+			int optimiser, long maxTime) throws IOException {
+		final LayoutReader starts = new LayoutReader(reader, source);
+		int count = 0;
+
+		while (true) {
+			Layout start;
+			try {
+				start = starts.next();
+			} catch (IOException e) {
+				System.err.println(e.getMessage());
+				if (starts.canResume())
+					continue;
+
+				break;
+			}
+
+			if (start == null)
+				break;
+
+			final Layout best = optimise(start, optimiser, maxTime);
+			final Objective objective = new Objective(start);
+			final String comment = String.format("%s: score %.4f -> %.4f", OPTIMISERS[optimiser], 
+					objective.evaluate(start), objective.evaluate(best));
+			layouts.write(starts.getName(), comment, best);
+			count++;
+		}
+
+		layouts.flush();
+
+		return count;
+	}
+
+	/**
+	 * Optimise every layout in the given files, one file at a time, or the 
+	 * layouts read from the standard input if no files are given.
+	 * 
+	 * @param files		containing the layouts.
+	 * @param layouts	destination of the best layouts.
+	 * @param optimiser	ANNEAL, TEMPERING or GENETIC.
+	 * @param maxTime	to search for each layout, in milliseconds.
+	 * @throws IOException if the layouts can't be written.
+	 */
+	private static void optimise(List<String> files, LayoutWriter layouts, 
+			int optimiser, long maxTime) throws IOException {
+		if (files.isEmpty()) {
+			optimise(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), 
+					"stdin", layouts, optimiser, maxTime);
+			return;
+		}
+
+		for (String file : files) {
+			BufferedReader reader;
+			try {
+				reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8);
+			} catch (IOException e) {
+				System.err.println(file + ": unable to read file " + e.getMessage());
+				continue;
+			}
+
+			try (reader) {
+				optimise(reader, file, layouts, optimiser, maxTime);
+			}
+		}
+	}
+
+	private static void usage() {
+		System.err.println("Usage: BatchMain [-f csv|json] [-t threads] [-o output] file...");
+		System.err.println("       BatchMain -O anneal|tempering|genetic [-s seconds] [-o output] file...");
+		System.err.println("Reads layouts from standard input if no files are given.");
+		System.exit(2);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int format = ResultWriter.CSV;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int optimiser = -1;
+		int seconds = OPTIMISE_TIME;
+		String output = null;
+		List<String> files = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; ++i) {
+			final String arg = args[i];
+			if (arg.equals("-f") && i+1 < args.length) {
+				final String value = args[++i];
+				if (value.equals("csv"))
+					format = ResultWriter.CSV;
+				else if (value.equals("json"))
+					format = ResultWriter.JSON;
+				else
+					usage();
+			} else if (arg.equals("-t") && i+1 < args.length) {
+				try {
+					threads = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					usage();
+				}
+				if (threads < 1)
+					usage();
+			} else if (arg.equals("-O") && i+1 < args.length) {
+				optimiser = Arrays.asList(OPTIMISERS).indexOf(args[++i]);
+				if (optimiser < 0)
+					usage();
+			} else if (arg.equals("-s") && i+1 < args.length) {
+				try {
+					seconds = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					usage();
+				}
+				if (seconds < 1)
+					usage();
+			} else if (arg.equals("-o") && i+1 < args.length) {
+				output = args[++i];
+			} else if (arg.startsWith("-")) {
+				usage();
+			} else {
+				files.add(arg);
+			}
+		}
+
+		final Writer out = (output == null)
+				? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+				: Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8);
+
+		if (optimiser >= 0) {
+			try (out) {
+				optimise(files, new LayoutWriter(out), optimiser, seconds * 1000L);
+			}
+
+			return;
+		}
+
+		try (out) {
+			ResultWriter results = new ResultWriter(out, format);
+			results.writeHeader();
+
+			BatchMain batch = new BatchMain(results);
+			if (files.isEmpty()) {
+				batch.score(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), "stdin");
+				results.flush();
+			} else {
+				batch.score(files, Math.min(threads, files.size()));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,233 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * LayoutReader is a class that is responsible for reading layouts from a 
+ * plain text description without any JavaFX support. Each non-empty line is 
+ * a row of whitespace separated element symbols, with "." for a blank 
+ * position. Rows may be different lengths, short rows are padded with 
+ * blanks. Layouts are separated by empty lines, so a single file can hold 
+ * many layouts. Lines starting with "#" are comments and a line starting 
+ * with ">" names the layout that follows it, for example:
+ * 
+ *   > standard
+ *   H  .  .  .  .  .  .  .  .  .  .  .  .  .  .  .  .  He
+ *   Li Be .  .  .  .  .  .  .  .  .  .  B  C  N  O  F  Ne
+ * 
+ * Unnamed layouts are named after the source and their position within it. 
+ * Each element may only appear once in a layout.
+ * 
+ * A layout that can't be parsed is skipped up to the next empty line before 
+ * the error is reported, so that canResume() returns true and the layouts 
+ * that follow it can still be read.
+ */
+package phillockett65.PTable.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import phillockett65.PTable.elements.Elements;
+import phillockett65.PTable.table.Layout;
+
+public class LayoutReader {
+
+	public final static char COMMENT = '#';
+	public final static char NAME = '>';
+
+	private final BufferedReader reader;
+	private final String source;
+	private int lineNumber = 0;
+	private int count = 0;
+	private String name;
+	private boolean resumable = false;
+
+	private final ArrayList<short[]> rows = new ArrayList<short[]>();
+	private short[] row = new short[32];
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader	to read the layouts from.
+	 * @param source	name used for unnamed layouts and in error messages.
+	 */
+	public LayoutReader(BufferedReader reader, String source) {
+		this.reader = reader;
+		this.source = source;
+	}
+
+	/**
+	 * Get the name of the layout most recently returned by next().
+	 * 
+	 * @return the name of the layout.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Indicate whether next() can be called again after it has thrown an 
+	 * exception, which is the case when the layout was invalid, rather than 
+	 * the input unreadable, and it has been skipped.
+	 * 
+	 * @return true if the layouts that follow the invalid one can be read.
+	 */
+	public boolean canResume() {
+		return resumable;
+	}
+
+	/**
+	 * Read the next layout.
+	 * 
+	 * @return the next layout, or null if there are no more layouts.
+	 * @throws IOException if the layout can't be read or contains an unknown 
+	 * element symbol.
+	 */
+	public Layout next() throws IOException {
+		rows.clear();
+		name = null;
+		resumable = false;
+
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+
+			if (line.isEmpty()) {
+				if (rows.isEmpty())
+					continue;
+
+				break;
+			}
+
+			final char first = line.charAt(0);
+			if (first == COMMENT)
+				continue;
+
+			if (first == NAME) {
+				if (!rows.isEmpty())
+					throw layoutError("layout name must precede the rows", false);
+
+				name = line.substring(1).trim();
+				continue;
+			}
+
+			rows.add(parseRow(line));
+		}
+
+		if (rows.isEmpty())
+			return null;
+
+		count++;
+		if (name == null || name.isEmpty())
+			name = source + "#" + count;
+
+		int cols = 0;
+		for (short[] keys : rows)
+			if (cols < keys.length)
+				cols = keys.length;
+
+		Layout layout = new Layout(rows.size(), cols);
+		for (int r = 0; r < rows.size(); ++r) {
+			final short[] keys = rows.get(r);
+			for (int c = 0; c < keys.length; ++c)
+				layout.setKey(r, c, keys[c]);
+		}
+
+		final int invalid = layout.findInvalidKey();
+		if (invalid >= 0)
+			throw layoutError("element \"" + Elements.element(layout.getKey(invalid)).getSymbol() + 
+					"\" appears more than once in " + name, true);
+
+		return layout;
+	}
+
+	/**
+	 * Split a line into symbols and convert them to element keys.
+	 * 
+	 * @param line	to parse.
+	 * @return the element keys of the row.
+	 * @throws IOException if an element symbol is not recognized.
+	 */
+	private short[] parseRow(String line) throws IOException {
+		final int length = line.length();
+		int cols = 0;
+		int i = 0;
+		while (i < length) {
+			if (Character.isWhitespace(line.charAt(i))) {
+				i++;
+				continue;
+			}
+
+			final int start = i;
+			while (i < length && !Character.isWhitespace(line.charAt(i)))
+				i++;
+
+			final String symbol = line.substring(start, i);
+			int key = Elements.UNDEFINED_KEY;
+			if (!symbol.equals(Elements.BLANK_SYMBOL)) {
+				key = Elements.findKey(symbol);
+				if (key == Elements.UNDEFINED_KEY)
+					throw layoutError("unknown element symbol \"" + symbol + "\"", false);
+			}
+
+			if (cols == row.length)
+				row = Arrays.copyOf(row, cols * 2);
+			row[cols++] = (short)key;
+		}
+
+		return Arrays.copyOf(row, cols);
+	}
+
+	/**
+	 * Create an exception for an invalid layout, skipping the rest of the 
+	 * layout if it hasn't been read yet, so that the next layout can be 
+	 * read.
+	 * 
+	 * @param message	describing the error.
+	 * @param ended		true if the whole layout has been read.
+	 * @return the exception.
+	 * @throws IOException if the input can't be read.
+	 */
+	private IOException layoutError(String message, boolean ended) throws IOException {
+		final IOException e = error(message);
+		if (!ended) {
+			count++;
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.trim().isEmpty())
+					break;
+			}
+		}
+
+		resumable = true;
+
+		return e;
+	}
+
+	private IOException error(String message) {
+		return new IOException(source + ":" + lineNumber + ": " + message);
+	}
+
+}
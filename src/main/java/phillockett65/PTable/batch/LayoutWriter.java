@@ -0,0 +1,92 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LayoutWriter is a class that is responsible for writing layouts in the 
+ * plain text description read by LayoutReader, so that the layouts found by 
+ * the optimisers can be scored, or optimised again, by BatchMain. Each 
+ * layout is preceded by its name and optionally a comment, and followed by 
+ * an empty line.
+ */
+package phillockett65.PTable.batch;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import phillockett65.PTable.elements.Elements;
+import phillockett65.PTable.table.Layout;
+
+public class LayoutWriter {
+
+	private final Writer out;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param out	destination of the layouts.
+	 */
+	public LayoutWriter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Write a layout. Symbols are left aligned in columns three characters 
+	 * wide, with "." for a blank position.
+	 * 
+	 * @param name		of the layout.
+	 * @param comment	written before the layout, may be null.
+	 * @param layout	to write.
+	 * @throws IOException if the layout can't be written.
+	 */
+	public synchronized void write(String name, String comment, Layout layout) throws IOException {
+		StringBuilder text = new StringBuilder();
+		if (comment != null)
+			text.append(LayoutReader.COMMENT).append(' ').append(comment).append('\n');
+		text.append(LayoutReader.NAME).append(' ').append(name).append('\n');
+
+		final int rows = layout.getRows();
+		final int cols = layout.getCols();
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < cols; ++c) {
+				final int key = layout.getKey(r, c);
+				final String symbol = (key == Elements.UNDEFINED_KEY) 
+						? Elements.BLANK_SYMBOL : Elements.element(key).getSymbol();
+				text.append(symbol);
+				if (c < cols - 1)
+					for (int i = symbol.length(); i < 3; ++i)
+						text.append(' ');
+			}
+			text.append('\n');
+		}
+		text.append('\n');
+
+		out.append(text);
+	}
+
+	/**
+	 * Flush any buffered layouts.
+	 * 
+	 * @throws IOException if the layouts can't be written.
+	 */
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+}
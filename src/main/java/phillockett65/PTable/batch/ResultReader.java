@@ -0,0 +1,209 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * ResultReader is a class that is responsible for importing the results 
+ * written by ResultWriter, one at a time, using the streaming JsonParser or 
+ * CsvParser. Only the current result is held in memory, so result files far 
+ * larger than memory can be imported. Errors reported by ResultWriter are 
+ * returned as results with an error message and no quantities.
+ */
+package phillockett65.PTable.batch;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import phillockett65.PTable.io.CsvParser;
+import phillockett65.PTable.io.JsonParser;
+import phillockett65.PTable.io.TextFormat;
+import phillockett65.PTable.table.Quantities;
+
+public class ResultReader {
+
+	// Column order written by ResultWriter.
+	private final static int NAME = 0;
+	private final static int ROWS = 1;
+	private final static int COLS = 2;
+	private final static int ELEMENTS = 3;
+	private final static int NEIGHBOURS = 4;
+	private final static int SHELL = 5;
+	private final static int SUBSHELL = 6;
+	private final static int CONFIG = 7;
+
+	private final int format;
+	private final JsonParser json;
+	private final CsvParser csv;
+	private boolean header = true;
+
+	private String name;
+	private String error;
+	private int rows;
+	private int cols;
+	private int elements;
+	private int neighbours;
+	private float shell;
+	private float subshell;
+	private float config;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader	to read the results from, which need not be buffered.
+	 * @param format	of the results, ResultWriter.CSV or ResultWriter.JSON.
+	 * @param source	name used in error messages.
+	 */
+	public ResultReader(Reader reader, int format, String source) {
+		this.format = format;
+		if (format == TextFormat.CSV) {
+			json = null;
+			csv = new CsvParser(reader, source);
+		} else {
+			json = new JsonParser(reader, source);
+			csv = null;
+		}
+	}
+
+	/**
+	 * Read the next result.
+	 * 
+	 * @return true if a result was read, false at the end of the input.
+	 * @throws IOException if the result can't be read or is not valid.
+	 */
+	public boolean next() throws IOException {
+		name = null;
+		error = null;
+		rows = 0;
+		cols = 0;
+		elements = 0;
+		neighbours = 0;
+		shell = 0;
+		subshell = 0;
+		config = 0;
+
+		if (format == TextFormat.CSV)
+			return nextCsv();
+
+		return nextJson();
+	}
+
+	private boolean nextCsv() throws IOException {
+		if (header) {
+			header = false;
+			if (!csv.next())
+				return false;
+		}
+
+		if (!csv.next())
+			return false;
+
+		name = csv.getField(NAME);
+		if (csv.getField(ROWS).equals("error")) {
+			error = csv.getField(COLS);
+
+			return true;
+		}
+
+		rows = csv.getInt(ROWS);
+		cols = csv.getInt(COLS);
+		elements = csv.getInt(ELEMENTS);
+		neighbours = csv.getInt(NEIGHBOURS);
+		shell = csv.getFloat(SHELL);
+		subshell = csv.getFloat(SUBSHELL);
+		config = csv.getFloat(CONFIG);
+
+		return true;
+	}
+
+	private boolean nextJson() throws IOException {
+		final int token = json.next();
+		if (token == JsonParser.END_DOCUMENT)
+			return false;
+
+		if (token != JsonParser.BEGIN_OBJECT)
+			throw json.error("expected a result object");
+
+		while (json.next() != JsonParser.END_OBJECT) {
+			if (json.getToken() != JsonParser.NAME)
+				throw json.error("expected a field name");
+
+			switch (json.getString()) {
+			case "name":		json.next(); name = json.getStringValue(); break;
+			case "error":		json.next(); error = json.getStringValue(); break;
+			case "rows":		json.next(); rows = json.getInt(); break;
+			case "cols":		json.next(); cols = json.getInt(); break;
+			case "elements":	json.next(); elements = json.getInt(); break;
+			case "neighbours":	json.next(); neighbours = json.getInt(); break;
+			case "shell":		json.next(); shell = (float)json.getDouble(); break;
+			case "subshell":	json.next(); subshell = (float)json.getDouble(); break;
+			case "config":		json.next(); config = (float)json.getDouble(); break;
+			default:			json.skipValue();
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Get the name of the layout of the current result.
+	 * 
+	 * @return the name of the layout.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the error reported for the current result.
+	 * 
+	 * @return the error message, or null if the layout was scored.
+	 */
+	public String getError() {
+		return error;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getCols() {
+		return cols;
+	}
+
+	/**
+	 * Get the quantities of the current result.
+	 * 
+	 * @return the quantities, or null if an error was reported.
+	 */
+	public Quantities getQuantities() {
+		if (error != null)
+			return null;
+
+		Quantities quantities = new Quantities();
+		quantities.setElementCount(elements);
+		quantities.setNeighbourCount(neighbours);
+		quantities.setElectronShellSimilarity(shell);
+		quantities.setElectronSubshellSimilarity(subshell);
+		quantities.setElectronConfigSimilarity(config);
+
+		return quantities;
+	}
+
+}
@@ -0,0 +1,136 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * ResultWriter is a class that is responsible for formatting the Quantities 
+ * of each layout as either CSV or JSON Lines (one JSON object per line), so 
+ * results can be streamed as they are produced. Records are formatted into a 
+ * caller supplied StringBuilder so that worker threads can batch their 
+ * output and only synchronize when writing a batch.
+ */
+package phillockett65.PTable.batch;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import phillockett65.PTable.io.TextFormat;
+import phillockett65.PTable.table.Quantities;
+
+public class ResultWriter {
+
+	public final static int CSV = TextFormat.CSV;
+	public final static int JSON = TextFormat.JSON;
+
+	private final Writer out;
+	private final int format;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param out		destination of the results.
+	 * @param format	of the results, CSV or JSON.
+	 */
+	public ResultWriter(Writer out, int format) {
+		this.out = out;
+		this.format = format;
+	}
+
+	/**
+	 * Write the CSV header line, if required by the format.
+	 * 
+	 * @throws IOException if the results can't be written.
+	 */
+	public void writeHeader() throws IOException {
+		if (format != CSV)
+			return;
+
+		write("name,rows,cols,elements,neighbours,shell,subshell,config\n");
+	}
+
+	/**
+	 * Format a single result and append it to the batch.
+	 * 
+	 * @param batch			to append the result to.
+	 * @param name			of the layout.
+	 * @param rows			in the layout.
+	 * @param cols			in the layout.
+	 * @param quantities	of the layout.
+	 */
+	public void format(StringBuilder batch, String name, int rows, int cols, Quantities quantities) {
+		if (format == CSV) {
+			batch.append(TextFormat.quoteCsv(name)).append(',')
+				.append(rows).append(',')
+				.append(cols).append(',')
+				.append(quantities.getElementCount()).append(',')
+				.append(quantities.getNeighbourCount()).append(',')
+				.append(quantities.getElectronShellSimilarity()).append(',')
+				.append(quantities.getElectronSubshellSimilarity()).append(',')
+				.append(quantities.getElectronConfigSimilarity()).append('\n');
+		} else {
+			batch.append("{\"name\":").append(TextFormat.quoteJson(name))
+				.append(",\"rows\":").append(rows)
+				.append(",\"cols\":").append(cols)
+				.append(",\"elements\":").append(quantities.getElementCount())
+				.append(",\"neighbours\":").append(quantities.getNeighbourCount())
+				.append(",\"shell\":").append(quantities.getElectronShellSimilarity())
+				.append(",\"subshell\":").append(quantities.getElectronSubshellSimilarity())
+				.append(",\"config\":").append(quantities.getElectronConfigSimilarity())
+				.append("}\n");
+		}
+	}
+
+	/**
+	 * Format an error for a layout source and append it to the batch. CSV 
+	 * errors are reported as a row with only the name and the message.
+	 * 
+	 * @param batch		to append the error to.
+	 * @param name		of the layout source.
+	 * @param message	describing the error.
+	 */
+	public void formatError(StringBuilder batch, String name, String message) {
+		if (format == CSV)
+			batch.append(TextFormat.quoteCsv(name)).append(",error,").append(TextFormat.quoteCsv(message)).append('\n');
+		else
+			batch.append("{\"name\":").append(TextFormat.quoteJson(name))
+				.append(",\"error\":").append(TextFormat.quoteJson(message))
+				.append("}\n");
+	}
+
+	/**
+	 * Write a batch of formatted results.
+	 * 
+	 * @param batch	of formatted results.
+	 * @throws IOException if the results can't be written.
+	 */
+	public synchronized void write(CharSequence batch) throws IOException {
+		out.append(batch);
+	}
+
+	/**
+	 * Flush any buffered results.
+	 * 
+	 * @throws IOException if the results can't be written.
+	 */
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+}
@@ -0,0 +1,253 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ElementColumns is a class that holds the scalar attributes of every 
+ * chemical element as a set of primitive arrays, one per attribute, indexed 
+ * by key. This is the same data as ElementConfigurations, but a sweep over 
+ * a single attribute (e.g. finding the highest boiling point) reads one 
+ * contiguous array rather than following a reference to each ElementConfig.
+ * 
+ * The arrays are built from ElementConfigurations when first requested with 
+ * Elements.getColumns() and are shared, so they must not be modified. Keys 
+ * that don't have an element have zero in every column.
+ * 
+ * Columns:
+ * 
+ * Z, Group, Group32, Period and Subcategory as int[].
+ * AtomicWeight, Density, Melt, Boil, C, X and Abundance as float[].
+ */
+package phillockett65.PTable.elements;
+
+import java.util.Arrays;
+
+public class ElementColumns {
+
+	private final int[] keys;
+	private final int[] Z;
+	private final int[] group;
+	private final int[] group32;
+	private final int[] period;
+	private final int[] subcategory;
+	private final float[] atomicWeight;
+	private final float[] density;
+	private final float[] melt;
+	private final float[] boil;
+	private final float[] C;
+	private final float[] X;
+	private final float[] abundance;
+
+	/**
+	 * Constructor. Copies the attributes of every element in to the columns.
+	 */
+	ElementColumns() {
+		final int count = Elements.lastKey() + 1;
+
+		int total = 0;
+		for (int i = Elements.firstKey(); i <= Elements.lastKey(); i = Elements.nextKey(i))
+			if (Elements.isKeyValid(i))
+				total++;
+
+		keys = new int[total];
+		Z = new int[count];
+		group = new int[count];
+		group32 = new int[count];
+		period = new int[count];
+		subcategory = new int[count];
+		atomicWeight = new float[count];
+		density = new float[count];
+		melt = new float[count];
+		boil = new float[count];
+		C = new float[count];
+		X = new float[count];
+		abundance = new float[count];
+
+		int k = 0;
+		for (int i = Elements.firstKey(); i <= Elements.lastKey(); i = Elements.nextKey(i)) {
+			if (!Elements.isKeyValid(i))
+				continue;
+
+			final ElementConfig e = Elements.element(i);
+			keys[k++] = i;
+			Z[i] = e.getZ();
+			group[i] = e.getGroup();
+			group32[i] = e.getGroup32();
+			period[i] = e.getPeriod();
+			subcategory[i] = e.getSubcategory();
+			atomicWeight[i] = e.getAtomicWeight();
+			density[i] = e.getDensity();
+			melt[i] = e.getMelt();
+			boil[i] = e.getBoil();
+			C[i] = e.getC();
+			X[i] = e.getX();
+			abundance[i] = e.getAbundance();
+		}
+	}
+
+	/**
+	 * Get the keys of all the elements in ascending order.
+	 * 
+	 * @return the keys of the elements.
+	 */
+	public int[] getKeys() {
+		return keys;
+	}
+
+	public int[] getZ() {
+		return Z;
+	}
+
+	public int[] getGroup() {
+		return group;
+	}
+
+	public int[] getGroup32() {
+		return group32;
+	}
+
+	public int[] getPeriod() {
+		return period;
+	}
+
+	public int[] getSubcategory() {
+		return subcategory;
+	}
+
+	public float[] getAtomicWeight() {
+		return atomicWeight;
+	}
+
+	public float[] getDensity() {
+		return density;
+	}
+
+	public float[] getMelt() {
+		return melt;
+	}
+
+	public float[] getBoil() {
+		return boil;
+	}
+
+	public float[] getC() {
+		return C;
+	}
+
+	public float[] getX() {
+		return X;
+	}
+
+	public float[] getAbundance() {
+		return abundance;
+	}
+
+
+/************************************************************************
+ * Bulk query support section.
+ */
+
+	/**
+	 * Find the highest value in the given column.
+	 * 
+	 * @param column	one of the float columns.
+	 * @return the highest value, or zero if there are no elements.
+	 */
+	public float findMax(float[] column) {
+		float max = 0F;
+		for (final int key : keys)
+			max = Math.max(max, column[key]);
+
+		return max;
+	}
+
+	/**
+	 * Get the keys of all the elements ordered by their value in the given 
+	 * column, lowest first. Elements with the same value stay in key order.
+	 * 
+	 * @param column	one of the float columns.
+	 * @return the sorted keys.
+	 */
+	public int[] sortKeys(float[] column) {
+		// Pack each value with its position so a primitive sort can be used.
+		long[] packed = new long[keys.length];
+		for (int i = 0; i < keys.length; ++i)
+			packed[i] = ((long)sortableBits(column[keys[i]]) << 32) | i;
+		Arrays.sort(packed);
+
+		int[] sorted = new int[keys.length];
+		for (int i = 0; i < keys.length; ++i)
+			sorted[i] = keys[(int)packed[i]];
+
+		return sorted;
+	}
+
+	/**
+	 * Get the keys of all the elements whose value in the given column is 
+	 * within the given range.
+	 * 
+	 * @param column	one of the float columns.
+	 * @param min		lowest value to include.
+	 * @param max		highest value to include.
+	 * @return the keys of the matching elements in ascending order.
+	 */
+	public int[] filterKeys(float[] column, float min, float max) {
+		int[] matches = new int[keys.length];
+		int count = 0;
+		for (final int key : keys) {
+			final float value = column[key];
+			if ((value >= min) && (value <= max))
+				matches[count++] = key;
+		}
+
+		return Arrays.copyOf(matches, count);
+	}
+
+	/**
+	 * Get the keys of all the elements with the given value in the given 
+	 * column, e.g. all the elements of a subcategory.
+	 * 
+	 * @param column	one of the int columns.
+	 * @param value		to match.
+	 * @return the keys of the matching elements in ascending order.
+	 */
+	public int[] filterKeys(int[] column, int value) {
+		int[] matches = new int[keys.length];
+		int count = 0;
+		for (final int key : keys)
+			if (column[key] == value)
+				matches[count++] = key;
+
+		return Arrays.copyOf(matches, count);
+	}
+
+	/**
+	 * Convert a float to an int that sorts in the same order, including 
+	 * negative values.
+	 * 
+	 * @param value to convert.
+	 * @return the sortable bits.
+	 */
+	static int sortableBits(float value) {
+		final int bits = Float.floatToIntBits(value);
+
+		return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+	}
+
+}
@@ -60,9 +60,31 @@
  * Configuration generated using Madelung's rule, Observed Electron 
  * Configuration, Electron count within each subshell and Electron count 
  * within each shell for each element.
+ * 
+ * Similarities
+ * Tables containing the similarity of every pair of elements for each of 
+ * the electron shell, subshell and configuration counts, indexed by 
+ * (key * element count + key). These are derived from ElementConfigurations 
+ * when first requested and then cached.
+ * 
+ * Columns
+ * The scalar attributes of every element held as a set of primitive arrays 
+ * indexed by key (see ElementColumns). These are also derived from 
+ * ElementConfigurations when first requested and then cached.
+ * 
+ * Thresholds
+ * The melting and boiling points of every element sorted by temperature 
+ * (see ThresholdIndex), derived from Columns when first requested.
+ * 
+ * SymbolKeys
+ * A look-up of element symbols to element keys, used when reading layouts 
+ * written as text, derived from ElementConfigurations when first requested.
  */
 package phillockett65.PTable.elements;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class Elements {
 
 	private static final String[] Subcategories = {
@@ -1934,4 +1956,223 @@ public class Elements {
 	}
 
 
+
+	// The symbol used for a blank position when layouts are written as text.
+	public static final String BLANK_SYMBOL = ".";
+
+	private static volatile Map<String, Integer> SymbolKeys;
+
+	/**
+	 * Build the look-up of element symbols to element keys.
+	 * 
+	 * @return the map of symbols to keys.
+	 */
+	private static Map<String, Integer> buildSymbolKeys() {
+		Map<String, Integer> map = new HashMap<String, Integer>();
+		for (int i = firstKey(); i <= lastKey(); i = nextKey(i))
+			map.put(element(i).getSymbol(), i);
+
+		return map;
+	}
+
+	/**
+	 * Get the key of the element with the given symbol, building the look-up 
+	 * if necessary.
+	 * 
+	 * @param symbol	of the required element.
+	 * @return the element key, or UNDEFINED_KEY if the symbol is not 
+	 * recognized.
+	 */
+	public static int findKey(String symbol) {
+		Map<String, Integer> map = SymbolKeys;
+		if (map == null) {
+			synchronized (Elements.class) {
+				map = SymbolKeys;
+				if (map == null) {
+					map = buildSymbolKeys();
+					SymbolKeys = map;
+				}
+			}
+		}
+
+		final Integer key = map.get(symbol);
+		if (key == null)
+			return UNDEFINED_KEY;
+
+		return key;
+	}
+
+
+	private static volatile ElementColumns Columns;
+
+	/**
+	 * Get the scalar attributes of every element as a set of primitive 
+	 * arrays indexed by key, building them if necessary.
+	 * 
+	 * @return the shared ElementColumns.
+	 */
+	public static ElementColumns getColumns() {
+		ElementColumns columns = Columns;
+		if (columns == null) {
+			synchronized (Elements.class) {
+				columns = Columns;
+				if (columns == null) {
+					columns = new ElementColumns();
+					Columns = columns;
+				}
+			}
+		}
+
+		return columns;
+	}
+
+
+	private static volatile ThresholdIndex Thresholds;
+
+	/**
+	 * Get the melting and boiling points of every element sorted by 
+	 * temperature, building the index if necessary.
+	 * 
+	 * @return the shared ThresholdIndex.
+	 */
+	public static ThresholdIndex getThresholdIndex() {
+		ThresholdIndex index = Thresholds;
+		if (index == null) {
+			synchronized (Elements.class) {
+				index = Thresholds;
+				if (index == null) {
+					index = new ThresholdIndex(getColumns());
+					Thresholds = index;
+				}
+			}
+		}
+
+		return index;
+	}
+
+	public static final int SHELL_SIMILARITY = 0;
+	public static final int SUBSHELL_SIMILARITY = 1;
+	public static final int CONFIG_SIMILARITY = 2;
+	public static final int MAX_SIMILARITY = 3;
+
+	private static volatile float[][] Similarities;
+
+	/**
+	 * Calculate the similarity of two lists of numbers. The lists may be of 
+	 * different lengths, in which case the missing values are treated as 
+	 * zero. The result is normalized by the length of the longer list.
+	 * 
+	 * @param a first list.
+	 * @param b second list.
+	 * @return the similarity of the two lists.
+	 */
+	public static float calcSimilarity(int[] a, int[] b) {
+		final int aLen = a.length;
+		final int bLen = b.length;
+		float current = 0;
+		int diff = 0;
+		if (aLen < bLen) {
+			for (int s = 0; s < aLen; ++s) {
+				diff = a[s] - b[s];
+				if (diff < 0)
+					diff *= -1;
+				current += diff;
+			}
+			for (int s = aLen; s < bLen; ++s)
+				current += b[s];
+
+			current /= 2 * bLen;
+		} else {
+			for (int s = 0; s < bLen; ++s) {
+				diff = a[s] - b[s];
+				if (diff < 0)
+					diff *= -1;
+				current += diff;
+			}
+			for (int s = bLen; s < aLen; ++s)
+				current += a[s];
+
+			current /= 2 * aLen;
+		}
+
+		return current;
+	}
+
+	/**
+	 * Get the list of electron counts of the given element that the given 
+	 * similarity metric compares.
+	 * 
+	 * @param metric	one of SHELL_SIMILARITY, SUBSHELL_SIMILARITY or 
+	 * 					CONFIG_SIMILARITY.
+	 * @param e			the element.
+	 * @return the list of electron counts.
+	 */
+	private static int[] getCounts(int metric, ElementConfig e) {
+		switch (metric) {
+		case SHELL_SIMILARITY:		return e.getElectronShellCounts();
+		case SUBSHELL_SIMILARITY:	return e.getElectronSubshellCounts();
+		case CONFIG_SIMILARITY:		return e.getElectronConfigurationCounts();
+		default:					return null;
+		}
+	}
+
+	/**
+	 * Build the Similarities table for the given metric from the lists of 
+	 * electron counts that it compares.
+	 * 
+	 * @param metric	one of SHELL_SIMILARITY, SUBSHELL_SIMILARITY or 
+	 * 					CONFIG_SIMILARITY.
+	 * @return the Similarities table for the metric.
+	 */
+	private static float[] buildSimilarities(int metric) {
+		final int count = lastKey() + 1;
+		float[] table = new float[count * count];
+
+		for (int a = firstKey(); a <= lastKey(); a = nextKey(a)) {
+			final int[] counts = getCounts(metric, element(a));
+			for (int b = firstKey(); b <= lastKey(); b = nextKey(b))
+				table[a * count + b] = calcSimilarity(counts, getCounts(metric, element(b)));
+		}
+
+		return table;
+	}
+
+	/**
+	 * Build the Similarities tables for every pair of elements.
+	 * 
+	 * @return the Similarities tables, indexed by metric.
+	 */
+	private static float[][] buildSimilarities() {
+		float[][] tables = new float[MAX_SIMILARITY][];
+		for (int m = 0; m < MAX_SIMILARITY; ++m)
+			tables[m] = buildSimilarities(m);
+
+		return tables;
+	}
+
+	/**
+	 * Get the Similarities table for the given metric, building the tables 
+	 * if necessary. The table is indexed by (key * count + key), where count 
+	 * is lastKey() + 1. The returned array is shared and must not be 
+	 * modified.
+	 * 
+	 * @param metric one of SHELL_SIMILARITY, SUBSHELL_SIMILARITY or 
+	 * 				 CONFIG_SIMILARITY.
+	 * @return the Similarities table for the metric.
+	 */
+	public static float[] getSimilarities(int metric) {
+		float[][] tables = Similarities;
+		if (tables == null) {
+			synchronized (Elements.class) {
+				tables = Similarities;
+				if (tables == null) {
+					tables = buildSimilarities();
+					Similarities = tables;
+				}
+			}
+		}
+
+		return tables[metric];
+	}
+
 }
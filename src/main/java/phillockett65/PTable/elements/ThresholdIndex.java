@@ -0,0 +1,178 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ThresholdIndex is a class that holds the melting and boiling points of 
+ * every chemical element sorted by temperature. The state of an element only 
+ * changes when the temperature crosses one of its thresholds, so the elements 
+ * whose state differs between two temperatures can be found with a binary 
+ * search and a scan of just the thresholds in between, rather than checking 
+ * every element.
+ * 
+ * The state is SOLID below the melting point, LIQUID below the boiling point 
+ * and GAS otherwise (see Model.findState()), so a threshold is crossed when 
+ * it is above the lower temperature and no higher than the upper one. 
+ * Crossing a threshold doesn't always change the state, e.g. the boiling 
+ * point of an element that sublimates is below its melting point, so each 
+ * element found is checked. Elements without a melting or boiling point 
+ * have no thresholds.
+ */
+package phillockett65.PTable.elements;
+
+import java.util.Arrays;
+
+public class ThresholdIndex {
+
+	private final float[] thresholds;
+	private final int[] keys;
+	private final boolean[] boiling;
+	private final float[] melt;
+	private final float[] boil;
+
+	/**
+	 * Constructor. Builds the index from the melt and boil columns.
+	 * 
+	 * @param columns of element attributes.
+	 */
+	ThresholdIndex(ElementColumns columns) {
+		melt = columns.getMelt();
+		boil = columns.getBoil();
+
+		int count = 0;
+		for (final int key : columns.getKeys())
+			if ((melt[key] != 0) || (boil[key] != 0))
+				count += 2;
+
+		// Pack each threshold with its key and type so a primitive sort can 
+		// be used.
+		long[] packed = new long[count];
+		int i = 0;
+		for (final int key : columns.getKeys()) {
+			if ((melt[key] == 0) && (boil[key] == 0))
+				continue;
+
+			packed[i++] = ((long)ElementColumns.sortableBits(melt[key]) << 32) | (key << 1);
+			packed[i++] = ((long)ElementColumns.sortableBits(boil[key]) << 32) | (key << 1) | 1;
+		}
+		Arrays.sort(packed);
+
+		thresholds = new float[count];
+		keys = new int[count];
+		boiling = new boolean[count];
+		for (i = 0; i < count; ++i) {
+			final int entry = (int)packed[i];
+			keys[i] = entry >>> 1;
+			boiling[i] = (entry & 1) != 0;
+			thresholds[i] = boiling[i] ? boil[keys[i]] : melt[keys[i]];
+		}
+	}
+
+	/**
+	 * Get the number of thresholds in the index.
+	 * 
+	 * @return the number of thresholds.
+	 */
+	public int getCount() {
+		return thresholds.length;
+	}
+
+	/**
+	 * Find the position of the first threshold above the given temperature.
+	 * 
+	 * @param temp	temperature to search for.
+	 * @return the position of the first threshold above temp.
+	 */
+	private int findAbove(float temp) {
+		int low = 0;
+		int high = thresholds.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (thresholds[mid] <= temp)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		return low;
+	}
+
+	/**
+	 * Check if the given temperature range crosses the given threshold.
+	 * 
+	 * @param threshold	temperature.
+	 * @param low		lower temperature of the range.
+	 * @param high		upper temperature of the range.
+	 * @return true if the threshold is crossed.
+	 */
+	private static boolean isCrossed(float threshold, float low, float high) {
+		return (threshold > low) && (threshold <= high);
+	}
+
+	/**
+	 * Get the phase of the given element at the given temperature, in the 
+	 * same way as Model.findState().
+	 * 
+	 * @param key	of the element.
+	 * @param temp	temperature.
+	 * @return 0 below the melting point, 1 below the boiling point, else 2.
+	 */
+	private int findPhase(int key, float temp) {
+		if (temp < melt[key])
+			return 0;
+
+		if (temp < boil[key])
+			return 1;
+
+		return 2;
+	}
+
+	/**
+	 * Find the elements whose state is different at the two given 
+	 * temperatures. Each element is reported once, even if both its melting 
+	 * and boiling points are crossed.
+	 * 
+	 * @param from		original temperature.
+	 * @param to		new temperature.
+	 * @param changed	array to receive the keys of the elements, which must 
+	 * 					have room for getCount() / 2 keys.
+	 * @return the number of keys placed in changed.
+	 */
+	public int findChanges(float from, float to, int[] changed) {
+		final float low = Math.min(from, to);
+		final float high = Math.max(from, to);
+		int count = 0;
+
+		for (int i = findAbove(low); (i < thresholds.length) && (thresholds[i] <= high); ++i) {
+			final int key = keys[i];
+
+			// Report an element at its melting point if both are crossed.
+			if (boiling[i] && isCrossed(melt[key], low, high))
+				continue;
+
+			if (findPhase(key, low) == findPhase(key, high))
+				continue;
+
+			changed[count++] = key;
+		}
+
+		return count;
+	}
+
+}
@@ -0,0 +1,225 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CsvParser is a streaming parser for CSV as described by RFC 4180. Each 
+ * call to next() reads one record, so only the current record is held in 
+ * memory and files far larger than memory can be processed. Quoted fields 
+ * may contain commas, doubled quotes and line breaks. Empty lines are 
+ * skipped.
+ */
+package phillockett65.PTable.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+
+public class CsvParser {
+
+	private final static int BUFFER_SIZE = 64 * 1024;
+
+	private final Reader reader;
+	private final String source;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position = 0;
+	private int limit = 0;
+	private int lineNumber = 0;
+	private int recordLine = 0;
+
+	private final ArrayList<String> fields = new ArrayList<String>();
+	private final StringBuilder field = new StringBuilder();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader	to read the CSV from, which need not be buffered.
+	 * @param source	name used in error messages.
+	 */
+	public CsvParser(Reader reader, String source) {
+		this.reader = reader;
+		this.source = source;
+	}
+
+	private int read() throws IOException {
+		if (position == limit) {
+			final int count = reader.read(buffer, 0, buffer.length);
+			if (count <= 0)
+				return -1;
+
+			position = 0;
+			limit = count;
+		}
+
+		return buffer[position++];
+	}
+
+	/**
+	 * Read the next record.
+	 * 
+	 * @return true if a record was read, false at the end of the input.
+	 * @throws IOException if the input can't be read or a quoted field is 
+	 * not terminated.
+	 */
+	public boolean next() throws IOException {
+		fields.clear();
+		field.setLength(0);
+		recordLine = lineNumber + 1;
+
+		boolean quoted = false;
+		boolean started = false;
+		while (true) {
+			final int c = read();
+			if (c == -1) {
+				if (quoted)
+					throw error("unterminated quoted field");
+
+				if (!started)
+					return false;
+
+				fields.add(field.toString());
+
+				return true;
+			}
+
+			if (quoted) {
+				if (c != '"') {
+					if (c == '\n')
+						lineNumber++;
+					field.append((char)c);
+					continue;
+				}
+
+				// A doubled quote is a quote, otherwise the quoted part ends.
+				final int following = read();
+				if (following == '"') {
+					field.append('"');
+					continue;
+				}
+
+				quoted = false;
+				if (following == -1) {
+					fields.add(field.toString());
+
+					return true;
+				}
+
+				// Handle the character after the closing quote below.
+				position--;
+				continue;
+			}
+
+			switch (c) {
+			case '"':
+				quoted = true;
+				started = true;
+				break;
+
+			case ',':
+				fields.add(field.toString());
+				field.setLength(0);
+				started = true;
+				break;
+
+			case '\r':
+				break;
+
+			case '\n':
+				lineNumber++;
+				if (!started) {
+					recordLine = lineNumber + 1;
+					break;
+				}
+
+				fields.add(field.toString());
+
+				return true;
+
+			default:
+				field.append((char)c);
+				started = true;
+			}
+		}
+	}
+
+	/**
+	 * Get the number of fields in the current record.
+	 * 
+	 * @return the number of fields.
+	 */
+	public int getFieldCount() {
+		return fields.size();
+	}
+
+	/**
+	 * Get the given field of the current record.
+	 * 
+	 * @param index	of the field.
+	 * @return the field.
+	 * @throws IOException if the record is too short to have the field.
+	 */
+	public String getField(int index) throws IOException {
+		if ((index < 0) || (index >= fields.size()))
+			throw error("missing field " + (index + 1) + ", the record has " + fields.size());
+
+		return fields.get(index);
+	}
+
+	/**
+	 * Get the given field of the current record as an int.
+	 * 
+	 * @param index	of the field.
+	 * @return the value of the field.
+	 * @throws IOException if the field is not an integer.
+	 */
+	public int getInt(int index) throws IOException {
+		try {
+			return Integer.parseInt(getField(index).trim());
+		} catch (NumberFormatException e) {
+			throw error("expected an integer, not \"" + getField(index) + "\"");
+		}
+	}
+
+	/**
+	 * Get the given field of the current record as a float.
+	 * 
+	 * @param index	of the field.
+	 * @return the value of the field.
+	 * @throws IOException if the field is not a number.
+	 */
+	public float getFloat(int index) throws IOException {
+		try {
+			return Float.parseFloat(getField(index).trim());
+		} catch (NumberFormatException e) {
+			throw error("expected a number, not \"" + getField(index) + "\"");
+		}
+	}
+
+	/**
+	 * Create an exception for an error in the current record.
+	 * 
+	 * @param message	describing the error.
+	 * @return the exception.
+	 */
+	public IOException error(String message) {
+		return new IOException(source + ":" + recordLine + ": " + message);
+	}
+
+}
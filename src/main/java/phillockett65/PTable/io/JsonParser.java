@@ -0,0 +1,373 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * JsonParser is a streaming pull parser for JSON. The caller repeatedly 
+ * calls next() to get the next token and reads the value of names, strings 
+ * and numbers as required, so only the current token is held in memory and 
+ * corpora far larger than memory can be processed. Any number of values may 
+ * follow one another, so JSON Lines (one value per line) is also accepted.
+ * 
+ * The parser is deliberately lenient: commas are treated as whitespace and 
+ * a string is taken to be a name if it is followed by a colon. This keeps 
+ * the parser small and fast and well-formed JSON is parsed correctly. 
+ * Objects and arrays must still be balanced: a closing bracket that doesn't 
+ * match the most recent opening bracket, or input that ends inside an 
+ * object or array, is rejected.
+ */
+package phillockett65.PTable.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+public class JsonParser {
+
+	public final static int END_DOCUMENT = 0;
+	public final static int BEGIN_OBJECT = 1;
+	public final static int END_OBJECT = 2;
+	public final static int BEGIN_ARRAY = 3;
+	public final static int END_ARRAY = 4;
+	public final static int NAME = 5;
+	public final static int STRING = 6;
+	public final static int NUMBER = 7;
+	public final static int TRUE = 8;
+	public final static int FALSE = 9;
+	public final static int NULL = 10;
+
+	private final static int BUFFER_SIZE = 64 * 1024;
+
+	private final Reader reader;
+	private final String source;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position = 0;
+	private int limit = 0;
+	private int lineNumber = 1;
+
+	// The opening bracket of each object and array that is still open.
+	private char[] brackets = new char[16];
+	private int depth = 0;
+	private int token = END_DOCUMENT;
+	private final StringBuilder text = new StringBuilder();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader	to read the JSON from, which need not be buffered.
+	 * @param source	name used in error messages.
+	 */
+	public JsonParser(Reader reader, String source) {
+		this.reader = reader;
+		this.source = source;
+	}
+
+	/**
+	 * Refill the buffer.
+	 * 
+	 * @return false at the end of the input.
+	 * @throws IOException if the input can't be read.
+	 */
+	private boolean fill() throws IOException {
+		final int count = reader.read(buffer, 0, buffer.length);
+		if (count <= 0)
+			return false;
+
+		position = 0;
+		limit = count;
+
+		return true;
+	}
+
+	private int peek() throws IOException {
+		if ((position == limit) && !fill())
+			return -1;
+
+		return buffer[position];
+	}
+
+	private int read() throws IOException {
+		if ((position == limit) && !fill())
+			return -1;
+
+		final char c = buffer[position++];
+		if (c == '\n')
+			lineNumber++;
+
+		return c;
+	}
+
+	/**
+	 * Advance to the next token.
+	 * 
+	 * @return the token, END_DOCUMENT at the end of the input.
+	 * @throws IOException if the input can't be read or is not valid JSON.
+	 */
+	public int next() throws IOException {
+		while (true) {
+			final int c = read();
+			switch (c) {
+			case ' ': case '\t': case '\n': case '\r': case ',':
+				continue;
+
+			case '{':	open('{'); return token = BEGIN_OBJECT;
+			case '[':	open('['); return token = BEGIN_ARRAY;
+			case '}':	close('{', '}'); return token = END_OBJECT;
+			case ']':	close('[', ']'); return token = END_ARRAY;
+
+			case '"':
+				readString();
+				return token = isName() ? NAME : STRING;
+
+			case 't':	readLiteral("true"); return token = TRUE;
+			case 'f':	readLiteral("false"); return token = FALSE;
+			case 'n':	readLiteral("null"); return token = NULL;
+
+			case -1:
+				if (depth != 0)
+					throw error("unexpected end of input");
+
+				return token = END_DOCUMENT;
+
+			default:
+				if ((c == '-') || ((c >= '0') && (c <= '9'))) {
+					readNumber((char)c);
+					return token = NUMBER;
+				}
+
+				throw error("unexpected character '" + (char)c + "'");
+			}
+		}
+	}
+
+	/**
+	 * Note the opening bracket of an object or array.
+	 * 
+	 * @param bracket	that opens the object or array.
+	 */
+	private void open(char bracket) {
+		if (depth == brackets.length)
+			brackets = Arrays.copyOf(brackets, depth * 2);
+
+		brackets[depth++] = bracket;
+	}
+
+	/**
+	 * Check that a closing bracket matches the most recent opening bracket 
+	 * that is still open.
+	 * 
+	 * @param expected	opening bracket that the closing bracket matches.
+	 * @param bracket	that closes the object or array.
+	 * @throws IOException if the brackets don't match.
+	 */
+	private void close(char expected, char bracket) throws IOException {
+		if ((depth == 0) || (brackets[depth - 1] != expected))
+			throw error("unexpected '" + bracket + "'");
+
+		depth--;
+	}
+
+	/**
+	 * Check if the string just read is followed by a colon, consuming the 
+	 * colon if it is.
+	 * 
+	 * @return true if the string is a name.
+	 * @throws IOException if the input can't be read.
+	 */
+	private boolean isName() throws IOException {
+		int c = peek();
+		while ((c == ' ') || (c == '\t') || (c == '\n') || (c == '\r')) {
+			read();
+			c = peek();
+		}
+
+		if (c != ':')
+			return false;
+
+		read();
+
+		return true;
+	}
+
+	private void readString() throws IOException {
+		text.setLength(0);
+		while (true) {
+			final int c = read();
+			if (c == '"')
+				return;
+
+			if (c == -1)
+				throw error("unterminated string");
+
+			if (c != '\\') {
+				text.append((char)c);
+				continue;
+			}
+
+			final int escape = read();
+			switch (escape) {
+			case '"':	text.append('"'); break;
+			case '\\':	text.append('\\'); break;
+			case '/':	text.append('/'); break;
+			case 'b':	text.append('\b'); break;
+			case 'f':	text.append('\f'); break;
+			case 'n':	text.append('\n'); break;
+			case 'r':	text.append('\r'); break;
+			case 't':	text.append('\t'); break;
+			case 'u': {
+				int value = 0;
+				for (int i = 0; i < 4; ++i) {
+					final int digit = Character.digit(read(), 16);
+					if (digit < 0)
+						throw error("bad unicode escape");
+					value = (value << 4) | digit;
+				}
+				text.append((char)value);
+				break;
+			}
+			default:
+				throw error("bad escape");
+			}
+		}
+	}
+
+	private void readNumber(char first) throws IOException {
+		text.setLength(0);
+		text.append(first);
+		while (true) {
+			final int c = peek();
+			if (((c >= '0') && (c <= '9')) || (c == '.') || (c == 'e') || 
+					(c == 'E') || (c == '+') || (c == '-')) {
+				text.append((char)read());
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void readLiteral(String literal) throws IOException {
+		for (int i = 1; i < literal.length(); ++i)
+			if (read() != literal.charAt(i))
+				throw error("expected " + literal);
+	}
+
+	/**
+	 * Get the current token.
+	 * 
+	 * @return the token most recently returned by next().
+	 */
+	public int getToken() {
+		return token;
+	}
+
+	/**
+	 * Get the nesting depth of objects and arrays, which is 0 between top 
+	 * level values.
+	 * 
+	 * @return the nesting depth.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Get the text of the current NAME, STRING or NUMBER token.
+	 * 
+	 * @return the text of the token.
+	 */
+	public String getString() {
+		return text.toString();
+	}
+
+	/**
+	 * Get the value of the current NUMBER token as an int.
+	 * 
+	 * @return the value of the token.
+	 * @throws IOException if the token is not an integer.
+	 */
+	public int getInt() throws IOException {
+		if (token != NUMBER)
+			throw error("expected a number");
+
+		try {
+			return Integer.parseInt(text, 0, text.length(), 10);
+		} catch (NumberFormatException e) {
+			throw error("expected an integer, not " + text);
+		}
+	}
+
+	/**
+	 * Get the value of the current NUMBER token as a double.
+	 * 
+	 * @return the value of the token.
+	 * @throws IOException if the token is not a number.
+	 */
+	public double getDouble() throws IOException {
+		if (token != NUMBER)
+			throw error("expected a number");
+
+		try {
+			return Double.parseDouble(getString());
+		} catch (NumberFormatException e) {
+			throw error("expected a number, not " + text);
+		}
+	}
+
+	/**
+	 * Get the value of the current STRING token.
+	 * 
+	 * @return the value of the token.
+	 * @throws IOException if the token is not a string.
+	 */
+	public String getStringValue() throws IOException {
+		if (token != STRING)
+			throw error("expected a string");
+
+		return getString();
+	}
+
+	/**
+	 * Skip the value that follows the current NAME token, including any 
+	 * nested objects or arrays.
+	 * 
+	 * @throws IOException if the input can't be read or is not valid JSON.
+	 */
+	public void skipValue() throws IOException {
+		final int start = depth;
+		int next = next();
+		if ((next != BEGIN_OBJECT) && (next != BEGIN_ARRAY))
+			return;
+
+		while (depth > start)
+			if (next() == END_DOCUMENT)
+				return;
+	}
+
+	/**
+	 * Create an exception for an error at the current position.
+	 * 
+	 * @param message	describing the error.
+	 * @return the exception.
+	 */
+	public IOException error(String message) {
+		return new IOException(source + ":" + lineNumber + ": " + message);
+	}
+
+}
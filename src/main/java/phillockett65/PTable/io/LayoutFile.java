@@ -0,0 +1,274 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LayoutFile is a class that is responsible for writing layouts in a compact 
+ * binary format through a FileChannel. A file holds any number of layouts, 
+ * so it can be used as a library of layouts, and is read by a 
+ * LayoutFileReader. All values are big-endian. The file starts with:
+ * 
+ *   int	MAGIC
+ *   short	VERSION
+ *   short	reserved
+ * 
+ * followed by a record for each layout:
+ * 
+ *   int	length of the rest of the record (in bytes)
+ *   short	rows
+ *   short	cols
+ *   short	tile size
+ *   short	border size
+ *   int	temperature
+ *   byte	number of state colours
+ *   byte	number of subcategory colours
+ *   short	reserved
+ *   byte	key for each position, row by row, BLANK if there is no Element
+ *   int	0xRRGGBBAA for each state colour, then each subcategory colour
+ * 
+ * The length allows a reader to step over a record without decoding it.
+ */
+package phillockett65.PTable.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import phillockett65.PTable.elements.Elements;
+import phillockett65.PTable.table.Layout;
+
+public class LayoutFile {
+
+	public final static String EXTENSION = ".ptl";
+
+	public final static int MAGIC = 0x5054444C;	// "PTDL"
+	public final static short VERSION = 1;
+	public final static int FILE_HEADER_SIZE = 8;
+	public final static int RECORD_HEADER_SIZE = 16;
+
+	// The key used for a position without an Element, which limits the keys 
+	// that can be saved to 0 - 254.
+	public final static int BLANK = 0xFF;
+
+	// Size of the buffer used to batch records before they are written.
+	private final static int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Write the given layouts to a file, replacing any existing content.
+	 * 
+	 * @param path		of the file.
+	 * @param records	to write.
+	 * @throws IOException if a layout can't be saved or the file can't be 
+	 * written.
+	 */
+	public static void write(Path path, List<LayoutRecord> records) throws IOException {
+		checkRecords(records);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, 
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			putFileHeader(buffer);
+			buffer = putRecords(channel, buffer, records);
+			flush(channel, buffer);
+		}
+	}
+
+	/**
+	 * Add the given layouts to the end of a file, creating the file if it 
+	 * doesn't exist.
+	 * 
+	 * @param path		of the file.
+	 * @param records	to add.
+	 * @throws IOException if a layout can't be saved, or the file can't be 
+	 * written or is not a layout file.
+	 */
+	public static void append(Path path, List<LayoutRecord> records) throws IOException {
+		checkRecords(records);
+		try (FileChannel channel = FileChannel.open(path, 
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			final long size = channel.size();
+			if (size == 0) {
+				putFileHeader(buffer);
+			} else {
+				buffer.limit(FILE_HEADER_SIZE);
+				while (buffer.hasRemaining())
+					if (channel.read(buffer, buffer.position()) < 0)
+						break;
+				buffer.flip();
+				checkFileHeader(buffer, path);
+				buffer.clear();
+				channel.position(size);
+			}
+
+			buffer = putRecords(channel, buffer, records);
+			flush(channel, buffer);
+		}
+	}
+
+	/**
+	 * Read all the layouts in a file.
+	 * 
+	 * @param path	of the file.
+	 * @return the layouts in the file.
+	 * @throws IOException if the file can't be read or is not a layout file.
+	 */
+	public static List<LayoutRecord> read(Path path) throws IOException {
+		List<LayoutRecord> records = new ArrayList<LayoutRecord>();
+		try (LayoutFileReader reader = new LayoutFileReader(path)) {
+			while (reader.next())
+				records.add(reader.getRecord());
+		}
+
+		return records;
+	}
+
+	/**
+	 * Get the size of the record for the given layout, including the length.
+	 * 
+	 * @param record	to measure.
+	 * @return the size of the record (in bytes).
+	 */
+	public static int getRecordSize(LayoutRecord record) {
+		int size = 4 + RECORD_HEADER_SIZE + record.getLayout().getSize();
+		if (record.hasColours())
+			size += 4 * (record.getStateColours().length + record.getSubcategoryColours().length);
+
+		return size;
+	}
+
+	/**
+	 * Check the file header at the start of the buffer.
+	 * 
+	 * @param buffer	holding the file header.
+	 * @param path		of the file, used in error messages.
+	 * @throws IOException if the header is not a layout file header.
+	 */
+	static void checkFileHeader(ByteBuffer buffer, Path path) throws IOException {
+		if ((buffer.remaining() < FILE_HEADER_SIZE) || (buffer.getInt(buffer.position()) != MAGIC))
+			throw new IOException(path + ": not a layout file");
+
+		final short version = buffer.getShort(buffer.position() + 4);
+		if (version != VERSION)
+			throw new IOException(path + ": unsupported layout file version " + version);
+	}
+
+	/**
+	 * Check that every record can be saved in a form that LayoutFileReader 
+	 * accepts, before the file is touched. The layout size must be within 
+	 * the Limits and every key must fit in a byte.
+	 * 
+	 * @param records	to check.
+	 * @throws IOException if a record can't be saved.
+	 */
+	private static void checkRecords(List<LayoutRecord> records) throws IOException {
+		for (LayoutRecord record : records) {
+			final Layout layout = record.getLayout();
+			final int rows = layout.getRows();
+			final int cols = layout.getCols();
+			if ((rows < Limits.MIN_ROWS) || (rows > Limits.MAX_ROWS) || 
+					(cols < Limits.MIN_COLS) || (cols > Limits.MAX_COLS))
+				throw new IOException("layout size " + rows + "x" + cols + " can't be saved");
+
+			if (record.hasColours() && ((record.getStateColours().length > 0xFF) || 
+					(record.getSubcategoryColours().length > 0xFF)))
+				throw new IOException("too many colours to save");
+
+			final int count = layout.getSize();
+			for (int i = 0; i < count; ++i) {
+				final int key = layout.getKey(i);
+				if ((key != Elements.UNDEFINED_KEY) && ((key < 0) || (key >= BLANK)))
+					throw new IOException("element key " + key + " can't be saved");
+			}
+		}
+	}
+
+	private static void putFileHeader(ByteBuffer buffer) {
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.putShort((short)0);
+	}
+
+	/**
+	 * Encode the records into the buffer, writing the buffer to the channel 
+	 * whenever it fills up.
+	 * 
+	 * @param channel	to write to.
+	 * @param buffer	to encode the records into.
+	 * @param records	to write.
+	 * @return the buffer, which is replaced if a record doesn't fit in it.
+	 * @throws IOException if a record can't be written.
+	 */
+	private static ByteBuffer putRecords(FileChannel channel, ByteBuffer buffer, 
+			List<LayoutRecord> records) throws IOException {
+		for (LayoutRecord record : records) {
+			final int size = getRecordSize(record);
+			if (buffer.remaining() < size) {
+				flush(channel, buffer);
+				if (buffer.capacity() < size)
+					buffer = ByteBuffer.allocateDirect(size);
+			}
+
+			putRecord(buffer, record, size);
+		}
+
+		return buffer;
+	}
+
+	private static void putRecord(ByteBuffer buffer, LayoutRecord record, int size) {
+		final Layout layout = record.getLayout();
+		final int[] states = record.hasColours() ? record.getStateColours() : new int[0];
+		final int[] subcategories = record.hasColours() ? record.getSubcategoryColours() : new int[0];
+
+		buffer.putInt(size - 4);
+		buffer.putShort((short)layout.getRows());
+		buffer.putShort((short)layout.getCols());
+		buffer.putShort((short)record.getTileSize());
+		buffer.putShort((short)record.getBorderSize());
+		buffer.putInt(record.getTemp());
+		buffer.put((byte)states.length);
+		buffer.put((byte)subcategories.length);
+		buffer.putShort((short)0);
+
+		final int count = layout.getSize();
+		for (int i = 0; i < count; ++i) {
+			final int key = layout.getKey(i);
+			if (key == Elements.UNDEFINED_KEY)
+				buffer.put((byte)BLANK);
+			else
+				buffer.put((byte)key);
+		}
+
+		for (int colour : states)
+			buffer.putInt(colour);
+		for (int colour : subcategories)
+			buffer.putInt(colour);
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+}
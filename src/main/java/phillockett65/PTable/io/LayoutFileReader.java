@@ -0,0 +1,345 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LayoutFileReader is a class that is responsible for reading the layouts 
+ * written by LayoutFile. The file is memory-mapped, in windows of up to 
+ * MAP_SIZE bytes so that files larger than 2GB can be read, and the records 
+ * are decoded in place. Stepping through the records with next() and 
+ * reading the header fields doesn't create any objects, so a library of 
+ * millions of layouts can be scanned at close to disk bandwidth, only 
+ * decoding the layouts of interest. The layout size and element keys are 
+ * checked as they are read, so a corrupt file is reported as an IOException 
+ * rather than reaching the Grid.
+ */
+package phillockett65.PTable.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import phillockett65.PTable.elements.Elements;
+import phillockett65.PTable.table.Layout;
+
+public class LayoutFileReader implements Closeable {
+
+	// Largest window of the file that is mapped at once.
+	public final static int MAP_SIZE = 1 << 30;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final long fileSize;
+
+	// The mapped window of the file and its offset within the file.
+	private ByteBuffer buffer;
+	private long base;
+
+	// Offset within the file of the current record and the next record.
+	private long offset = -1;
+	private long nextOffset = LayoutFile.FILE_HEADER_SIZE;
+
+	// Fields of the current record, start is the position of the record 
+	// header in the buffer.
+	private int start;
+	private int rows;
+	private int cols;
+	private int stateCount;
+	private int subcategoryCount;
+
+	// The element keys seen in the current layout, one bit per key, used to 
+	// reject layouts that hold an element more than once.
+	private final long[] seen = new long[(Elements.lastKey() >> 6) + 1];
+
+	/**
+	 * Constructor. Opens and maps the file and checks the file header.
+	 * 
+	 * @param path	of the file to read.
+	 * @throws IOException if the file can't be read or is not a layout file.
+	 */
+	public LayoutFileReader(Path path) throws IOException {
+		this.path = path;
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		fileSize = channel.size();
+
+		try {
+			map(0);
+			LayoutFile.checkFileHeader(buffer, path);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Map the window of the file starting at the given offset.
+	 * 
+	 * @param position	offset within the file of the start of the window.
+	 * @throws IOException if the file can't be mapped.
+	 */
+	private void map(long position) throws IOException {
+		base = position;
+		final long size = Math.min(MAP_SIZE, fileSize - position);
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+	}
+
+	/**
+	 * Make sure the given region of the file is in the mapped window, 
+	 * remapping the window to start at the region if necessary.
+	 * 
+	 * @param position	offset within the file of the region.
+	 * @param length	of the region.
+	 * @throws IOException if the file can't be mapped.
+	 */
+	private void ensureMapped(long position, int length) throws IOException {
+		if ((position >= base) && (position + length <= base + buffer.limit()))
+			return;
+
+		map(position);
+	}
+
+	/**
+	 * Advance to the next record.
+	 * 
+	 * @return true if there is another record, false at the end of the file.
+	 * @throws IOException if the file can't be read or the record is corrupt.
+	 */
+	public boolean next() throws IOException {
+		return seek(nextOffset);
+	}
+
+	/**
+	 * Move to the record at the given offset within the file, as returned by 
+	 * getOffset(). Reading continues from the record that follows it.
+	 * 
+	 * @param position	offset within the file of the record.
+	 * @return true if there is a record, false at the end of the file.
+	 * @throws IOException if the file can't be read or the record is corrupt.
+	 */
+	public boolean seek(long position) throws IOException {
+		if (position + 4 > fileSize) {
+			offset = -1;
+			nextOffset = fileSize;
+
+			return false;
+		}
+
+		ensureMapped(position, 4);
+		final int length = buffer.getInt((int)(position - base));
+		if ((length < LayoutFile.RECORD_HEADER_SIZE) || (length > MAP_SIZE - 4) || 
+				(position + 4 + length > fileSize))
+			throw error(position, "bad record length " + length);
+
+		ensureMapped(position, 4 + length);
+		start = (int)(position - base) + 4;
+		rows = buffer.getShort(start);
+		cols = buffer.getShort(start + 2);
+		stateCount = buffer.get(start + 12) & 0xFF;
+		subcategoryCount = buffer.get(start + 13) & 0xFF;
+
+		if ((rows < Limits.MIN_ROWS) || (rows > Limits.MAX_ROWS) || 
+				(cols < Limits.MIN_COLS) || (cols > Limits.MAX_COLS))
+			throw error(position, "unsupported layout size " + rows + "x" + cols);
+
+		final int expected = LayoutFile.RECORD_HEADER_SIZE + (rows * cols) + 
+				4 * (stateCount + subcategoryCount);
+		if (length != expected)
+			throw error(position, "record length " + length + " doesn't match its contents");
+
+		offset = position;
+		nextOffset = position + 4 + length;
+
+		return true;
+	}
+
+	/**
+	 * Get the offset within the file of the current record, which can be 
+	 * passed to seek() to return to it.
+	 * 
+	 * @return the offset of the current record.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Get the number of Rows in the current layout.
+	 * 
+	 * @return the number of Rows.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Get the number of Columns in the current layout.
+	 * 
+	 * @return the number of Columns.
+	 */
+	public int getCols() {
+		return cols;
+	}
+
+	/**
+	 * Get the tile size of the current record.
+	 * 
+	 * @return the tile size (in pixels).
+	 */
+	public int getTileSize() {
+		return buffer.getShort(start + 4);
+	}
+
+	/**
+	 * Get the border size of the current record.
+	 * 
+	 * @return the border size (in pixels).
+	 */
+	public int getBorderSize() {
+		return buffer.getShort(start + 6);
+	}
+
+	/**
+	 * Get the temperature of the current record.
+	 * 
+	 * @return the temperature.
+	 */
+	public int getTemp() {
+		return buffer.getInt(start + 8);
+	}
+
+	/**
+	 * Check if the colour tables were saved with the current layout.
+	 * 
+	 * @return true if the colour tables are present.
+	 */
+	public boolean hasColours() {
+		return (stateCount > 0) || (subcategoryCount > 0);
+	}
+
+	/**
+	 * Get the element key at the given position of the current layout.
+	 * 
+	 * @param index of the position, row by row.
+	 * @return the element key, or Elements.UNDEFINED_KEY if it is blank.
+	 * @throws IOException if the key is not a valid element key.
+	 */
+	public int getKey(int index) throws IOException {
+		final int key = buffer.get(start + LayoutFile.RECORD_HEADER_SIZE + index) & 0xFF;
+		if (key == LayoutFile.BLANK)
+			return Elements.UNDEFINED_KEY;
+
+		if (!Elements.isKeyValid(key))
+			throw error(offset, "invalid element key " + key + " at position " + index);
+
+		return key;
+	}
+
+	/**
+	 * Copy the current layout into the given Layout, which must have the 
+	 * same dimensions. This allows a Layout to be reused while scanning. 
+	 * Each element may only appear once in a layout, as the Grid has a 
+	 * single Cell for each element.
+	 * 
+	 * @param layout	to copy the current layout into.
+	 * @throws IOException if a key is not valid or appears more than once.
+	 */
+	public void readLayout(Layout layout) throws IOException {
+		Arrays.fill(seen, 0L);
+
+		final int count = rows * cols;
+		for (int i = 0; i < count; ++i) {
+			final int key = getKey(i);
+			if (key != Elements.UNDEFINED_KEY) {
+				final long bit = 1L << (key & 63);
+				if ((seen[key >> 6] & bit) != 0)
+					throw error(offset, "element key " + key + " appears more than once");
+
+				seen[key >> 6] |= bit;
+			}
+			layout.setKey(i, key);
+		}
+	}
+
+	/**
+	 * Get a copy of the current layout.
+	 * 
+	 * @return the current layout.
+	 * @throws IOException if a key is not valid or appears more than once.
+	 */
+	public Layout getLayout() throws IOException {
+		Layout layout = new Layout(rows, cols);
+		readLayout(layout);
+
+		return layout;
+	}
+
+	/**
+	 * Read the colour table of the given length starting at the given 
+	 * position of the buffer.
+	 * 
+	 * @param position	in the buffer of the colour table.
+	 * @param count		of the colours.
+	 * @return the packed colours.
+	 */
+	private int[] getColours(int position, int count) {
+		int[] colours = new int[count];
+		for (int i = 0; i < count; ++i)
+			colours[i] = buffer.getInt(position + 4 * i);
+
+		return colours;
+	}
+
+	/**
+	 * Get a copy of the current record.
+	 * 
+	 * @return the current record.
+	 * @throws IOException if a key is not valid or appears more than once.
+	 */
+	public LayoutRecord getRecord() throws IOException {
+		final Layout layout = getLayout();
+		if (!hasColours())
+			return new LayoutRecord(layout, getTileSize(), getBorderSize(), getTemp());
+
+		final int colours = start + LayoutFile.RECORD_HEADER_SIZE + (rows * cols);
+		final int[] states = getColours(colours, stateCount);
+		final int[] subcategories = getColours(colours + 4 * stateCount, subcategoryCount);
+
+		return new LayoutRecord(layout, getTileSize(), getBorderSize(), getTemp(), 
+				states, subcategories);
+	}
+
+	private IOException error(long position, String message) {
+		return new IOException(path + "@" + position + ": " + message);
+	}
+
+	/**
+	 * Close the file. The mapped window is released when it is no longer 
+	 * referenced.
+	 */
+	@Override
+	public void close() throws IOException {
+		buffer = null;
+		channel.close();
+	}
+
+}
@@ -0,0 +1,139 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LayoutRecord is a simple class that captures everything saved for a 
+ * layout: the arrangement of the Elements, the tile size, border size and 
+ * temperature from the Model and, optionally, the state and subcategory 
+ * colour tables. Colours are held as packed 0xRRGGBBAA ints so that layouts 
+ * can be read and written without any JavaFX support.
+ */
+package phillockett65.PTable.io;
+
+import phillockett65.PTable.table.Layout;
+
+public class LayoutRecord {
+
+	private final Layout layout;
+	private final int tileSize;
+	private final int borderSize;
+	private final int temp;
+
+	private final int[] stateColours;
+	private final int[] subcategoryColours;
+
+	/**
+	 * Constructor for a record without colour tables.
+	 * 
+	 * @param layout		- arrangement of the Elements.
+	 * @param tileSize		- tile size (in pixels).
+	 * @param borderSize	- border size (in pixels).
+	 * @param temp			- temperature.
+	 */
+	public LayoutRecord(Layout layout, int tileSize, int borderSize, int temp) {
+		this(layout, tileSize, borderSize, temp, null, null);
+	}
+
+	/**
+	 * Constructor. The layout is not copied so must not be changed while the 
+	 * record is in use.
+	 * 
+	 * @param layout				- arrangement of the Elements.
+	 * @param tileSize				- tile size (in pixels).
+	 * @param borderSize			- border size (in pixels).
+	 * @param temp					- temperature.
+	 * @param stateColours			- packed state colours, may be null.
+	 * @param subcategoryColours	- packed subcategory colours, may be null.
+	 */
+	public LayoutRecord(Layout layout, int tileSize, int borderSize, int temp, 
+			int[] stateColours, int[] subcategoryColours) {
+		this.layout = layout;
+		this.tileSize = tileSize;
+		this.borderSize = borderSize;
+		this.temp = temp;
+		this.stateColours = stateColours;
+		this.subcategoryColours = subcategoryColours;
+	}
+
+	/**
+	 * Get the arrangement of the Elements.
+	 * 
+	 * @return the Layout.
+	 */
+	public Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Get the tile size.
+	 * 
+	 * @return the tile size (in pixels).
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Get the border size.
+	 * 
+	 * @return the border size (in pixels).
+	 */
+	public int getBorderSize() {
+		return borderSize;
+	}
+
+	/**
+	 * Get the temperature.
+	 * 
+	 * @return the temperature.
+	 */
+	public int getTemp() {
+		return temp;
+	}
+
+	/**
+	 * Check if the colour tables were saved with the layout.
+	 * 
+	 * @return true if both colour tables are present.
+	 */
+	public boolean hasColours() {
+		return (stateColours != null) && (subcategoryColours != null);
+	}
+
+	/**
+	 * Get the state colours.
+	 * 
+	 * @return the packed 0xRRGGBBAA state colours, or null if not saved.
+	 */
+	public int[] getStateColours() {
+		return stateColours;
+	}
+
+	/**
+	 * Get the subcategory colours.
+	 * 
+	 * @return the packed 0xRRGGBBAA subcategory colours, or null if not 
+	 * saved.
+	 */
+	public int[] getSubcategoryColours() {
+		return subcategoryColours;
+	}
+
+}
@@ -0,0 +1,306 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LayoutTextReader is a class that is responsible for importing the layouts 
+ * written by LayoutTextWriter, one at a time, using the streaming 
+ * JsonParser or CsvParser. Only the current layout is held in memory, so 
+ * corpora far larger than memory can be imported.
+ * 
+ * JSON input may be a sequence of layout objects, as JSON Lines, or an array 
+ * of them. Unknown fields are ignored and only "layout" is required; the 
+ * dimensions are taken from the rows if they are not given and the other 
+ * settings default to the initial settings in Limits. CSV input must 
+ * start with a header line naming the columns, in any order. Layouts larger 
+ * than Limits allows, or that repeat an element, are rejected.
+ */
+package phillockett65.PTable.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import phillockett65.PTable.elements.Elements;
+import phillockett65.PTable.table.Layout;
+
+public class LayoutTextReader {
+
+	private final int format;
+	private final String source;
+	private final JsonParser json;
+	private final CsvParser csv;
+
+	// Column index of each field in the CSV input.
+	private Map<String, Integer> columns = null;
+
+	private int count = 0;
+	private String name;
+	private int rows;
+	private int cols;
+	private int tileSize;
+	private int borderSize;
+	private int temp;
+	private final ArrayList<String> layoutRows = new ArrayList<String>();
+
+	// Work space for the keys of a row.
+	private int[] keys = new int[32];
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param reader	to read the layouts from, which need not be buffered.
+	 * @param format	of the layouts, TextFormat.CSV or TextFormat.JSON.
+	 * @param source	name used for unnamed layouts and in error messages.
+	 */
+	public LayoutTextReader(Reader reader, int format, String source) {
+		this.format = format;
+		this.source = source;
+		if (format == TextFormat.CSV) {
+			json = null;
+			csv = new CsvParser(reader, source);
+		} else {
+			json = new JsonParser(reader, source);
+			csv = null;
+		}
+	}
+
+	/**
+	 * Get the name of the layout most recently returned by next().
+	 * 
+	 * @return the name of the layout.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Read the next layout.
+	 * 
+	 * @return the next layout, or null if there are no more layouts.
+	 * @throws IOException if the layout can't be read or is not valid.
+	 */
+	public LayoutRecord next() throws IOException {
+		name = null;
+		rows = 0;
+		cols = 0;
+		tileSize = Limits.INIT_TILE_SIZE;
+		borderSize = Limits.INIT_BORDER_SIZE;
+		temp = Limits.INIT_TEMP;
+		layoutRows.clear();
+
+		final boolean found = (format == TextFormat.CSV) ? nextCsv() : nextJson();
+		if (!found)
+			return null;
+
+		count++;
+		if (name == null || name.isEmpty())
+			name = source + "#" + count;
+
+		return new LayoutRecord(buildLayout(), tileSize, borderSize, temp);
+	}
+
+	/**
+	 * Read the fields of the next JSON layout object.
+	 * 
+	 * @return false if there are no more layouts.
+	 * @throws IOException if the layout can't be read.
+	 */
+	private boolean nextJson() throws IOException {
+		// Find the start of the next object, stepping into a top level array.
+		int token;
+		do {
+			token = json.next();
+			if (token == JsonParser.END_DOCUMENT)
+				return false;
+		} while ((token == JsonParser.BEGIN_ARRAY && json.getDepth() == 1) || 
+				(token == JsonParser.END_ARRAY && json.getDepth() == 0));
+
+		if (token != JsonParser.BEGIN_OBJECT)
+			throw json.error("expected a layout object");
+
+		while (json.next() != JsonParser.END_OBJECT) {
+			if (json.getToken() != JsonParser.NAME)
+				throw json.error("expected a field name");
+
+			switch (json.getString()) {
+			case "name":	json.next(); name = json.getStringValue(); break;
+			case "rows":	json.next(); rows = json.getInt(); break;
+			case "cols":	json.next(); cols = json.getInt(); break;
+			case "tile":	json.next(); tileSize = json.getInt(); break;
+			case "border":	json.next(); borderSize = json.getInt(); break;
+			case "temp":	json.next(); temp = json.getInt(); break;
+			case "layout":
+				if (json.next() != JsonParser.BEGIN_ARRAY)
+					throw json.error("expected an array of rows");
+				while (json.next() != JsonParser.END_ARRAY)
+					layoutRows.add(json.getStringValue());
+				break;
+			default:
+				json.skipValue();
+			}
+		}
+
+		if (layoutRows.isEmpty())
+			throw json.error("layout has no rows");
+
+		return true;
+	}
+
+	/**
+	 * Read the fields of the next CSV layout record, reading the header 
+	 * first if necessary.
+	 * 
+	 * @return false if there are no more layouts.
+	 * @throws IOException if the layout can't be read.
+	 */
+	private boolean nextCsv() throws IOException {
+		if (columns == null) {
+			if (!csv.next())
+				return false;
+
+			columns = new HashMap<String, Integer>();
+			for (int i = 0; i < csv.getFieldCount(); ++i)
+				columns.put(csv.getField(i).trim().toLowerCase(), i);
+
+			if (!columns.containsKey("layout"))
+				throw csv.error("header has no layout column");
+		}
+
+		if (!csv.next())
+			return false;
+
+		if (columns.containsKey("name"))
+			name = csv.getField(column("name"));
+		if (columns.containsKey("rows"))
+			rows = csv.getInt(column("rows"));
+		if (columns.containsKey("cols"))
+			cols = csv.getInt(column("cols"));
+		if (columns.containsKey("tile"))
+			tileSize = csv.getInt(column("tile"));
+		if (columns.containsKey("border"))
+			borderSize = csv.getInt(column("border"));
+		if (columns.containsKey("temp"))
+			temp = csv.getInt(column("temp"));
+
+		final String layout = csv.getField(column("layout"));
+		int start = 0;
+		for (int i = 0; i <= layout.length(); ++i) {
+			if ((i == layout.length()) || (layout.charAt(i) == LayoutTextWriter.ROW_SEPARATOR)) {
+				layoutRows.add(layout.substring(start, i));
+				start = i + 1;
+			}
+		}
+
+		return true;
+	}
+
+	private int column(String field) {
+		final Integer index = columns.get(field);
+
+		return (index == null) ? Integer.MAX_VALUE : index;
+	}
+
+	/**
+	 * Split a row into symbols and convert them to element keys.
+	 * 
+	 * @param row	of element symbols separated by whitespace.
+	 * @return the number of symbols in the row, the keys are left in keys.
+	 * @throws IOException if an element symbol is not recognized.
+	 */
+	private int parseRow(String row) throws IOException {
+		final int length = row.length();
+		int count = 0;
+		int i = 0;
+		while (i < length) {
+			if (Character.isWhitespace(row.charAt(i))) {
+				i++;
+				continue;
+			}
+
+			final int start = i;
+			while (i < length && !Character.isWhitespace(row.charAt(i)))
+				i++;
+
+			int key = Elements.UNDEFINED_KEY;
+			if ((i - start != 1) || !row.startsWith(Elements.BLANK_SYMBOL, start)) {
+				final String symbol = row.substring(start, i);
+				key = Elements.findKey(symbol);
+				if (key == Elements.UNDEFINED_KEY)
+					throw error("unknown element symbol \"" + symbol + "\"");
+			}
+
+			if (count == keys.length)
+				keys = Arrays.copyOf(keys, count * 2);
+			keys[count++] = key;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Build the Layout from the rows of element symbols.
+	 * 
+	 * @return the Layout.
+	 * @throws IOException if a symbol is not recognized or repeated, or the 
+	 * layout doesn't fit the given dimensions.
+	 */
+	private Layout buildLayout() throws IOException {
+		if (rows == 0)
+			rows = layoutRows.size();
+		if (cols == 0)
+			for (String row : layoutRows)
+				cols = Math.max(cols, parseRow(row));
+
+		if ((rows < 1) || (rows > Limits.MAX_ROWS) || (cols < 1) || (cols > Limits.MAX_COLS))
+			throw error("unsupported layout size " + rows + "x" + cols);
+
+		if (layoutRows.size() > rows)
+			throw error("layout doesn't fit in " + rows + "x" + cols);
+
+		Layout layout = new Layout(rows, cols);
+		for (int r = 0; r < layoutRows.size(); ++r) {
+			final int count = parseRow(layoutRows.get(r));
+			if (count > cols)
+				throw error("layout doesn't fit in " + rows + "x" + cols);
+
+			for (int c = 0; c < count; ++c)
+				if (keys[c] != Elements.UNDEFINED_KEY)
+					layout.setKey(r, c, keys[c]);
+		}
+
+		final int invalid = layout.findInvalidKey();
+		if (invalid >= 0)
+			throw error("element \"" + Elements.element(layout.getKey(invalid)).getSymbol() + 
+					"\" appears more than once");
+
+		return layout;
+	}
+
+	private IOException error(String message) {
+		if (format == TextFormat.CSV)
+			return csv.error(message);
+
+		return json.error(message);
+	}
+
+}
@@ -0,0 +1,150 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LayoutTextWriter is a class that is responsible for exporting layouts as 
+ * either CSV or JSON Lines (one JSON object per line), so layouts can be 
+ * exchanged with other tools and streamed as they are produced. Each row of 
+ * a layout is written as the element symbols separated by spaces, with "." 
+ * for a blank position, as read by LayoutReader. In CSV the rows are joined 
+ * with "/" into a single field. For example:
+ * 
+ *   {"name":"standard","rows":10,"cols":18,"tile":50,"border":2,"temp":274,
+ *    "layout":["H . . . . . . . . . . . . . . . . He", ...]}
+ * 
+ *   name,rows,cols,tile,border,temp,layout
+ *   standard,10,18,50,2,274,H . . . . . . . . . . . . . . . . He/Li Be ...
+ * 
+ * Colour tables are not exported with the layouts, see ModelSettings.
+ */
+package phillockett65.PTable.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import phillockett65.PTable.elements.Elements;
+import phillockett65.PTable.table.Layout;
+
+public class LayoutTextWriter {
+
+	public final static char ROW_SEPARATOR = '/';
+
+	private final Writer out;
+	private final int format;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param out		destination of the layouts.
+	 * @param format	of the layouts, TextFormat.CSV or TextFormat.JSON.
+	 */
+	public LayoutTextWriter(Writer out, int format) {
+		this.out = out;
+		this.format = format;
+	}
+
+	/**
+	 * Write the CSV header line, if required by the format.
+	 * 
+	 * @throws IOException if the layouts can't be written.
+	 */
+	public void writeHeader() throws IOException {
+		if (format != TextFormat.CSV)
+			return;
+
+		out.write("name,rows,cols,tile,border,temp,layout\n");
+	}
+
+	/**
+	 * Format a row of a layout as the element symbols separated by spaces.
+	 * 
+	 * @param builder	to append the row to.
+	 * @param layout	holding the row.
+	 * @param row		to format.
+	 */
+	private static void formatRow(StringBuilder builder, Layout layout, int row) {
+		for (int c = 0; c < layout.getCols(); ++c) {
+			if (c > 0)
+				builder.append(' ');
+
+			final int key = layout.getKey(row, c);
+			if (key == Elements.UNDEFINED_KEY)
+				builder.append(Elements.BLANK_SYMBOL);
+			else
+				builder.append(Elements.element(key).getSymbol());
+		}
+	}
+
+	/**
+	 * Write a single layout.
+	 * 
+	 * @param name		of the layout.
+	 * @param record	holding the layout and its settings.
+	 * @throws IOException if the layout can't be written.
+	 */
+	public void write(String name, LayoutRecord record) throws IOException {
+		final Layout layout = record.getLayout();
+		final int rows = layout.getRows();
+		StringBuilder builder = new StringBuilder(64 + rows * layout.getCols() * 3);
+
+		if (format == TextFormat.CSV) {
+			builder.append(TextFormat.quoteCsv(name)).append(',')
+				.append(rows).append(',')
+				.append(layout.getCols()).append(',')
+				.append(record.getTileSize()).append(',')
+				.append(record.getBorderSize()).append(',')
+				.append(record.getTemp()).append(',');
+			for (int r = 0; r < rows; ++r) {
+				if (r > 0)
+					builder.append(ROW_SEPARATOR);
+				formatRow(builder, layout, r);
+			}
+			builder.append('\n');
+		} else {
+			builder.append("{\"name\":").append(TextFormat.quoteJson(name))
+				.append(",\"rows\":").append(rows)
+				.append(",\"cols\":").append(layout.getCols())
+				.append(",\"tile\":").append(record.getTileSize())
+				.append(",\"border\":").append(record.getBorderSize())
+				.append(",\"temp\":").append(record.getTemp())
+				.append(",\"layout\":[");
+			for (int r = 0; r < rows; ++r) {
+				if (r > 0)
+					builder.append(',');
+				builder.append('"');
+				formatRow(builder, layout, r);
+				builder.append('"');
+			}
+			builder.append("]}\n");
+		}
+
+		out.append(builder);
+	}
+
+	/**
+	 * Flush any buffered layouts.
+	 * 
+	 * @throws IOException if the layouts can't be written.
+	 */
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+}
@@ -0,0 +1,45 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Limits is a class that holds the initial values and ranges of the layout 
+ * settings. The ranges are those offered by the Layout Settings tab, which 
+ * layouts read from a file must also respect. It has no JavaFX dependencies 
+ * so that the file readers can be used without the user interface.
+ */
+package phillockett65.PTable.io;
+
+public class Limits {
+
+	public final static int INIT_TEMP = 274;
+	public final static int INIT_TILE_SIZE = 50;
+	public final static int INIT_BORDER_SIZE = 2;
+
+	// The temperature ranges from 0 to Model.getMaxTemp().
+	public final static int MIN_ROWS = 8;
+	public final static int MAX_ROWS = 45;
+	public final static int MIN_COLS = 18;
+	public final static int MAX_COLS = 45;
+	public final static int MIN_TILE_SIZE = 25;
+	public final static int MAX_TILE_SIZE = 100;
+	public final static int MIN_BORDER_SIZE = 0;
+	public final static int MAX_BORDER_SIZE = 10;
+
+}
@@ -0,0 +1,269 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ModelSettings is a class that captures the descriptions and colours of the 
+ * states and subcategories held by the Model, so they can be exchanged with 
+ * other tools as CSV or JSON. Colours are held as packed 0xRRGGBBAA ints and 
+ * written as "#rrggbbaa". For example:
+ * 
+ *   {"states":[{"name":"UNDEFINED","colour":"#808080ff"}, ...],
+ *    "subcategories":[{"name":"Metalloid","colour":"#cccc99ff"}, ...]}
+ * 
+ *   table,index,name,colour
+ *   state,0,UNDEFINED,#808080ff
+ *   subcategory,0,Metalloid,#cccc99ff
+ * 
+ * When reading, every entry from 0 up to the highest index must be given.
+ */
+package phillockett65.PTable.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+
+public class ModelSettings {
+
+	public final static String STATE = "state";
+	public final static String SUBCATEGORY = "subcategory";
+
+	private final String[] stateNames;
+	private final int[] stateColours;
+	private final String[] subcategoryNames;
+	private final int[] subcategoryColours;
+
+	/**
+	 * Constructor. Each name array must be the same length as the 
+	 * corresponding colour array.
+	 * 
+	 * @param stateNames			- descriptions of the states.
+	 * @param stateColours			- packed state colours.
+	 * @param subcategoryNames		- descriptions of the subcategories.
+	 * @param subcategoryColours	- packed subcategory colours.
+	 */
+	public ModelSettings(String[] stateNames, int[] stateColours, 
+			String[] subcategoryNames, int[] subcategoryColours) {
+		this.stateNames = stateNames;
+		this.stateColours = stateColours;
+		this.subcategoryNames = subcategoryNames;
+		this.subcategoryColours = subcategoryColours;
+	}
+
+	public String[] getStateNames() {
+		return stateNames;
+	}
+
+	public int[] getStateColours() {
+		return stateColours;
+	}
+
+	public String[] getSubcategoryNames() {
+		return subcategoryNames;
+	}
+
+	public int[] getSubcategoryColours() {
+		return subcategoryColours;
+	}
+
+
+/************************************************************************
+ * Export support section.
+ */
+
+	/**
+	 * Write the settings in the given format.
+	 * 
+	 * @param out		destination of the settings.
+	 * @param format	of the settings, TextFormat.CSV or TextFormat.JSON.
+	 * @throws IOException if the settings can't be written.
+	 */
+	public void write(Writer out, int format) throws IOException {
+		StringBuilder builder = new StringBuilder(1024);
+		if (format == TextFormat.CSV) {
+			builder.append("table,index,name,colour\n");
+			formatCsv(builder, STATE, stateNames, stateColours);
+			formatCsv(builder, SUBCATEGORY, subcategoryNames, subcategoryColours);
+		} else {
+			builder.append("{\"states\":[");
+			formatJson(builder, stateNames, stateColours);
+			builder.append("],\n\"subcategories\":[");
+			formatJson(builder, subcategoryNames, subcategoryColours);
+			builder.append("]}\n");
+		}
+
+		out.append(builder);
+		out.flush();
+	}
+
+	private static void formatCsv(StringBuilder builder, String table, String[] names, int[] colours) {
+		for (int i = 0; i < colours.length; ++i)
+			builder.append(table).append(',')
+				.append(i).append(',')
+				.append(TextFormat.quoteCsv(names[i])).append(',')
+				.append(TextFormat.formatColour(colours[i])).append('\n');
+	}
+
+	private static void formatJson(StringBuilder builder, String[] names, int[] colours) {
+		for (int i = 0; i < colours.length; ++i) {
+			if (i > 0)
+				builder.append(",");
+			builder.append("\n {\"name\":").append(TextFormat.quoteJson(names[i]))
+				.append(",\"colour\":\"").append(TextFormat.formatColour(colours[i]))
+				.append("\"}");
+		}
+	}
+
+
+/************************************************************************
+ * Import support section.
+ */
+
+	/**
+	 * Entries of a table as they are read, which may be out of order in CSV.
+	 */
+	private static class Table {
+		private final ArrayList<String> names = new ArrayList<String>();
+		private final ArrayList<Integer> colours = new ArrayList<Integer>();
+
+		private void set(int index, String name, int colour) {
+			while (names.size() <= index) {
+				names.add(null);
+				colours.add(null);
+			}
+			names.set(index, name);
+			colours.set(index, colour);
+		}
+
+		private String[] getNames(String table, String source) throws IOException {
+			String[] array = names.toArray(new String[0]);
+			for (int i = 0; i < array.length; ++i)
+				if (array[i] == null)
+					throw new IOException(source + ": " + table + " " + i + " missing");
+
+			return array;
+		}
+
+		private int[] getColours() {
+			int[] array = new int[colours.size()];
+			for (int i = 0; i < array.length; ++i)
+				array[i] = colours.get(i);
+
+			return array;
+		}
+	}
+
+	/**
+	 * Read settings written by write().
+	 * 
+	 * @param reader	to read the settings from.
+	 * @param format	of the settings, TextFormat.CSV or TextFormat.JSON.
+	 * @param source	name used in error messages.
+	 * @return the settings.
+	 * @throws IOException if the settings can't be read or are not valid.
+	 */
+	public static ModelSettings read(Reader reader, int format, String source) throws IOException {
+		Table states = new Table();
+		Table subcategories = new Table();
+
+		if (format == TextFormat.CSV)
+			readCsv(new CsvParser(reader, source), states, subcategories);
+		else
+			readJson(new JsonParser(reader, source), states, subcategories);
+
+		return new ModelSettings(
+				states.getNames(STATE, source), states.getColours(), 
+				subcategories.getNames(SUBCATEGORY, source), subcategories.getColours());
+	}
+
+	private static void readCsv(CsvParser csv, Table states, Table subcategories) throws IOException {
+		// Skip the header.
+		if (!csv.next())
+			return;
+
+		while (csv.next()) {
+			final String table = csv.getField(0).trim();
+			final int index = csv.getInt(1);
+			if (index < 0)
+				throw csv.error("bad index " + index);
+
+			final int colour;
+			try {
+				colour = TextFormat.parseColour(csv.getField(3).trim());
+			} catch (IOException e) {
+				throw csv.error(e.getMessage());
+			}
+
+			if (table.equals(STATE))
+				states.set(index, csv.getField(2), colour);
+			else if (table.equals(SUBCATEGORY))
+				subcategories.set(index, csv.getField(2), colour);
+			else
+				throw csv.error("unknown table \"" + table + "\"");
+		}
+	}
+
+	private static void readJson(JsonParser json, Table states, Table subcategories) throws IOException {
+		if (json.next() != JsonParser.BEGIN_OBJECT)
+			throw json.error("expected a settings object");
+
+		while (json.next() != JsonParser.END_OBJECT) {
+			if (json.getToken() != JsonParser.NAME)
+				throw json.error("expected a field name");
+
+			switch (json.getString()) {
+			case "states":			readJsonTable(json, states); break;
+			case "subcategories":	readJsonTable(json, subcategories); break;
+			default:				json.skipValue();
+			}
+		}
+	}
+
+	private static void readJsonTable(JsonParser json, Table table) throws IOException {
+		if (json.next() != JsonParser.BEGIN_ARRAY)
+			throw json.error("expected an array of entries");
+
+		int index = 0;
+		while (json.next() != JsonParser.END_ARRAY) {
+			if (json.getToken() != JsonParser.BEGIN_OBJECT)
+				throw json.error("expected an entry object");
+
+			String name = null;
+			String colour = null;
+			while (json.next() != JsonParser.END_OBJECT) {
+				switch (json.getString()) {
+				case "name":	json.next(); name = json.getStringValue(); break;
+				case "colour":	json.next(); colour = json.getStringValue(); break;
+				default:		json.skipValue();
+				}
+			}
+
+			if ((name == null) || (colour == null))
+				throw json.error("entry needs a name and a colour");
+
+			try {
+				table.set(index++, name, TextFormat.parseColour(colour));
+			} catch (IOException e) {
+				throw json.error(e.getMessage());
+			}
+		}
+	}
+
+}
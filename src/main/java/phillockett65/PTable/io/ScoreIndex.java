@@ -0,0 +1,478 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ScoreIndex is a class that is responsible for holding the Quantities of 
+ * every layout in a layout library (a file written by LayoutFile), so that 
+ * the library can be sorted and filtered without scoring the layouts again. 
+ * The index is saved alongside the library, with INDEX_EXTENSION appended 
+ * to the library name, and is rebuilt when the library changes. All values 
+ * are big-endian. The index file holds:
+ * 
+ *   int	MAGIC
+ *   short	VERSION
+ *   short	reserved
+ *   long	size of the library when indexed (in bytes)
+ *   long	last modified time of the library when indexed (in ms)
+ *   int	count of layouts
+ *   int	reserved
+ *   long	offset of each layout in the library
+ *   short	rows of each layout
+ *   short	cols of each layout
+ *   float	value of each layout for each quantity, quantity by quantity
+ * 
+ * The values are held column by column, both in the file and in memory, so 
+ * they can be read with bulk transfers and a column can be scanned without 
+ * touching the others. Each column is transferred through its own buffer, 
+ * so the file can be larger than a single buffer allows, but the number of 
+ * layouts is limited to MAX_COUNT so that the widest column (the offsets) 
+ * fits in one.
+ */
+package phillockett65.PTable.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+
+import phillockett65.PTable.table.Layout;
+import phillockett65.PTable.table.Quantifier;
+import phillockett65.PTable.table.Quantities;
+
+public class ScoreIndex {
+
+	public final static String INDEX_EXTENSION = ".idx";
+
+	public final static int MAGIC = 0x50544449;	// "PTDI"
+	public final static short VERSION = 1;
+	public final static int HEADER_SIZE = 32;
+	public final static int MAX_COUNT = Integer.MAX_VALUE / 8;
+
+	// The columns that can be sorted and filtered on. The Quantities follow 
+	// the layout dimensions, in the order of their identifiers.
+	public final static int ENTRY = 0;
+	public final static int ROWS = 1;
+	public final static int COLS = 2;
+	public final static int ELEMENT_COUNT = 3 + Quantities.ELEMENT_COUNT;
+	public final static int NEIGHBOUR_COUNT = 3 + Quantities.NEIGHBOUR_COUNT;
+	public final static int SHELL_SIMILARITY = 3 + Quantities.SHELL_SIMILARITY;
+	public final static int SUBSHELL_SIMILARITY = 3 + Quantities.SUBSHELL_SIMILARITY;
+	public final static int CONFIG_SIMILARITY = 3 + Quantities.CONFIG_SIMILARITY;
+	public final static int MAX_COLUMN = 3 + Quantities.MAX_QUANTITY;
+
+	// Number of layouts scored between progress reports and checks for 
+	// cancellation.
+	private final static int PROGRESS_STEP = 1024;
+
+	private final long librarySize;
+	private final long libraryModified;
+	private final int count;
+	private final long[] offsets;
+	private final short[] rows;
+	private final short[] cols;
+	private final float[][] values;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param librarySize		- size of the library when indexed.
+	 * @param libraryModified	- last modified time of the library when 
+	 * 							  indexed.
+	 * @param count				- number of layouts in the library.
+	 */
+	private ScoreIndex(long librarySize, long libraryModified, int count) {
+		this.librarySize = librarySize;
+		this.libraryModified = libraryModified;
+		this.count = count;
+		offsets = new long[count];
+		rows = new short[count];
+		cols = new short[count];
+		values = new float[Quantities.MAX_QUANTITY][count];
+	}
+
+	/**
+	 * Get the path of the index of the given library.
+	 * 
+	 * @param library	path of the layout library.
+	 * @return the path of the index.
+	 */
+	public static Path getIndexPath(Path library) {
+		return library.resolveSibling(library.getFileName() + INDEX_EXTENSION);
+	}
+
+	/**
+	 * Get the index of the given library, reading the saved index if it is 
+	 * up to date, otherwise scoring every layout in the library and saving 
+	 * the index for next time.
+	 * 
+	 * @param library	path of the layout library.
+	 * @param progress	called with the fraction of the library scored, if 
+	 * 					the index is rebuilt, may be null.
+	 * @param cancelled	checked while the index is rebuilt, which stops 
+	 * 					when it returns true, may be null.
+	 * @return the index of the library.
+	 * @throws IOException if the library can't be read or is not valid.
+	 * @throws CancellationException if the rebuild is cancelled, in which 
+	 * case the saved index is left unchanged.
+	 */
+	public static ScoreIndex load(Path library, DoubleConsumer progress, 
+			BooleanSupplier cancelled) throws IOException {
+		final Path path = getIndexPath(library);
+		final long size = Files.size(library);
+		final long modified = Files.getLastModifiedTime(library).toMillis();
+
+		if (Files.exists(path)) {
+			try {
+				ScoreIndex index = read(path);
+				if ((index.librarySize == size) && (index.libraryModified == modified))
+					return index;
+			} catch (IOException e) {
+				// Rebuild an unreadable index.
+			}
+		}
+
+		ScoreIndex index = build(library, progress, cancelled);
+		try {
+			index.write(path);
+		} catch (IOException e) {
+			// The index can still be used, it is rebuilt next time.
+		}
+
+		return index;
+	}
+
+	/**
+	 * Score every layout in the given library, with deviations relative to 
+	 * the standard layout, as used by the batch scorer.
+	 * 
+	 * @param library	path of the layout library.
+	 * @param progress	called with the fraction of the library scored, may 
+	 * 					be null.
+	 * @param cancelled	checked every PROGRESS_STEP layouts, the build stops 
+	 * 					when it returns true, may be null.
+	 * @return the index of the library.
+	 * @throws IOException if the library can't be read or is not valid.
+	 * @throws CancellationException if the build is cancelled.
+	 */
+	public static ScoreIndex build(Path library, DoubleConsumer progress, 
+			BooleanSupplier cancelled) throws IOException {
+		final long modified = Files.getLastModifiedTime(library).toMillis();
+
+		try (LayoutFileReader reader = new LayoutFileReader(library)) {
+			// Find the layouts first so the columns can be sized.
+			long[] offsets = new long[PROGRESS_STEP];
+			int count = 0;
+			while (reader.next()) {
+				if (count == offsets.length) {
+					checkCancelled(cancelled);
+					offsets = Arrays.copyOf(offsets, count * 2);
+				}
+				offsets[count++] = reader.getOffset();
+			}
+
+			final long size = Files.size(library);
+			ScoreIndex index = new ScoreIndex(size, modified, count);
+			System.arraycopy(offsets, 0, index.offsets, 0, count);
+
+			final Quantifier quantifier = Quantifier.createStandard();
+			Layout layout = null;
+			for (int i = 0; i < count; ++i) {
+				reader.seek(index.offsets[i]);
+				final int r = reader.getRows();
+				final int c = reader.getCols();
+				index.rows[i] = (short)r;
+				index.cols[i] = (short)c;
+
+				// Reuse the Layout while the dimensions don't change.
+				if ((layout == null) || (layout.getRows() != r) || (layout.getCols() != c))
+					layout = new Layout(r, c);
+				reader.readLayout(layout);
+
+				quantifier.setLayout(layout);
+				final Quantities quantities = quantifier.getQuantities();
+				for (int q = 0; q < Quantities.MAX_QUANTITY; ++q)
+					index.values[q][i] = quantities.getValue(q);
+
+				if ((i % PROGRESS_STEP) == 0) {
+					checkCancelled(cancelled);
+					if (progress != null)
+						progress.accept((double)i / count);
+				}
+			}
+
+			return index;
+		}
+	}
+
+	/**
+	 * Stop a build if it has been cancelled.
+	 * 
+	 * @param cancelled	returns true if the build is cancelled, may be null.
+	 * @throws CancellationException if the build is cancelled.
+	 */
+	private static void checkCancelled(BooleanSupplier cancelled) {
+		if ((cancelled != null) && cancelled.getAsBoolean())
+			throw new CancellationException("indexing cancelled");
+	}
+
+	/**
+	 * Get the size of an index file holding the given number of layouts.
+	 * 
+	 * @param count	of the layouts.
+	 * @return the size of the index file (in bytes).
+	 */
+	private static long getFileSize(int count) {
+		return HEADER_SIZE + (long)count * (8 + 2 + 2 + 4 * Quantities.MAX_QUANTITY);
+	}
+
+	/**
+	 * Read an index file. Each column is memory-mapped separately and read 
+	 * with a single bulk transfer.
+	 * 
+	 * @param path	of the index file.
+	 * @return the index.
+	 * @throws IOException if the file can't be read or is not an index file.
+	 */
+	public static ScoreIndex read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long fileSize = channel.size();
+			if (fileSize < HEADER_SIZE)
+				throw new IOException(path + ": not a score index");
+
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (buffer.getInt() != MAGIC)
+				throw new IOException(path + ": not a score index");
+
+			final short version = buffer.getShort();
+			if (version != VERSION)
+				throw new IOException(path + ": unsupported score index version " + version);
+
+			buffer.getShort();
+			final long librarySize = buffer.getLong();
+			final long libraryModified = buffer.getLong();
+			final int count = buffer.getInt();
+			buffer.getInt();
+			if ((count < 0) || (count > MAX_COUNT))
+				throw new IOException(path + ": score index has too many layouts (" + count + ")");
+			if (fileSize != getFileSize(count))
+				throw new IOException(path + ": score index size doesn't match its contents");
+
+			ScoreIndex index = new ScoreIndex(librarySize, libraryModified, count);
+			long position = HEADER_SIZE;
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, 8 * count);
+			buffer.asLongBuffer().get(index.offsets);
+			position += 8 * count;
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, 2 * count);
+			buffer.asShortBuffer().get(index.rows);
+			position += 2 * count;
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, 2 * count);
+			buffer.asShortBuffer().get(index.cols);
+			position += 2 * count;
+			for (int q = 0; q < Quantities.MAX_QUANTITY; ++q) {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, 4 * count);
+				buffer.asFloatBuffer().get(index.values[q]);
+				position += 4 * count;
+			}
+
+			return index;
+		}
+	}
+
+	/**
+	 * Write the whole of the given buffer to the channel.
+	 * 
+	 * @param channel	to write to.
+	 * @param buffer	to write.
+	 * @throws IOException if the channel can't be written.
+	 */
+	private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	/**
+	 * Write the index to a file, replacing any existing content. The header 
+	 * and each column are written from their own buffer.
+	 * 
+	 * @param path	of the index file.
+	 * @throws IOException if the file can't be written or the index has 
+	 * more than MAX_COUNT layouts.
+	 */
+	public void write(Path path) throws IOException {
+		if (count > MAX_COUNT)
+			throw new IOException(path + ": too many layouts to index (" + count + "), the limit is " + MAX_COUNT);
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.putShort((short)0);
+		buffer.putLong(librarySize);
+		buffer.putLong(libraryModified);
+		buffer.putInt(count);
+		buffer.putInt(0);
+		buffer.flip();
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, 
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(channel, buffer);
+
+			buffer = ByteBuffer.allocate(8 * count);
+			buffer.asLongBuffer().put(offsets);
+			write(channel, buffer);
+			buffer = ByteBuffer.allocate(2 * count);
+			buffer.asShortBuffer().put(rows);
+			write(channel, buffer);
+			buffer.clear();
+			buffer.asShortBuffer().put(cols);
+			write(channel, buffer);
+			buffer = ByteBuffer.allocate(4 * count);
+			for (int q = 0; q < Quantities.MAX_QUANTITY; ++q) {
+				buffer.clear();
+				buffer.asFloatBuffer().put(values[q]);
+				write(channel, buffer);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of layouts in the library.
+	 * 
+	 * @return the number of layouts.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the offset of the given layout in the library, which can be passed 
+	 * to LayoutFileReader.seek() to read it.
+	 * 
+	 * @param entry	number of the layout in the library.
+	 * @return the offset of the layout.
+	 */
+	public long getOffset(int entry) {
+		return offsets[entry];
+	}
+
+	/**
+	 * Get the value of the given column for the given layout.
+	 * 
+	 * @param column	ENTRY to CONFIG_SIMILARITY.
+	 * @param entry		number of the layout in the library.
+	 * @return the value.
+	 */
+	public float getValue(int column, int entry) {
+		switch (column) {
+		case ENTRY:	return entry;
+		case ROWS:	return rows[entry];
+		case COLS:	return cols[entry];
+		default:	return values[column - ELEMENT_COUNT][entry];
+		}
+	}
+
+	/**
+	 * Get the numbers of all the layouts in the library, in library order.
+	 * 
+	 * @return the layout numbers.
+	 */
+	public int[] getEntries() {
+		int[] entries = new int[count];
+		for (int i = 0; i < count; ++i)
+			entries[i] = i;
+
+		return entries;
+	}
+
+	/**
+	 * Get a key for the value of the given column for the given layout that 
+	 * sorts in the same order as the value when compared as a signed int. 
+	 * The bits of a float sort correctly when positive, so the bits of 
+	 * negative values are flipped to reverse their order.
+	 * 
+	 * @param column	ENTRY to CONFIG_SIMILARITY.
+	 * @param entry		number of the layout in the library.
+	 * @return the sort key.
+	 */
+	private int getKey(int column, int entry) {
+		switch (column) {
+		case ENTRY:	return entry;
+		case ROWS:	return rows[entry];
+		case COLS:	return cols[entry];
+		default:
+			final int bits = Float.floatToIntBits(values[column - ELEMENT_COUNT][entry]);
+			return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+		}
+	}
+
+	/**
+	 * Sort the given layouts on the given column. The key and the layout 
+	 * number are packed into a long, so a primitive sort can be used and 
+	 * layouts with the same value stay in library order.
+	 * 
+	 * @param entries		- numbers of the layouts to sort.
+	 * @param column		- ENTRY to CONFIG_SIMILARITY.
+	 * @param descending	- true to sort largest first.
+	 * @return the sorted layout numbers.
+	 */
+	public int[] sort(int[] entries, int column, boolean descending) {
+		long[] keys = new long[entries.length];
+		for (int i = 0; i < keys.length; ++i) {
+			final int entry = entries[i];
+			final int key = getKey(column, entry);
+			keys[i] = ((long)(descending ? ~key : key) << 32) | entry;
+		}
+		Arrays.sort(keys);
+
+		int[] sorted = new int[keys.length];
+		for (int i = 0; i < sorted.length; ++i)
+			sorted[i] = (int)keys[i];
+
+		return sorted;
+	}
+
+	/**
+	 * Get the given layouts that have a value of the given column within the 
+	 * given range, keeping their order.
+	 * 
+	 * @param entries	- numbers of the layouts to filter.
+	 * @param column	- ENTRY to CONFIG_SIMILARITY.
+	 * @param min		- lowest value to keep.
+	 * @param max		- highest value to keep.
+	 * @return the numbers of the layouts in range.
+	 */
+	public int[] filter(int[] entries, int column, float min, float max) {
+		int[] filtered = new int[entries.length];
+		int length = 0;
+		for (final int entry : entries) {
+			final float value = getValue(column, entry);
+			if ((value >= min) && (value <= max))
+				filtered[length++] = entry;
+		}
+
+		return Arrays.copyOf(filtered, length);
+	}
+
+}
@@ -0,0 +1,136 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TextFormat is a class of helpers shared by the classes that exchange data 
+ * with other tools as CSV or JSON. It identifies the format from the file 
+ * name, quotes values for either format and converts packed 0xRRGGBBAA 
+ * colours to and from the "#rrggbbaa" form used in the text formats.
+ */
+package phillockett65.PTable.io;
+
+import java.io.IOException;
+
+public class TextFormat {
+
+	public final static int UNKNOWN = -1;
+	public final static int CSV = 0;
+	public final static int JSON = 1;
+
+	public final static String CSV_EXTENSION = ".csv";
+	public final static String JSON_EXTENSION = ".json";
+	public final static String JSON_LINES_EXTENSION = ".jsonl";
+
+	/**
+	 * Get the text format indicated by the extension of the given file name.
+	 * 
+	 * @param name	of the file.
+	 * @return CSV, JSON or UNKNOWN.
+	 */
+	public static int findFormat(String name) {
+		final String lower = name.toLowerCase();
+		if (lower.endsWith(CSV_EXTENSION))
+			return CSV;
+
+		if (lower.endsWith(JSON_EXTENSION) || lower.endsWith(JSON_LINES_EXTENSION))
+			return JSON;
+
+		return UNKNOWN;
+	}
+
+	/**
+	 * Quote a value for CSV, only if it contains a comma, quote or line 
+	 * break.
+	 * 
+	 * @param value	to quote.
+	 * @return the value, quoted if necessary.
+	 */
+	public static String quoteCsv(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && 
+				value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+			return value;
+
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * Quote a value as a JSON string.
+	 * 
+	 * @param value	to quote.
+	 * @return the JSON string.
+	 */
+	public static String quoteJson(String value) {
+		StringBuilder builder = new StringBuilder(value.length() + 2);
+		builder.append('"');
+		for (int i = 0; i < value.length(); ++i) {
+			final char c = value.charAt(i);
+			switch (c) {
+			case '"':	builder.append("\\\""); break;
+			case '\\':	builder.append("\\\\"); break;
+			case '\n':	builder.append("\\n"); break;
+			case '\r':	builder.append("\\r"); break;
+			case '\t':	builder.append("\\t"); break;
+			default:
+				if (c < ' ')
+					builder.append(String.format("\\u%04x", (int)c));
+				else
+					builder.append(c);
+			}
+		}
+		builder.append('"');
+
+		return builder.toString();
+	}
+
+	/**
+	 * Format a packed colour as "#rrggbbaa".
+	 * 
+	 * @param colour	packed as 0xRRGGBBAA.
+	 * @return the formatted colour.
+	 */
+	public static String formatColour(int colour) {
+		return String.format("#%08x", colour);
+	}
+
+	/**
+	 * Parse a colour formatted as "#rrggbb" or "#rrggbbaa", where a missing 
+	 * alpha is taken as opaque.
+	 * 
+	 * @param value	to parse.
+	 * @return the colour packed as 0xRRGGBBAA.
+	 * @throws IOException if the value is not a colour.
+	 */
+	public static int parseColour(String value) throws IOException {
+		final int length = value.length();
+		if (((length != 7) && (length != 9)) || (value.charAt(0) != '#'))
+			throw new IOException("bad colour \"" + value + "\"");
+
+		try {
+			final int colour = Integer.parseUnsignedInt(value.substring(1), 16);
+			if (length == 7)
+				return (colour << 8) | 0xFF;
+
+			return colour;
+		} catch (NumberFormatException e) {
+			throw new IOException("bad colour \"" + value + "\"");
+		}
+	}
+
+}
@@ -0,0 +1,252 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * Annealer is a class that is responsible for searching for an improved 
+ * layout of a Grid using simulated annealing. It runs headless on a copy 
+ * of the Layout of the Grid, proposing random swaps and block moves 
+ * and scoring them with an Objective based on the Quantifier metrics.
+ * 
+ * The search runs until either the maximum number of iterations or the 
+ * maximum time is reached, or stop() is called. The temperature is taken 
+ * from the Schedule using whichever budget is nearer to being used up. Only 
+ * valid proposals count as iterations, so proposals that can't be made 
+ * (e.g. a block move off the edge of the layout) don't use up the budget 
+ * or cool the schedule, which would otherwise depend on how often the 
+ * edges are hit. The best layout found so far can be retrieved at any 
+ * time, including from another thread while the search is running.
+ */
+package phillockett65.PTable.optimiser;
+
+import phillockett65.PTable.table.Grid;
+import phillockett65.PTable.table.Layout;
+import phillockett65.PTable.table.Quantities;
+
+public class Annealer {
+
+	// Number of proposals between checks of the clock and stop flag.
+	private static final int CHECK_INTERVAL = 1024;
+
+	private final Layout start;
+	private final Objective objective;
+
+	private Schedule schedule = new GeometricSchedule(0.01, 0.00001);
+	private long maxIterations = 10_000_000L;
+	private long maxTime = 60_000L;
+	private long seed = System.nanoTime();
+	private float swapRatio = 0.5F;
+	private int maxBlock = 3;
+
+	private volatile boolean stopped = false;
+	private volatile long iterations = 0;
+	private Layout best;
+	private float bestScore;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param grid to start the search from.
+	 */
+	public Annealer(Grid grid) {
+		this(grid.getLayout());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param start layout to start the search from.
+	 */
+	public Annealer(Layout start) {
+		this.start = new Layout(start);
+		objective = new Objective(start);
+		best = new Layout(start);
+		bestScore = objective.evaluate(start);
+	}
+
+	/**
+	 * Set the Schedule that gives the temperature as the budget is used up.
+	 * 
+	 * @param schedule of the temperature.
+	 */
+	public void setSchedule(Schedule schedule) {
+		this.schedule = schedule;
+	}
+
+	/**
+	 * Set the maximum number of valid proposals to make.
+	 * 
+	 * @param maxIterations number of proposals.
+	 */
+	public void setMaxIterations(long maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Set the maximum time to run the search for.
+	 * 
+	 * @param maxTime in milliseconds.
+	 */
+	public void setMaxTime(long maxTime) {
+		this.maxTime = maxTime;
+	}
+
+	/**
+	 * Set the seed of the random number generator, so that a search can be 
+	 * repeated.
+	 * 
+	 * @param seed for the random number generator.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Set the proportion of steps that are swaps rather than block moves.
+	 * 
+	 * @param swapRatio from 0 (only block moves) to 1 (only swaps).
+	 */
+	public void setSwapRatio(float swapRatio) {
+		this.swapRatio = swapRatio;
+	}
+
+	/**
+	 * Set the maximum height and width of the blocks that are moved.
+	 * 
+	 * @param maxBlock size of the block moves.
+	 */
+	public void setMaxBlock(int maxBlock) {
+		this.maxBlock = maxBlock;
+	}
+
+	/**
+	 * Get the Objective used to score the layouts, which is relative to 
+	 * the starting layout.
+	 * 
+	 * @return the Objective of the search.
+	 */
+	public Objective getObjective() {
+		return objective;
+	}
+
+	/**
+	 * Get the number of candidate layouts evaluated so far.
+	 * 
+	 * @return the number of iterations performed.
+	 */
+	public long getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Request that a running search stops at the next opportunity.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Note the given layout if it is better than the best so far.
+	 * 
+	 * @param chain that may have found a better layout.
+	 */
+	private synchronized void updateBest(Chain chain) {
+		best.copyFrom(chain.getCurrent());
+		bestScore = chain.getScore();
+	}
+
+	/**
+	 * Get a snapshot of the best layout found so far.
+	 * 
+	 * @return a copy of the best layout.
+	 */
+	public synchronized Layout getBest() {
+		return new Layout(best);
+	}
+
+	/**
+	 * Get the score of the best layout found so far.
+	 * 
+	 * @return the score of the best layout, lower is better.
+	 */
+	public synchronized float getBestScore() {
+		return bestScore;
+	}
+
+	/**
+	 * Get the Quantities of the best layout found so far, relative to 
+	 * the starting layout.
+	 * 
+	 * @return the Quantities of the best layout.
+	 */
+	public Quantities getBestQuantities() {
+		return objective.getQuantities(getBest());
+	}
+
+	/**
+	 * Run the search until the budget is used up or stop() is called.
+	 * 
+	 * @return a copy of the best layout found.
+	 */
+	public Layout run() {
+		stopped = false;
+		iterations = 0;
+
+		Chain chain = new Chain(objective, start, seed);
+		chain.setSwapRatio(swapRatio);
+		chain.setMaxBlock(maxBlock);
+
+		final long startTime = System.currentTimeMillis();
+		double temperature = schedule.getTemperature(0);
+		float target = getBestScore();
+		long count = 0;
+		long proposals = 0;
+
+		while (count < maxIterations) {
+			final int outcome = chain.step(temperature);
+			if (outcome != Chain.INVALID) {
+				count++;
+				if ((outcome == Chain.ACCEPTED) && (chain.getScore() < target)) {
+					updateBest(chain);
+					target = chain.getScore();
+				}
+			}
+
+			if ((++proposals % CHECK_INTERVAL) == 0) {
+				iterations = count;
+				if (stopped)
+					break;
+
+				final long elapsed = System.currentTimeMillis() - startTime;
+				if (elapsed >= maxTime)
+					break;
+
+				final double progress = Math.max(
+						(double)count / maxIterations, 
+						(double)elapsed / maxTime);
+				temperature = schedule.getTemperature(progress);
+			}
+		}
+		iterations = count;
+
+		return getBest();
+	}
+
+}
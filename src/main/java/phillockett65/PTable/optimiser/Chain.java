@@ -0,0 +1,276 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * Chain is a class that is responsible for a single Markov chain of the 
+ * search. Each step proposes a random change to the current layout, 
+ * either swapping two positions or moving a block of cells in the same way 
+ * as Grid.moveSelection(), and accepts or rejects it using the Metropolis 
+ * criterion at the given temperature.
+ * 
+ * Only the pairs of neighbours touching the changed positions are 
+ * re-scored. The positions about to change are marked and the cost of their 
+ * pairs removed, the change is made, then the cost of the pairs is added 
+ * back, using the same NeighbourTracker as Quantifier. A rejected change is 
+ * simply reversed. The score is accumulated from these changes, so to stop 
+ * rounding errors building up over a long search it is recalculated with a 
+ * full scan every RESYNC_INTERVAL accepted changes.
+ * 
+ * A Chain is not thread safe, but Chains sharing an Objective can be run on 
+ * different threads.
+ */
+package phillockett65.PTable.optimiser;
+
+import java.util.SplittableRandom;
+
+import phillockett65.PTable.table.Layout;
+import phillockett65.PTable.table.NeighbourTracker;
+
+class Chain {
+
+	// Outcomes of a step. A change that can't be made, such as moving a 
+	// block off the edge of the layout, is INVALID and doesn't count as a 
+	// step of the search.
+	static final int INVALID = 0;
+	static final int REJECTED = 1;
+	static final int ACCEPTED = 2;
+
+	// Number of accepted changes between full recalculations of the score.
+	static final int RESYNC_INTERVAL = 4096;
+
+	private final Objective objective;
+	private final Layout current;
+	private final SplittableRandom random;
+	private final int rows;
+	private final int cols;
+	private final int size;
+
+	private final NeighbourTracker tracker;
+	private float delta = 0F;
+
+	private float score;
+	private int acceptedCount = 0;
+	private float swapRatio = 0.5F;
+	private int maxBlock = 3;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param objective	- used to score the layout.
+	 * @param start		- layout to start from (copied).
+	 * @param seed		- for the random number generator.
+	 */
+	Chain(Objective objective, Layout start, long seed) {
+		this.objective = objective;
+		current = new Layout(start);
+		random = new SplittableRandom(seed);
+		rows = current.getRows();
+		cols = current.getCols();
+		size = current.getSize();
+
+		tracker = new NeighbourTracker(current, 
+				(key, adjacent, sign) -> delta += sign * objective.getCost(key, adjacent));
+
+		score = objective.evaluate(current);
+	}
+
+	/**
+	 * Get the layout being searched. This changes with every accepted 
+	 * step, so take a copy to keep it.
+	 * 
+	 * @return the current layout.
+	 */
+	Layout getCurrent() {
+		return current;
+	}
+
+	/**
+	 * Get the score of the current layout.
+	 * 
+	 * @return the score of the current layout.
+	 */
+	float getScore() {
+		return score;
+	}
+
+	/**
+	 * Set the proportion of steps that are swaps rather than block moves.
+	 * 
+	 * @param ratio from 0 (only block moves) to 1 (only swaps).
+	 */
+	void setSwapRatio(float ratio) {
+		swapRatio = ratio;
+	}
+
+	/**
+	 * Set the maximum height and width of the blocks that are moved.
+	 * 
+	 * @param max size of the block moves.
+	 */
+	void setMaxBlock(int max) {
+		maxBlock = max;
+	}
+
+	/**
+	 * Apply an accepted change in score, recalculating the score with a 
+	 * full scan every RESYNC_INTERVAL accepted changes.
+	 * 
+	 * @param delta	change in score.
+	 */
+	private void acceptDelta(float delta) {
+		if (++acceptedCount < RESYNC_INTERVAL) {
+			score += delta;
+			return;
+		}
+
+		acceptedCount = 0;
+		score = objective.evaluate(current);
+	}
+
+	/**
+	 * Decide whether to accept a change in score at the given temperature.
+	 * 
+	 * @param delta			change in score (negative is an improvement).
+	 * @param temperature	current temperature.
+	 * @return true if the change should be accepted.
+	 */
+	private boolean accept(float delta, double temperature) {
+		if (delta <= 0F)
+			return true;
+
+		if (temperature <= 0)
+			return false;
+
+		return random.nextDouble() < Math.exp(-delta / temperature);
+	}
+
+	/**
+	 * Perform a single step of the search.
+	 * 
+	 * @param temperature	current temperature.
+	 * @return ACCEPTED, REJECTED or INVALID if no valid change was proposed.
+	 */
+	int step(double temperature) {
+		if (random.nextDouble() < swapRatio)
+			return swapStep(temperature);
+
+		return blockStep(temperature);
+	}
+
+	/**
+	 * Propose swapping two random positions.
+	 * 
+	 * @param temperature	current temperature.
+	 * @return ACCEPTED, REJECTED or INVALID if the swap changes nothing.
+	 */
+	private int swapStep(double temperature) {
+		final int a = random.nextInt(size);
+		final int b = random.nextInt(size);
+		if ((a == b) || (current.isBlank(a) && current.isBlank(b)))
+			return INVALID;
+
+		tracker.beginChange();
+		tracker.markCell(a);
+		tracker.markCell(b);
+		current.swap(a, b);
+		final float delta = commit();
+
+		if (accept(delta, temperature)) {
+			acceptDelta(delta);
+			return ACCEPTED;
+		}
+
+		current.swap(a, b);
+
+		return REJECTED;
+	}
+
+	/**
+	 * Propose moving a random block of cells in a random direction.
+	 * 
+	 * @param temperature	current temperature.
+	 * @return ACCEPTED, REJECTED or INVALID if the block can't be moved.
+	 */
+	private int blockStep(double temperature) {
+		final int height = 1 + random.nextInt(Math.min(maxBlock, rows));
+		final int width = 1 + random.nextInt(Math.min(maxBlock, cols));
+		final int top = random.nextInt(rows - height + 1);
+		final int left = random.nextInt(cols - width + 1);
+		final int bottom = top + height - 1;
+		final int right = left + width - 1;
+		final int direction = random.nextInt(Layout.MAX_DIRECTION);
+
+		if (!current.isMove(top, left, bottom, right, direction))
+			return INVALID;
+
+		tracker.beginChange();
+		tracker.markMove(top, left, bottom, right, direction);
+		current.moveBlock(top, left, bottom, right, direction);
+		final float delta = commit();
+
+		if (accept(delta, temperature)) {
+			acceptDelta(delta);
+			return ACCEPTED;
+		}
+
+		// Move the block back from where it ended up.
+		switch (direction) {
+		case Layout.UP:
+			current.moveBlock(top-1, left, bottom-1, right, Layout.DOWN);
+			break;
+
+		case Layout.DOWN:
+			current.moveBlock(top+1, left, bottom+1, right, Layout.UP);
+			break;
+
+		case Layout.LEFT:
+			current.moveBlock(top, left-1, bottom, right-1, Layout.RIGHT);
+			break;
+
+		case Layout.RIGHT:
+			current.moveBlock(top, left+1, bottom, right+1, Layout.LEFT);
+			break;
+		}
+
+		return REJECTED;
+	}
+
+
+/************************************************************************
+ * Incremental scoring support section.
+ */
+
+	/**
+	 * Add back the cost of the pairs of the marked positions after the 
+	 * change and clear the marks.
+	 * 
+	 * @return the change in score.
+	 */
+	private float commit() {
+		tracker.endChange();
+
+		final float ret = delta;
+		delta = 0F;
+
+		return ret;
+	}
+
+}
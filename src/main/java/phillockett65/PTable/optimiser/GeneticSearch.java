@@ -0,0 +1,709 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * GeneticSearch is a class that is responsible for searching for an 
+ * improved layout of a Grid using a genetic algorithm. A population of 
+ * layouts is evolved by tournament selection, permutation crossover and 
+ * mutation by the same swaps and block moves used by Chain, with the best 
+ * few layouts of each generation carried over unchanged.
+ * 
+ * Each layout is encoded as a permutation of tokens, one per position: an 
+ * Element is represented by its key and the blank that starts at position 
+ * i by (count + i). This makes every position distinct, so order crossover 
+ * (OX) and partially mapped crossover (PMX) always produce a valid layout 
+ * with every Element exactly once. Tokens are decoded back to a Layout to 
+ * be scored by the Objective. A genome is only ever swapped, moved and 
+ * copied, never scored or displayed, as its blank tokens are not valid 
+ * Element keys.
+ * 
+ * The population is scored in chunks on a ForkJoinPool. Scores are cached 
+ * by the canonical hash of the decoded layout, so a layout that reappears, 
+ * e. g. a child that matches a parent, or a mirror image of one, is never 
+ * scored twice. The hash is found without creating the canonical layout, 
+ * and with 64 bits a collision within the cache is vanishingly unlikely. 
+ * All random choices are made on the calling thread, so a given seed 
+ * always gives the same result.
+ */
+package phillockett65.PTable.optimiser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import phillockett65.PTable.elements.Elements;
+import phillockett65.PTable.table.Grid;
+import phillockett65.PTable.table.Layout;
+import phillockett65.PTable.table.Quantities;
+
+public class GeneticSearch {
+
+	public final static int ORDER_CROSSOVER = 0;
+	public final static int PARTIALLY_MAPPED_CROSSOVER = 1;
+
+	// Number of random mutations applied to each initial layout.
+	private static final int INITIAL_MUTATIONS = 16;
+
+	private final Layout start;
+	private final Objective objective;
+	private final int count;
+	private final int size;
+
+	private int populationSize = 200;
+	private int eliteCount = 4;
+	private int tournamentSize = 3;
+	private float crossoverRate = 0.8F;
+	private float mutationRate = 0.5F;
+	private int crossover = ORDER_CROSSOVER;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private int maxGenerations = 10_000;
+	private long maxTime = 60_000L;
+	private int maxCacheSize = 100_000;
+	private long seed = System.nanoTime();
+	private float swapRatio = 0.5F;
+	private int maxBlock = 3;
+
+	private final ConcurrentHashMap<Long, Float> cache = new ConcurrentHashMap<Long, Float>();
+
+	private volatile boolean stopped = false;
+	private volatile int generations = 0;
+	private volatile long evaluations = 0;
+	private volatile long cacheHits = 0;
+	private Layout best;
+	private float bestScore;
+
+	// Work space for crossover, indexed by token.
+	private int[] positions;
+	private boolean[] used;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param grid to start the search from.
+	 */
+	public GeneticSearch(Grid grid) {
+		this(grid.getLayout());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param start layout to start the search from.
+	 */
+	public GeneticSearch(Layout start) {
+		this.start = new Layout(start);
+		objective = new Objective(start);
+		count = Elements.lastKey() + 1;
+		size = start.getSize();
+		best = new Layout(start);
+		bestScore = objective.evaluate(start);
+	}
+
+	/**
+	 * Set the number of layouts in each generation.
+	 * 
+	 * @param populationSize number of layouts (at least 2).
+	 */
+	public void setPopulationSize(int populationSize) {
+		this.populationSize = Math.max(2, populationSize);
+	}
+
+	/**
+	 * Set the number of best layouts carried over unchanged to the next 
+	 * generation.
+	 * 
+	 * @param eliteCount number of layouts.
+	 */
+	public void setEliteCount(int eliteCount) {
+		this.eliteCount = Math.max(0, eliteCount);
+	}
+
+	/**
+	 * Set the number of layouts competing in each tournament to be a 
+	 * parent. Larger tournaments favour the better layouts more strongly.
+	 * 
+	 * @param tournamentSize number of layouts (at least 1).
+	 */
+	public void setTournamentSize(int tournamentSize) {
+		this.tournamentSize = Math.max(1, tournamentSize);
+	}
+
+	/**
+	 * Set the proportion of children produced by crossover rather than 
+	 * copying a parent.
+	 * 
+	 * @param crossoverRate from 0 to 1.
+	 */
+	public void setCrossoverRate(float crossoverRate) {
+		this.crossoverRate = crossoverRate;
+	}
+
+	/**
+	 * Set the proportion of children that are mutated.
+	 * 
+	 * @param mutationRate from 0 to 1.
+	 */
+	public void setMutationRate(float mutationRate) {
+		this.mutationRate = mutationRate;
+	}
+
+	/**
+	 * Set the crossover operator.
+	 * 
+	 * @param crossover either ORDER_CROSSOVER or PARTIALLY_MAPPED_CROSSOVER.
+	 */
+	public void setCrossover(int crossover) {
+		this.crossover = crossover;
+	}
+
+	/**
+	 * Set the number of threads used to score the population.
+	 * 
+	 * @param parallelism number of threads.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Set the maximum number of generations to evolve.
+	 * 
+	 * @param maxGenerations number of generations.
+	 */
+	public void setMaxGenerations(int maxGenerations) {
+		this.maxGenerations = maxGenerations;
+	}
+
+	/**
+	 * Set the maximum time to run the search for.
+	 * 
+	 * @param maxTime in milliseconds.
+	 */
+	public void setMaxTime(long maxTime) {
+		this.maxTime = maxTime;
+	}
+
+	/**
+	 * Set the maximum number of scores to cache. The cache is emptied 
+	 * when it grows beyond this.
+	 * 
+	 * @param maxCacheSize number of layouts.
+	 */
+	public void setMaxCacheSize(int maxCacheSize) {
+		this.maxCacheSize = maxCacheSize;
+	}
+
+	/**
+	 * Set the seed of the random number generator, so that a search can be 
+	 * repeated.
+	 * 
+	 * @param seed for the random number generator.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Set the proportion of mutations that are swaps rather than block 
+	 * moves.
+	 * 
+	 * @param swapRatio from 0 (only block moves) to 1 (only swaps).
+	 */
+	public void setSwapRatio(float swapRatio) {
+		this.swapRatio = swapRatio;
+	}
+
+	/**
+	 * Set the maximum height and width of the blocks moved by a mutation.
+	 * 
+	 * @param maxBlock size of the block moves.
+	 */
+	public void setMaxBlock(int maxBlock) {
+		this.maxBlock = maxBlock;
+	}
+
+	/**
+	 * Get the Objective used to score the layouts, which is relative to 
+	 * the starting layout.
+	 * 
+	 * @return the Objective of the search.
+	 */
+	public Objective getObjective() {
+		return objective;
+	}
+
+	/**
+	 * Get the number of generations evolved so far.
+	 * 
+	 * @return the number of generations.
+	 */
+	public int getGenerations() {
+		return generations;
+	}
+
+	/**
+	 * Get the number of layouts scored so far, not counting those whose 
+	 * score was found in the cache.
+	 * 
+	 * @return the number of layouts scored.
+	 */
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * Get the number of layouts whose score was found in the cache.
+	 * 
+	 * @return the number of cache hits.
+	 */
+	public long getCacheHits() {
+		return cacheHits;
+	}
+
+	/**
+	 * Request that a running search stops at the end of the current 
+	 * generation.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Get a snapshot of the best layout found so far.
+	 * 
+	 * @return a copy of the best layout.
+	 */
+	public synchronized Layout getBest() {
+		return new Layout(best);
+	}
+
+	/**
+	 * Get the score of the best layout found so far.
+	 * 
+	 * @return the score of the best layout, lower is better.
+	 */
+	public synchronized float getBestScore() {
+		return bestScore;
+	}
+
+	/**
+	 * Get the Quantities of the best layout found so far, relative to 
+	 * the starting layout.
+	 * 
+	 * @return the Quantities of the best layout.
+	 */
+	public Quantities getBestQuantities() {
+		return objective.getQuantities(getBest());
+	}
+
+	/**
+	 * Note the given layout if it is better than the best so far.
+	 * 
+	 * @param layout	that may be better.
+	 * @param score			of the layout.
+	 */
+	private synchronized void updateBest(Layout layout, float score) {
+		if (score < bestScore) {
+			best.copyFrom(layout);
+			bestScore = score;
+		}
+	}
+
+
+/************************************************************************
+ * Encoding support section.
+ */
+
+	/**
+	 * An Individual is a member of the population. The genome holds the 
+	 * tokens and the layout holds the decoded Elements. Neither is changed 
+	 * once the Individual has been scored.
+	 */
+	private static class Individual {
+		private final Layout genome;
+		private Layout layout;
+		private float score;
+
+		Individual(Layout genome) {
+			this.genome = genome;
+		}
+	}
+
+	/**
+	 * Encode a layout as tokens, giving each blank position its own token.
+	 * 
+	 * @param layout to encode.
+	 * @return the genome.
+	 */
+	private Layout encode(Layout layout) {
+		Layout genome = new Layout(layout);
+		for (int i = 0; i < size; ++i)
+			if (layout.isBlank(i))
+				genome.setKey(i, count + i);
+
+		return genome;
+	}
+
+	/**
+	 * Decode a genome back to a layout by blanking the positions 
+	 * holding blank tokens, i. e. tokens of count or more. Only the 
+	 * decoded layout holds valid Element keys, so it is the one that is 
+	 * scored, hashed and kept as the best.
+	 * 
+	 * @param genome to decode.
+	 * @return the decoded layout.
+	 */
+	private Layout decode(Layout genome) {
+		Layout layout = new Layout(genome);
+		for (int i = 0; i < size; ++i)
+			if (genome.getKey(i) >= count)
+				layout.setKey(i, Elements.UNDEFINED_KEY);
+
+		return layout;
+	}
+
+
+/************************************************************************
+ * Scoring support section.
+ */
+
+	/**
+	 * A Scorer decodes and scores a range of the population, using the 
+	 * cache where possible.
+	 */
+	private class Scorer implements Callable<Void> {
+		private final List<Individual> population;
+		private final int from;
+		private final int to;
+		private int scored = 0;
+		private int hits = 0;
+
+		Scorer(List<Individual> population, int from, int to) {
+			this.population = population;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Void call() {
+			for (int i = from; i < to; ++i) {
+				Individual individual = population.get(i);
+				if (individual.layout != null)
+					continue;
+
+				final Layout layout = decode(individual.genome);
+				final Long canonical = layout.canonicalHash();
+				final Float cached = cache.get(canonical);
+				if (cached != null) {
+					individual.score = cached;
+					hits++;
+				} else {
+					individual.score = objective.evaluate(layout);
+					cache.put(canonical, individual.score);
+					scored++;
+				}
+				individual.layout = layout;
+			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Score every Individual of the population that has not already been 
+	 * scored, spreading the work across the pool.
+	 * 
+	 * @param pool			to run the Scorers on.
+	 * @param population	to score.
+	 */
+	private void score(ForkJoinPool pool, List<Individual> population) {
+		if (cache.size() > maxCacheSize)
+			cache.clear();
+
+		final int total = population.size();
+		final int chunks = Math.min(total, parallelism * 4);
+		List<Scorer> tasks = new ArrayList<Scorer>(chunks);
+		for (int i = 0; i < chunks; ++i)
+			tasks.add(new Scorer(population, i * total / chunks, (i+1) * total / chunks));
+		pool.invokeAll(tasks);
+
+		long scored = 0;
+		long hits = 0;
+		for (Scorer task : tasks) {
+			scored += task.scored;
+			hits += task.hits;
+		}
+		evaluations += scored;
+		cacheHits += hits;
+
+		for (Individual individual : population)
+			updateBest(individual.layout, individual.score);
+	}
+
+
+/************************************************************************
+ * Genetic operator support section.
+ */
+
+	/**
+	 * Select a parent by picking the best of a few random Individuals.
+	 * 
+	 * @param population	to select from.
+	 * @param random		number generator.
+	 * @return the selected Individual.
+	 */
+	private Individual select(List<Individual> population, SplittableRandom random) {
+		Individual winner = population.get(random.nextInt(population.size()));
+		for (int i = 1; i < tournamentSize; ++i) {
+			Individual challenger = population.get(random.nextInt(population.size()));
+			if (challenger.score < winner.score)
+				winner = challenger;
+		}
+
+		return winner;
+	}
+
+	/**
+	 * Produce a child that keeps a random section of the first parent in 
+	 * place and fills the remaining positions with the rest of the tokens 
+	 * in the order they appear in the second parent, starting after the 
+	 * section.
+	 * 
+	 * @param a			parent supplying the section.
+	 * @param b			parent supplying the order of the rest.
+	 * @param first		position of the section.
+	 * @param last		position of the section.
+	 * @return the child genome.
+	 */
+	private Layout orderCrossover(Layout a, Layout b, int first, int last) {
+		Layout child = new Layout(a);
+		Arrays.fill(used, false);
+		for (int i = first; i <= last; ++i)
+			used[a.getKey(i)] = true;
+
+		int from = last + 1;
+		for (int i = last + 1; i < last + 1 + size; ++i) {
+			final int index = i % size;
+			if ((index >= first) && (index <= last))
+				continue;
+
+			int token = b.getKey(from % size);
+			while (used[token])
+				token = b.getKey(++from % size);
+
+			child.setKey(index, token);
+			used[token] = true;
+		}
+
+		return child;
+	}
+
+	/**
+	 * Produce a child that keeps a random section of the first parent in 
+	 * place and takes the remaining positions from the second parent. Where 
+	 * a token from the second parent is already in the section, the 
+	 * mapping between the parents within the section is followed to find a 
+	 * token that is not.
+	 * 
+	 * @param a			parent supplying the section.
+	 * @param b			parent supplying the rest.
+	 * @param first		position of the section.
+	 * @param last		position of the section.
+	 * @return the child genome.
+	 */
+	private Layout partiallyMappedCrossover(Layout a, Layout b, int first, int last) {
+		Layout child = new Layout(b);
+		Arrays.fill(used, false);
+		for (int i = first; i <= last; ++i) {
+			final int token = a.getKey(i);
+			used[token] = true;
+			positions[token] = i;
+			child.setKey(i, token);
+		}
+
+		for (int i = 0; i < size; ++i) {
+			if ((i >= first) && (i <= last))
+				continue;
+
+			int token = b.getKey(i);
+			while (used[token])
+				token = b.getKey(positions[token]);
+
+			child.setKey(i, token);
+		}
+
+		return child;
+	}
+
+	/**
+	 * Produce a child from two parents using the selected crossover 
+	 * operator on a random section.
+	 * 
+	 * @param a			first parent.
+	 * @param b			second parent.
+	 * @param random	number generator.
+	 * @return the child genome.
+	 */
+	private Layout crossover(Layout a, Layout b, SplittableRandom random) {
+		int first = random.nextInt(size);
+		int last = random.nextInt(size);
+		if (first > last) {
+			final int temp = first;
+			first = last;
+			last = temp;
+		}
+
+		if (crossover == PARTIALLY_MAPPED_CROSSOVER)
+			return partiallyMappedCrossover(a, b, first, last);
+
+		return orderCrossover(a, b, first, last);
+	}
+
+	/**
+	 * Mutate a genome by either swapping two random positions or moving a 
+	 * random block of cells in a random direction, as Chain does.
+	 * 
+	 * @param genome	to mutate.
+	 * @param random	number generator.
+	 */
+	private void mutate(Layout genome, SplittableRandom random) {
+		if (random.nextDouble() < swapRatio) {
+			genome.swap(random.nextInt(size), random.nextInt(size));
+
+			return;
+		}
+
+		final int rows = genome.getRows();
+		final int cols = genome.getCols();
+		final int height = 1 + random.nextInt(Math.min(maxBlock, rows));
+		final int width = 1 + random.nextInt(Math.min(maxBlock, cols));
+		final int top = random.nextInt(rows - height + 1);
+		final int left = random.nextInt(cols - width + 1);
+		final int bottom = top + height - 1;
+		final int right = left + width - 1;
+		final int direction = random.nextInt(Layout.MAX_DIRECTION);
+
+		if (genome.isMove(top, left, bottom, right, direction))
+			genome.moveBlock(top, left, bottom, right, direction);
+	}
+
+	/**
+	 * Create the initial population from random mutations of the starting 
+	 * layout, which is itself included.
+	 * 
+	 * @param random	number generator.
+	 * @return the initial population.
+	 */
+	private List<Individual> initialPopulation(SplittableRandom random) {
+		final Layout origin = encode(start);
+		List<Individual> population = new ArrayList<Individual>(populationSize);
+		population.add(new Individual(origin));
+
+		while (population.size() < populationSize) {
+			Layout genome = new Layout(origin);
+			for (int i = 0; i < INITIAL_MUTATIONS; ++i)
+				mutate(genome, random);
+			population.add(new Individual(genome));
+		}
+
+		return population;
+	}
+
+	/**
+	 * Breed the next generation from the current one, which must be sorted 
+	 * best first.
+	 * 
+	 * @param population	current generation.
+	 * @param random		number generator.
+	 * @return the next generation.
+	 */
+	private List<Individual> breed(List<Individual> population, SplittableRandom random) {
+		List<Individual> next = new ArrayList<Individual>(populationSize);
+		final int elites = Math.min(eliteCount, populationSize);
+		for (int i = 0; i < elites; ++i)
+			next.add(population.get(i));
+
+		while (next.size() < populationSize) {
+			final Individual a = select(population, random);
+			Layout genome;
+			if (random.nextDouble() < crossoverRate) {
+				final Individual b = select(population, random);
+				genome = crossover(a.genome, b.genome, random);
+			} else {
+				genome = new Layout(a.genome);
+			}
+
+			if (random.nextDouble() < mutationRate)
+				mutate(genome, random);
+
+			next.add(new Individual(genome));
+		}
+
+		return next;
+	}
+
+	/**
+	 * Run the search until the budget is used up or stop() is called.
+	 * 
+	 * @return a copy of the best layout found.
+	 */
+	public Layout run() {
+		stopped = false;
+		generations = 0;
+		evaluations = 0;
+		cacheHits = 0;
+		cache.clear();
+
+		positions = new int[count + size];
+		used = new boolean[count + size];
+
+		final SplittableRandom random = new SplittableRandom(seed);
+		final ForkJoinPool pool = new ForkJoinPool(parallelism);
+		final long startTime = System.currentTimeMillis();
+
+		try {
+			List<Individual> population = initialPopulation(random);
+			score(pool, population);
+
+			while (generations < maxGenerations) {
+				population.sort((x, y) -> Float.compare(x.score, y.score));
+				population = breed(population, random);
+				score(pool, population);
+				generations++;
+
+				if (stopped)
+					break;
+
+				if (System.currentTimeMillis() - startTime >= maxTime)
+					break;
+			}
+		} finally {
+			pool.shutdown();
+			cache.clear();
+		}
+
+		return getBest();
+	}
+
+}
@@ -0,0 +1,49 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * LinearSchedule is a simple class that provides an annealing temperature 
+ * that falls linearly from the start temperature to the end temperature.
+ */
+package phillockett65.PTable.optimiser;
+
+public class LinearSchedule implements Schedule {
+
+	private final double start;
+	private final double end;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param start	- temperature at the start of the search.
+	 * @param end	- temperature at the end of the search.
+	 */
+	public LinearSchedule(double start, double end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	@Override
+	public double getTemperature(double progress) {
+		return start + (end - start) * progress;
+	}
+
+}
@@ -0,0 +1,247 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * Objective is a class that is responsible for scoring a Layout using 
+ * the same three metrics as Quantifier (electron shell, subshell and 
+ * configuration similarity). The three totals are combined by scaling each 
+ * by the corresponding total of a reference layout, which makes the 
+ * score the sum of the three Deviations plus 3. Lower scores indicate that 
+ * neighbouring Elements are more alike.
+ * 
+ * The raw totals can be reduced simply by moving Elements apart, so each 
+ * pair of neighbours is also credited with a fixed value (NEIGHBOUR_WEIGHT 
+ * times the average cost of a pair in the reference layout). This makes 
+ * losing a neighbour a penalty, while leaving the score of the reference 
+ * layout unchanged.
+ * 
+ * Unlike Quantifier, each pair of neighbours is counted once. The weighted 
+ * cost of every pair of Elements is calculated up front, so scoring a pair 
+ * is a single array look-up. Instances are immutable once constructed and 
+ * may be shared between threads.
+ */
+package phillockett65.PTable.optimiser;
+
+import phillockett65.PTable.elements.Elements;
+import phillockett65.PTable.table.Layout;
+import phillockett65.PTable.table.Quantities;
+
+public class Objective {
+
+	private static final int SHELL = Elements.SHELL_SIMILARITY;
+	private static final int SUBSHELL = Elements.SUBSHELL_SIMILARITY;
+	private static final int CONFIG = Elements.CONFIG_SIMILARITY;
+	private static final int METRICS = Elements.MAX_SIMILARITY;
+
+	private static final float NEIGHBOUR_WEIGHT = 2F;
+
+	private final int count;
+	private final float[][] similarities;
+	private final float[] original;
+	private final float[] costs;
+	private final float offset;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param reference layout used to weight the metrics, usually the 
+	 * 					starting layout.
+	 */
+	public Objective(Layout reference) {
+		count = Elements.lastKey() + 1;
+
+		similarities = new float[METRICS][];
+		for (int m = 0; m < METRICS; ++m)
+			similarities[m] = Elements.getSimilarities(m);
+
+		original = calcTotals(reference);
+
+		// The weighted totals of the reference sum to METRICS.
+		final int pairs = countPairs(reference);
+		final float credit = (pairs == 0) ? 0F : NEIGHBOUR_WEIGHT * METRICS / pairs;
+		offset = credit * pairs;
+
+		costs = new float[count * count];
+		for (int i = 0; i < costs.length; ++i) {
+			float cost = -credit;
+			for (int m = 0; m < METRICS; ++m)
+				if (original[m] != 0F)
+					cost += similarities[m][i] / original[m];
+			costs[i] = cost;
+		}
+	}
+
+	/**
+	 * Count the pairs of neighbouring Elements in the given layout.
+	 * 
+	 * @param layout to count.
+	 * @return the number of pairs, each counted once.
+	 */
+	private static int countPairs(Layout layout) {
+		final int rows = layout.getRows();
+		final int cols = layout.getCols();
+		int pairs = 0;
+
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < cols; ++c) {
+				if (layout.getKey(r, c) == Elements.UNDEFINED_KEY)
+					continue;
+
+				if ((r < rows-1) && (layout.getKey(r+1, c) != Elements.UNDEFINED_KEY))
+					pairs++;
+				if ((c < cols-1) && (layout.getKey(r, c+1) != Elements.UNDEFINED_KEY))
+					pairs++;
+			}
+		}
+
+		return pairs;
+	}
+
+	/**
+	 * Get the weighted cost of the given pair of neighbouring positions.
+	 * 
+	 * @param a key of the Element at the first position.
+	 * @param b key of the Element at the second position.
+	 * @return the weighted cost, zero if either position is blank.
+	 */
+	public float getCost(int a, int b) {
+		if ((a == Elements.UNDEFINED_KEY) || (b == Elements.UNDEFINED_KEY))
+			return 0F;
+
+		return costs[a * count + b];
+	}
+
+	/**
+	 * Calculate the score of the given layout with a full scan.
+	 * 
+	 * @param layout to score.
+	 * @return the score, lower is better.
+	 */
+	public float evaluate(Layout layout) {
+		final int rows = layout.getRows();
+		final int cols = layout.getCols();
+		float score = offset;
+
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < cols; ++c) {
+				final int key = layout.getKey(r, c);
+				if (key == Elements.UNDEFINED_KEY)
+					continue;
+
+				// Count each pair once, from the cell to the South or East.
+				if (r < rows-1)
+					score += getCost(key, layout.getKey(r+1, c));
+				if (c < cols-1)
+					score += getCost(key, layout.getKey(r, c+1));
+			}
+		}
+
+		return score;
+	}
+
+	/**
+	 * Calculate the unweighted total of each metric for the given 
+	 * layout.
+	 * 
+	 * @param layout to total.
+	 * @return the totals, indexed by metric.
+	 */
+	private float[] calcTotals(Layout layout) {
+		final int rows = layout.getRows();
+		final int cols = layout.getCols();
+		float[] totals = new float[METRICS];
+
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < cols; ++c) {
+				final int key = layout.getKey(r, c);
+				if (key == Elements.UNDEFINED_KEY)
+					continue;
+
+				if (r < rows-1)
+					addPair(totals, key, layout.getKey(r+1, c));
+				if (c < cols-1)
+					addPair(totals, key, layout.getKey(r, c+1));
+			}
+		}
+
+		return totals;
+	}
+
+	/**
+	 * Add the similarities of the given pair of Elements to the totals.
+	 * 
+	 * @param totals	of each metric.
+	 * @param a			key of the first Element.
+	 * @param b			key of the second Element.
+	 */
+	private void addPair(float[] totals, int a, int b) {
+		if (b == Elements.UNDEFINED_KEY)
+			return;
+
+		final int index = a * count + b;
+		for (int m = 0; m < METRICS; ++m)
+			totals[m] += similarities[m][index];
+	}
+
+	/**
+	 * Generate the Quantities of the given layout for display, with 
+	 * the deviations relative to the reference layout.
+	 * 
+	 * @param layout to quantify.
+	 * @return the Quantities of the layout.
+	 */
+	public Quantities getQuantities(Layout layout) {
+		final int rows = layout.getRows();
+		final int cols = layout.getCols();
+		int elementCount = 0;
+
+		for (int r = 0; r < rows; ++r)
+			for (int c = 0; c < cols; ++c)
+				if (layout.getKey(r, c) != Elements.UNDEFINED_KEY)
+					elementCount++;
+
+		// Quantifier counts each pair from both Elements.
+		final int neighbourCount = 2 * countPairs(layout);
+		final float[] totals = calcTotals(layout);
+
+		Quantities quantities = new Quantities();
+
+		quantities.setElementCount(elementCount);
+		quantities.setNeighbourCount(neighbourCount);
+		quantities.setElectronShellSimilarity(deviation(totals, SHELL));
+		quantities.setElectronSubshellSimilarity(deviation(totals, SUBSHELL));
+		quantities.setElectronConfigSimilarity(deviation(totals, CONFIG));
+
+		return quantities;
+	}
+
+	/**
+	 * Calculate the deviation of the total of a metric from the reference.
+	 * 
+	 * @param totals	of each metric.
+	 * @param metric	of interest.
+	 * @return the deviation from the reference.
+	 */
+	private float deviation(float[] totals, int metric) {
+		return (totals[metric] - original[metric]) / original[metric];
+	}
+
+}
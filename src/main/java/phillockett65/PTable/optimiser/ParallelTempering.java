@@ -0,0 +1,407 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * ParallelTempering is a class that is responsible for searching for an 
+ * improved layout of a Grid by running several replicas of the search 
+ * in parallel, each at a different fixed temperature. The replicas run for a 
+ * number of steps on a ForkJoinPool, then replicas at neighbouring 
+ * temperatures are offered the chance to exchange states, which lets good 
+ * layouts found at high temperatures drift down to the cold replicas 
+ * to be refined.
+ * 
+ * Each replica is a Chain with its own layout, NeighbourTracker and random 
+ * number generator, and the Objective is immutable, so the replicas share no 
+ * mutable state while they run. Nothing here touches Cell, so the Cell class 
+ * variables are not involved. States are exchanged by swapping which replica 
+ * is at each temperature rather than copying layouts.
+ */
+package phillockett65.PTable.optimiser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import phillockett65.PTable.table.Grid;
+import phillockett65.PTable.table.Layout;
+import phillockett65.PTable.table.Quantities;
+
+public class ParallelTempering {
+
+	// Number of proposals between checks of the stop flag and the clock 
+	// within a round.
+	private static final int CHECK_INTERVAL = 1024;
+
+	private final Layout start;
+	private final Objective objective;
+
+	private int replicaCount = Runtime.getRuntime().availableProcessors();
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private double minTemperature = 0.00001;
+	private double maxTemperature = 0.01;
+	private int exchangeInterval = 10_000;
+	private long maxIterations = 10_000_000L;
+	private long maxTime = 60_000L;
+	private long seed = System.nanoTime();
+	private float swapRatio = 0.5F;
+	private int maxBlock = 3;
+
+	private volatile boolean stopped = false;
+	private volatile long iterations = 0;
+	private long startTime;
+	private long exchanges = 0;
+	private Layout best;
+	private float bestScore;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param grid to start the search from.
+	 */
+	public ParallelTempering(Grid grid) {
+		this(grid.getLayout());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param start layout to start the search from.
+	 */
+	public ParallelTempering(Layout start) {
+		this.start = new Layout(start);
+		objective = new Objective(start);
+		best = new Layout(start);
+		bestScore = objective.evaluate(start);
+	}
+
+	/**
+	 * Set the number of replicas, each of which runs at its own temperature.
+	 * 
+	 * @param replicaCount number of replicas (at least 2).
+	 */
+	public void setReplicaCount(int replicaCount) {
+		this.replicaCount = Math.max(2, replicaCount);
+	}
+
+	/**
+	 * Set the number of threads used to run the replicas.
+	 * 
+	 * @param parallelism number of threads.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Set the range of temperatures. The replica temperatures are spaced 
+	 * geometrically between them.
+	 * 
+	 * @param min temperature of the coldest replica.
+	 * @param max temperature of the hottest replica.
+	 */
+	public void setTemperatures(double min, double max) {
+		minTemperature = min;
+		maxTemperature = max;
+	}
+
+	/**
+	 * Set the number of steps each replica takes between exchanges.
+	 * 
+	 * @param exchangeInterval in steps.
+	 */
+	public void setExchangeInterval(int exchangeInterval) {
+		this.exchangeInterval = Math.max(1, exchangeInterval);
+	}
+
+	/**
+	 * Set the maximum number of steps taken by each replica.
+	 * 
+	 * @param maxIterations per replica.
+	 */
+	public void setMaxIterations(long maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Set the maximum time to run the search for.
+	 * 
+	 * @param maxTime in milliseconds.
+	 */
+	public void setMaxTime(long maxTime) {
+		this.maxTime = maxTime;
+	}
+
+	/**
+	 * Set the seed of the random number generator that the seed of each 
+	 * replica is drawn from, so that a search can be repeated.
+	 * 
+	 * @param seed for the random number generator.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Set the proportion of steps that are swaps rather than block moves.
+	 * 
+	 * @param swapRatio from 0 (only block moves) to 1 (only swaps).
+	 */
+	public void setSwapRatio(float swapRatio) {
+		this.swapRatio = swapRatio;
+	}
+
+	/**
+	 * Set the maximum height and width of the blocks that are moved.
+	 * 
+	 * @param maxBlock size of the block moves.
+	 */
+	public void setMaxBlock(int maxBlock) {
+		this.maxBlock = maxBlock;
+	}
+
+	/**
+	 * Get the Objective used to score the layouts, which is relative to 
+	 * the starting layout.
+	 * 
+	 * @return the Objective of the search.
+	 */
+	public Objective getObjective() {
+		return objective;
+	}
+
+	/**
+	 * Get the number of candidate layouts evaluated so far, summed over 
+	 * all replicas. Updated at the end of each round.
+	 * 
+	 * @return the number of iterations performed.
+	 */
+	public long getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Get the number of accepted exchanges between replicas.
+	 * 
+	 * @return the number of accepted exchanges.
+	 */
+	public synchronized long getExchanges() {
+		return exchanges;
+	}
+
+	/**
+	 * Request that a running search stops at the next opportunity.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Get a snapshot of the best layout found so far.
+	 * 
+	 * @return a copy of the best layout.
+	 */
+	public synchronized Layout getBest() {
+		return new Layout(best);
+	}
+
+	/**
+	 * Get the score of the best layout found so far.
+	 * 
+	 * @return the score of the best layout, lower is better.
+	 */
+	public synchronized float getBestScore() {
+		return bestScore;
+	}
+
+	/**
+	 * Get the Quantities of the best layout found so far, relative to 
+	 * the starting layout.
+	 * 
+	 * @return the Quantities of the best layout.
+	 */
+	public Quantities getBestQuantities() {
+		return objective.getQuantities(getBest());
+	}
+
+	/**
+	 * Note the given layout if it is better than the best so far.
+	 * 
+	 * @param layout	that may be better.
+	 * @param score			of the layout.
+	 */
+	private synchronized void updateBest(Layout layout, float score) {
+		if (score < bestScore) {
+			best.copyFrom(layout);
+			bestScore = score;
+		}
+	}
+
+
+/************************************************************************
+ * Replica support section.
+ */
+
+	/**
+	 * A Replica runs a Chain for a round at the temperature it is given and 
+	 * keeps its own best layout, so the replicas don't contend for the 
+	 * shared best while running.
+	 */
+	private class Replica implements Callable<Void> {
+		private final Chain chain;
+		private final Layout replicaBest;
+		private float replicaBestScore;
+		private double temperature;
+		private int steps;
+
+		Replica(long seed) {
+			chain = new Chain(objective, start, seed);
+			chain.setSwapRatio(swapRatio);
+			chain.setMaxBlock(maxBlock);
+			replicaBest = new Layout(start);
+			replicaBestScore = chain.getScore();
+		}
+
+		@Override
+		public Void call() {
+			// Only valid proposals count as steps, as for the Annealer, so 
+			// the clock is also checked in case few proposals are valid.
+			int count = 0;
+			for (long proposals = 1; count < steps; ++proposals) {
+				final int outcome = chain.step(temperature);
+				if (outcome != Chain.INVALID) {
+					count++;
+					if ((outcome == Chain.ACCEPTED) && (chain.getScore() < replicaBestScore)) {
+						replicaBest.copyFrom(chain.getCurrent());
+						replicaBestScore = chain.getScore();
+					}
+				}
+
+				if ((proposals % CHECK_INTERVAL == 0) && (stopped || 
+						(System.currentTimeMillis() - startTime >= maxTime))) {
+					steps = count;
+					break;
+				}
+			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Calculate the temperature of each position on the temperature ladder.
+	 * 
+	 * @return the temperatures, coldest first.
+	 */
+	private double[] calcTemperatures() {
+		double[] temperatures = new double[replicaCount];
+		final double ratio = maxTemperature / minTemperature;
+		for (int i = 0; i < replicaCount; ++i)
+			temperatures[i] = minTemperature * Math.pow(ratio, (double)i / (replicaCount-1));
+
+		return temperatures;
+	}
+
+	/**
+	 * Offer the replicas at each pair of neighbouring temperatures the chance 
+	 * to exchange states. Alternate rounds start with the coldest or the 
+	 * second coldest so every pair gets a chance.
+	 * 
+	 * @param ladder		replica at each temperature, coldest first.
+	 * @param temperatures	of each position on the ladder.
+	 * @param round			number of the current round.
+	 * @param random		number generator for accepting exchanges.
+	 */
+	private void exchange(Replica[] ladder, double[] temperatures, long round, SplittableRandom random) {
+		for (int i = (int)(round % 2); i < replicaCount-1; i += 2) {
+			final Replica cold = ladder[i];
+			final Replica hot = ladder[i+1];
+
+			// Standard replica exchange acceptance criterion.
+			final double beta = (1 / temperatures[i]) - (1 / temperatures[i+1]);
+			final double delta = beta * (cold.chain.getScore() - hot.chain.getScore());
+			if ((delta >= 0) || (random.nextDouble() < Math.exp(delta))) {
+				ladder[i] = hot;
+				ladder[i+1] = cold;
+				synchronized (this) {
+					exchanges++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Run the search until the budget is used up or stop() is called.
+	 * 
+	 * @return a copy of the best layout found.
+	 */
+	public Layout run() {
+		stopped = false;
+		iterations = 0;
+
+		final SplittableRandom random = new SplittableRandom(seed);
+		final double[] temperatures = calcTemperatures();
+		Replica[] ladder = new Replica[replicaCount];
+		for (int i = 0; i < replicaCount; ++i)
+			ladder[i] = new Replica(random.nextLong());
+
+		final ForkJoinPool pool = new ForkJoinPool(parallelism);
+		startTime = System.currentTimeMillis();
+		List<Replica> tasks = new ArrayList<Replica>(replicaCount);
+		long count = 0;
+
+		try {
+			for (long round = 0; count < maxIterations; ++round) {
+				final int steps = (int)Math.min(exchangeInterval, maxIterations - count);
+
+				tasks.clear();
+				for (int i = 0; i < replicaCount; ++i) {
+					ladder[i].temperature = temperatures[i];
+					ladder[i].steps = steps;
+					tasks.add(ladder[i]);
+				}
+				pool.invokeAll(tasks);
+
+				long total = 0;
+				for (Replica replica : ladder) {
+					updateBest(replica.replicaBest, replica.replicaBestScore);
+					total += replica.steps;
+				}
+				iterations += total;
+				count += steps;
+
+				if (stopped)
+					break;
+
+				if (System.currentTimeMillis() - startTime >= maxTime)
+					break;
+
+				exchange(ladder, temperatures, round, random);
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		return getBest();
+	}
+
+}
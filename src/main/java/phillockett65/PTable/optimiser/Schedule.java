@@ -0,0 +1,38 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * Schedule is an interface that is responsible for providing the annealing 
+ * temperature as the search progresses.
+ */
+package phillockett65.PTable.optimiser;
+
+public interface Schedule {
+
+	/**
+	 * Get the temperature for the given progress through the search.
+	 * 
+	 * @param progress through the search, from 0 (start) to 1 (finish).
+	 * @return the temperature to use.
+	 */
+	public double getTemperature(double progress);
+
+}
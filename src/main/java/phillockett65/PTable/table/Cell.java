@@ -28,10 +28,10 @@
  */
 package phillockett65.PTable.table;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
-import javafx.scene.text.Font;
-import javafx.scene.text.FontPosture;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import phillockett65.PTable.Model;
@@ -40,29 +40,23 @@ import phillockett65.PTable.elements.ElementConfig;
 public class Cell {
 
 /*****************************************************************************
- * These attributes are the same for all cells. They are updated exclusively
- * by the model to keep them in sync. This approach removes the need to 
- * repeatedly pass the same data to all cells.
+ * These attributes are shared by all cells. The settings used to draw a cell, 
+ * such as the temperature and tile size, are not held here but passed in as 
+ * a RenderContext by the Grid, so cells of different tables don't interfere.
  */
-	private static int temp;
-	private static int tileSize;
-	private static Desc ZDesc;
-	private static Desc symbolDesc;
-
-	public static void setTemp(int temp) {
-		Cell.temp = temp;
-	}
-
-	public static void setTileSize(int size) {
-		Cell.tileSize = size;
-	}
+	// The inverse of each colour used, so selecting a cell doesn't create a 
+	// new Color. Only a handful of colours are ever used.
+	private static final ConcurrentHashMap<Color, Color> inverses = new ConcurrentHashMap<Color, Color>();
 
-	public static void setZDesc(Desc zDesc) {
-		Cell.ZDesc = zDesc;
-	}
-
-	public static void setSymbolDesc(Desc symbolDesc) {
-		Cell.symbolDesc = symbolDesc;
+	/**
+	 * Get the shared inverse of the given colour, which is used to show that 
+	 * a cell is selected.
+	 * 
+	 * @param colour to invert.
+	 * @return the inverted colour.
+	 */
+	public static Color findInverse(Color colour) {
+		return inverses.computeIfAbsent(colour, Color::invert);
 	}
 
 
@@ -73,30 +67,41 @@ public class Cell {
 
 	private Color backCol;
 	private Color foreCol;
+	private Color backColInverse;
+	private Color foreColInverse;
 	private boolean selected = false;
 
 	private Rectangle back;
 	private Text ZText;
 	private Text symbolText;
 
+	// The font sizes currently applied to the Text nodes and the resulting 
+	// width of the Atomic Number, which is only measured when it changes.
+	private int ZFontSize = 0;
+	private int symbolFontSize = 0;
+	private int ZWidth = -1;
+
 	/**
 	 * Constructor.
 	 * 
-	 * @param colour - background colour, determined by the subcategory.
+	 * @param context	- settings used to draw the cell.
+	 * @param colour	- background colour, determined by the subcategory.
 	 */
-	public Cell(Color colour) {
+	public Cell(RenderContext context, Color colour) {
 		back = new Rectangle();
+		setBackgroundSize(context);
 		setBackground(colour);
 	}
 
 	/**
 	 * Set the ElementConfig and colours for this cell.
 	 * 
-	 * @param e the Element to associate with the cell.
-	 * @param foreCol - foreground colour, determined by the state.
-	 * @param backCol - background colour, determined by the subcategory.
+	 * @param context	- settings used to draw the cell.
+	 * @param e			- the Element to associate with the cell.
+	 * @param foreCol	- foreground colour, determined by the state.
+	 * @param backCol	- background colour, determined by the subcategory.
 	 */
-	public void setElement(ElementConfig e, Color foreCol, Color backCol) {
+	public void setElement(RenderContext context, ElementConfig e, Color foreCol, Color backCol) {
 		this.e = e;
 
 		setBackgroundColour(backCol);
@@ -105,6 +110,7 @@ public class Cell {
 		ZText = new Text(String.valueOf(e.getZ()));
 		symbolText = new Text(e.getSymbol());
 
+		setFontSize(context);
 		setForeground(foreCol);
 	}
 
@@ -135,6 +141,35 @@ public class Cell {
 		return symbolText;
 	}
 
+	/**
+	 * Get the colour the background is displayed in, which is inverted if 
+	 * the cell is selected.
+	 * 
+	 * @return the displayed background colour.
+	 */
+	public Color getBackgroundFill() {
+		if (selected)
+			return backColInverse;
+
+		return backCol;
+	}
+
+	/**
+	 * Get the colour the Atomic Number and Symbol are displayed in, which is 
+	 * inverted if the cell is selected.
+	 * 
+	 * @return the displayed foreground colour, or null if the cell is blank.
+	 */
+	public Color getForegroundFill() {
+		if (isBlank())
+			return null;
+
+		if (selected)
+			return foreColInverse;
+
+		return foreCol;
+	}
+
 	/**
 	 * Get the associated element of this cell.
 	 * 
@@ -156,15 +191,17 @@ public class Cell {
 
 	/**
 	 * Get the state (solid, liquid or gas) of the associated element at the 
-	 * current temperature. The state is used to set the foreground colour.
+	 * temperature of the given context. The state is used to set the 
+	 * foreground colour.
 	 * 
+	 * @param context providing the temperature.
 	 * @return the state.
 	 */
-	public int getState() {
+	public int getState(RenderContext context) {
 		if (isBlank())
 			return Model.UNDEFINED;
 
-		return Model.findState(e, temp);
+		return Model.findState(e, context.getTemp());
 	}
 
 	/**
@@ -180,38 +217,44 @@ public class Cell {
 	}
 
 	/**
-	 * Set the coordinates of the tile origin in pixels. Uses the Class 
-	 * variable tile size and Atomic Number and Symbol descriptors..
+	 * Set the coordinates of the tile origin in pixels. Uses the tile size 
+	 * and Atomic Number and Symbol offsets of the given context.
 	 * 
-	 * @param x coordinate of tile position.
-	 * @param y coordinate of tile position.
+	 * @param context	- settings used to draw the cell.
+	 * @param x			- coordinate of tile position.
+	 * @param y			- coordinate of tile position.
 	 */
-	public void setPosition(int x, int y) {
+	public void setPosition(RenderContext context, int x, int y) {
 		back.setX(x);
 		back.setY(y);
 
 		if (isBlank())
 			return;
 
-		final int width = (int)(ZText.getLayoutBounds().getWidth());
-		int px = x + tileSize - width;
-		int py = y + ZDesc.getDy();
+		if (ZWidth < 0)
+			ZWidth = (int)(ZText.getLayoutBounds().getWidth());
+
+		int px = x + context.getTileSize() - ZWidth;
+		int py = y + context.getZDy();
 		ZText.setX(px); 
 		ZText.setY(py);
 
-		px = x + symbolDesc.getDx();
-		py = y + symbolDesc.getDy();
+		px = x + context.getSymbolDx();
+		py = y + context.getSymbolDy();
 		symbolText.setX(px); 
 		symbolText.setY(py);
 	}
 
 	/**
-	 * Set the dimensions of the Rectangle used as a background to the Class  
-	 * variable tileSize.
+	 * Set the dimensions of the Rectangle used as a background to the tile 
+	 * size of the given context.
+	 * 
+	 * @param context providing the tile size.
 	 */
-	public void setBackgroundSize() {
+	public void setBackgroundSize(RenderContext context) {
 //		System.out.println("setTileSize()");
 
+		final int tileSize = context.getTileSize();
 		back.setWidth(tileSize);
 		back.setHeight(tileSize);
 	}
@@ -225,6 +268,7 @@ public class Cell {
 	private void setBackgroundColour(Color colour) {
 //		System.out.println("setBackgroundColour(" + backCol.toString() + ")");
 		backCol = colour;
+		backColInverse = findInverse(colour);
 	}
 
 	/**
@@ -235,16 +279,12 @@ public class Cell {
 	private void updateBackground() {
 //		System.out.println("showBackground()");
 
-		Color colour = backCol;
-		if (selected)
-			colour = colour.invert();
-
-		back.setFill(colour);
+		back.setFill(selected ? backColInverse : backCol);
 	}
 
 	/**
-	 * Set up the background Tile size and colour. The colour may be inverted 
-	 * if the cell is selected.
+	 * Set up the background Tile colour. The colour may be inverted if the 
+	 * cell is selected.
 	 * Note: the colour is derived from the Subcategory of the Element, or 
 	 * UNKNOWN colour if no Element is associated with the cell.
 	 * 
@@ -253,23 +293,36 @@ public class Cell {
 	public void setBackground(Color colour) {
 //		System.out.println("setBackground(" + colour.toString() + ")");
 
-		setBackgroundSize();
 		setBackgroundColour(colour);
 		updateBackground();
 	}
 
 	/**
 	 * Set the font size of the Text nodes used to display the Atomic Number 
-	 * and Symbol to the font size in the Class variable descriptors.
+	 * and Symbol to the font sizes of the given context. The fonts are only 
+	 * replaced if the sizes have changed, in which case the cached width of 
+	 * the Atomic Number is discarded.
+	 * 
+	 * @param context providing the font sizes.
 	 */
-	public void setFontSize() {
+	public void setFontSize(RenderContext context) {
 //		System.out.println("setFontSize()");
 
 		if (isBlank())
 			return;
 
-		ZText.setFont(Font.font("arial", FontWeight.NORMAL, FontPosture.REGULAR, ZDesc.getSizeInt()));
-		symbolText.setFont(Font.font("arial", FontWeight.BOLD, FontPosture.REGULAR, symbolDesc.getSizeInt()));
+		final int ZSize = context.getZSize();
+		if (ZFontSize != ZSize) {
+			ZFontSize = ZSize;
+			ZText.setFont(Desc.findFont(FontWeight.NORMAL, ZSize));
+			ZWidth = -1;
+		}
+
+		final int symbolSize = context.getSymbolSize();
+		if (symbolFontSize != symbolSize) {
+			symbolFontSize = symbolSize;
+			symbolText.setFont(Desc.findFont(FontWeight.BOLD, symbolSize));
+		}
 	}
 
 	/**
@@ -282,6 +335,7 @@ public class Cell {
 //		System.out.println("setForegroundColour(" + foreCol.toString() + ")");
 
 		foreCol = colour;
+		foreColInverse = findInverse(colour);
 	}
 
 	/**
@@ -295,18 +349,17 @@ public class Cell {
 		if (isBlank())
 			return;
 
-		Color colour = foreCol;
-		if (selected)
-			colour = colour.invert();
-
+		final Color colour = selected ? foreColInverse : foreCol;
 		ZText.setFill(colour);
 		symbolText.setFill(colour);
 	}
 
 	/**
-	 * Set up the Text nodes used to display the Atomic Number and Symbol to 
-	 * the font size in the Class variable descriptors and using the supplied 
-	 * colour. The colour may be inverted if the cell is selected.
+	 * Set up the Text nodes used to display the Atomic Number and Symbol 
+	 * using the supplied colour. The colour may be inverted if the cell is 
+	 * selected. The fonts are not touched, as the colour changes far more 
+	 * often than the font size, e.g. on every frame of a temperature sweep; 
+	 * use setFontSize() when the context changes.
 	 * Note: the colour is derived from the State of the Element at the 
 	 * current temperature.
 	 * 
@@ -318,7 +371,6 @@ public class Cell {
 		if (isBlank())
 			return;
 
-		setFontSize();
 		setForegroundColour(colour);
 		updateForeground();
 	}
@@ -24,10 +24,50 @@
  * a description of each element on the periodic table. This is used for 
  * optimization purposes and is calculated and set whenever the tile size 
  * changes. Getters and setters are provided for each attribute.
+ * 
+ * Desc also owns the Fonts used to draw the descriptions. These are shared 
+ * by all cells and created once for each weight and size, so changing the 
+ * size back and forth, or updating many cells, doesn't create new Fonts.
  */
 package phillockett65.PTable.table;
 
+import java.util.Arrays;
+
+import javafx.scene.text.Font;
+import javafx.scene.text.FontPosture;
+import javafx.scene.text.FontWeight;
+
 public class Desc {
+
+	// Fonts indexed by weight ordinal and then size.
+	private static final Font[][] fonts = new Font[FontWeight.values().length][];
+
+	/**
+	 * Get the shared font with the given weight and size, creating it if 
+	 * necessary.
+	 * 
+	 * @param weight	of the font.
+	 * @param size		of the font.
+	 * @return the font.
+	 */
+	public static synchronized Font findFont(FontWeight weight, int size) {
+		final int index = weight.ordinal();
+		Font[] sizes = fonts[index];
+		if (sizes == null) {
+			sizes = new Font[size + 1];
+			fonts[index] = sizes;
+		} else if (size >= sizes.length) {
+			sizes = Arrays.copyOf(sizes, size + 1);
+			fonts[index] = sizes;
+		}
+
+		if (sizes[size] == null)
+			sizes[size] = Font.font("arial", weight, FontPosture.REGULAR, size);
+
+		return sizes[size];
+	}
+
+
 	private float size;
 	private int dx;
 	private int dy;
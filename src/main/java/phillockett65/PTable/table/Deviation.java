@@ -33,6 +33,25 @@ public class Deviation {
 	private float current = 0;
 	private float deviation = 0;
 
+	/**
+	 * Default Constructor.
+	 */
+	public Deviation() {
+	}
+
+	/**
+	 * Copy constructor. The copy has the same original value, so it can be 
+	 * used to calculate deviations from the same starting point.
+	 * 
+	 * @param other Deviation to copy.
+	 */
+	public Deviation(Deviation other) {
+		isSet = other.isSet;
+		original = other.original;
+		current = other.current;
+		deviation = other.deviation;
+	}
+
 	/**
 	 * Clear the current running total.
 	 */
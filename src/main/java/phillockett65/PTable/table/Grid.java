@@ -20,7 +20,10 @@
 
 /*
  * Grid is a class that is responsible for managing the data that represents 
- * the Periodic Table.
+ * the Periodic Table. The arrangement of the Elements is held in a Layout 
+ * and the Cells are a view of it. Each Element has its own Cell, which 
+ * follows the Element around the Layout, and each position has a blank Cell 
+ * which is shown when there is no Element at that position.
  */
 package phillockett65.PTable.table;
 
@@ -28,13 +31,34 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.paint.Color;
 import phillockett65.PTable.ChangeChecker;
 import phillockett65.PTable.MainController;
+import phillockett65.PTable.Model;
 import phillockett65.PTable.elements.ElementConfig;
 import phillockett65.PTable.elements.Elements;
+import phillockett65.PTable.elements.ThresholdIndex;
 
 public class Grid {
 	private MainController main;
 
-	private Cell[][] grid;
+	// The settings used to draw the cells, which are refreshed from the 
+	// model whenever the layout is updated.
+	private RenderContext context;
+
+	private Layout layout;
+	private Cell[] cells;
+	private Cell[] blanks;
+
+	// The region of the grid that needs the cell locations updating. The 
+	// region is empty when dirtyTop > dirtyBottom. The blank cells only need 
+	// updating when they are created or the size changes as they don't move, 
+	// then all of them are updated, including those hidden by an Element.
+	private int dirtyTop = 0;
+	private int dirtyLeft = 0;
+	private int dirtyBottom = -1;
+	private int dirtyRight = -1;
+	private boolean blanksDirty = false;
+
+	// Work space for the keys of the elements that change state.
+	private int[] changedStates;
 
 	/**
 	 * Constructor.
@@ -43,48 +67,82 @@ public class Grid {
 	 */
 	public Grid(MainController mainController) {
 		main = mainController;
+		context = main.getRenderContext();
 		initGrid();
 	}
 
 	/**
-	 * Initializes the grid by constructing the cells, initializes some 
-	 * globals and adding the Elements to the appropriate cells.
+	 * Initializes the grid by constructing the standard layout, a Cell for 
+	 * each Element and a blank Cell for each position.
 	 */
 	private void initGrid() {
 		final int rows = main.getRows();
 		final int cols = main.getCols();
 
+		layout = Layout.standard(rows, cols);
+
 		final Color back = main.getSubcategoryColour(0);
-		grid = new Cell[rows][cols];
-		for (int r = 0; r < rows; ++r)
-			for (int c = 0; c < cols; ++c)
-				grid[r][c] = new Cell(back);;
+		blanks = new Cell[rows * cols];
+		for (int i = 0; i < blanks.length; ++i)
+			blanks[i] = new Cell(context, back);
 
+		cells = new Cell[Elements.lastKey() + 1];
 		for (int i = Elements.firstKey(); i <= Elements.lastKey(); i = Elements.nextKey(i)) {
 			if (!Elements.isKeyValid(i)) {
 				continue;
 			}
 			ElementConfig e = Elements.element(i);
-			int r;
-			int c;
-			if (e.getPeriod() != 0) {
-				if (e.getGroup() != 0) {
-					r = (e.getPeriod()-1);
-					c = (e.getGroup()-1);
-				} else {
-					r = (e.getPeriod()+2);
-					c = (e.getGroup32()-1);
-				}
-				Cell cell = grid[r][c];
-				final Color foreCol = main.getStateColour(e);
-				final Color backCol = main.getSubcategoryColour(e.getSubcategory());
-				cell.setElement(e, foreCol, backCol);
-			}
+			Cell cell = new Cell(context, back);
+			final Color foreCol = main.getStateColour(Model.findState(e, context.getTemp()));
+			final Color backCol = main.getSubcategoryColour(e.getSubcategory());
+			cell.setElement(context, e, foreCol, backCol);
+			cells[i] = cell;
 		}
 
+		markAllDirty(true);
 		setCellLocations();
 	}
 
+	/**
+	 * Get the Layout that this grid is a view of. Changes to the Layout are 
+	 * not reflected in the grid until the cell locations are updated.
+	 * 
+	 * @return the Layout of the grid.
+	 */
+	public Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Get the settings used to draw the cells.
+	 * 
+	 * @return the current RenderContext.
+	 */
+	public RenderContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Set the settings used to draw the cells. The cells are not redrawn, so 
+	 * this should be followed by the appropriate update, e.g. updateStates() 
+	 * if the temperature has changed.
+	 * 
+	 * @param context to draw the cells with.
+	 */
+	public void setContext(RenderContext context) {
+		this.context = context;
+	}
+
+	/**
+	 * Get the hash of the arrangement of the Elements, which the Layout 
+	 * keeps up to date as the grid is changed.
+	 * 
+	 * @return the hash of the layout.
+	 */
+	public long getHash() {
+		return layout.getHash();
+	}
+
 	/**
 	 * Get the specified Cell.
 	 * 
@@ -93,7 +151,24 @@ public class Grid {
 	 * @return the specified Cell.
 	 */
 	public Cell getCell(int row, int col) {
-		return grid[row][col];
+		final int index = layout.getIndex(row, col);
+		final int key = layout.getKey(index);
+		if (key == Elements.UNDEFINED_KEY)
+			return blanks[index];
+
+		return cells[key];
+	}
+
+	/**
+	 * Get the blank Cell at the specified position, which is hidden by the 
+	 * Cell of the Element when there is one at that position.
+	 * 
+	 * @param row of the required cell.
+	 * @param col of the required cell.
+	 * @return the blank Cell at the specified position.
+	 */
+	public Cell getBlank(int row, int col) {
+		return blanks[layout.getIndex(row, col)];
 	}
 
 	/**
@@ -102,7 +177,7 @@ public class Grid {
 	 * @return the number of Rows in the grid.
 	 */
 	public int getRows() {
-		return grid.length;
+		return layout.getRows();
 	}
 
 	/**
@@ -111,56 +186,114 @@ public class Grid {
 	 * @return the number of Columns in the grid.
 	 */
 	public int getCols() {
-		return grid[0].length;
+		return layout.getCols();
 	}
 
 	/**
-	 * Update the state for each element in the grid for the current global 
-	 * temperature.
+	 * Update the state for each element in the grid for the temperature of 
+	 * the current context.
 	 */
 	public void updateStates() {
 //		System.out.println("Grid.updateState()");
 
-		final int rows = grid.length;
-		final int cols = grid[0].length;
+		for (Cell cell : cells)
+			cell.setForeground(main.getStateColour(cell.getState(context)));
+	}
 
-		for (int r = 0; r < rows; ++r) {
-			for (int c = 0; c < cols; ++c) {
-				Cell cell = grid[r][c];
-				if (cell.isBlank())
-					continue;
+	/**
+	 * Update the state of only the elements whose state differs between the 
+	 * given temperatures, using the ThresholdIndex to find them. The context 
+	 * must already be set to the new temperature.
+	 * 
+	 * @param oldTemp	temperature the states were last updated for.
+	 * @param newTemp	temperature of the current context.
+	 */
+	public void updateStates(int oldTemp, int newTemp) {
+//		System.out.println("Grid.updateStates(" + oldTemp + ", " + newTemp + ")");
 
-				cell.setForeground(main.getStateColour(cell.getState()));
-			}
+		final ThresholdIndex index = Elements.getThresholdIndex();
+		if (changedStates == null)
+			changedStates = new int[index.getCount() / 2];
+
+		final int count = index.findChanges(oldTemp, newTemp, changedStates);
+		for (int i = 0; i < count; ++i) {
+			final Cell cell = cells[changedStates[i]];
+			cell.setForeground(main.getStateColour(cell.getState(context)));
 		}
 	}
 
 
 	/**
-	 * Sets the pixel location of each Cell based on the boarder size, tile 
-	 * size and position in grid.
+	 * Add the given region to the region of the grid that needs the cell 
+	 * locations updating. The region is clipped to the grid.
+	 * 
+	 * @param top		row of the region.
+	 * @param left		column of the region.
+	 * @param bottom	row of the region.
+	 * @param right		column of the region.
 	 */
-	private void setCellLocations() {
-//		System.out.println("setCellLocations()");
-
-		final int rows = grid.length;
-		final int cols = grid[0].length;
-		final int max = Math.max(rows, cols);
-		int[] offsets = new int[max];
-
-		final int step = main.getStepSize();
-		int p = main.getBorderSize();
-		for (int i = 0; i < max; ++i) {
-			offsets[i] = p;
-			p += step;
+	private void markDirty(int top, int left, int bottom, int right) {
+		top = Math.max(top, 0);
+		left = Math.max(left, 0);
+		bottom = Math.min(bottom, layout.getRows()-1);
+		right = Math.min(right, layout.getCols()-1);
+
+		if (dirtyTop > dirtyBottom) {
+			dirtyTop = top;
+			dirtyLeft = left;
+			dirtyBottom = bottom;
+			dirtyRight = right;
+
+			return;
 		}
 
-		for (int r = 0; r < rows; ++r) {
-			for (int c = 0; c < cols; ++c) {
-				final Cell cell = grid[r][c];
-				cell.setPosition(offsets[c], offsets[r]);
+		dirtyTop = Math.min(dirtyTop, top);
+		dirtyLeft = Math.min(dirtyLeft, left);
+		dirtyBottom = Math.max(dirtyBottom, bottom);
+		dirtyRight = Math.max(dirtyRight, right);
+	}
+
+	/**
+	 * Mark the whole grid as needing the cell locations updating.
+	 * 
+	 * @param blanks	true if the blank cells also need updating.
+	 */
+	private void markAllDirty(boolean blanks) {
+		markDirty(0, 0, layout.getRows()-1, layout.getCols()-1);
+		if (blanks)
+			blanksDirty = true;
+	}
+
+	/**
+	 * Sets the pixel location of each Cell in the dirty region based on the 
+	 * boarder size, tile size and position in grid, then clears the dirty 
+	 * region.
+	 */
+	private void setCellLocations() {
+//		System.out.println("setCellLocations(" + dirtyTop + ", " + dirtyLeft + ", " + dirtyBottom + ", " + dirtyRight + ")");
+
+		final int border = context.getBorderSize();
+		final int step = context.getStepSize();
+
+		for (int r = dirtyTop; r <= dirtyBottom; ++r) {
+			final int y = border + (r * step);
+			for (int c = dirtyLeft; c <= dirtyRight; ++c) {
+				final int x = border + (c * step);
+				final int index = layout.getIndex(r, c);
+				if (blanksDirty)
+					blanks[index].setPosition(context, x, y);
+
+				final int key = layout.getKey(index);
+				if (key != Elements.UNDEFINED_KEY)
+					cells[key].setPosition(context, x, y);
 			}
 		}
+
+		dirtyTop = 0;
+		dirtyLeft = 0;
+		dirtyBottom = -1;
+		dirtyRight = -1;
+		blanksDirty = false;
 	}
 
 	/**
@@ -173,15 +306,15 @@ public class Grid {
 	public void setSubcategoryColour(int subcategory, Color colour) {
 //		System.out.println("setSubcategoryColour(subcategory = " + subcategory + ", " + colour.toString() + ")");
 
-		final int rows = grid.length;
-		final int cols = grid[0].length;
+		for (Cell cell : blanks) {
+			if (cell.getSubcategory() == subcategory) {
+				cell.setBackground(colour);
+			}
+		}
 
-		for (int r = 0; r < rows; ++r) {
-			for (int c = 0; c < cols; ++c) {
-				final Cell cell = grid[r][c];
-				if (cell.getSubcategory() == subcategory) {
-					cell.setBackground(colour);
-				}
+		for (Cell cell : cells) {
+			if (cell.getSubcategory() == subcategory) {
+				cell.setBackground(colour);
 			}
 		}
 	}
@@ -196,62 +329,49 @@ public class Grid {
 	public void setStateColour(int state, Color colour) {
 //		System.out.println("setStateColour(state = " + state + ", " + colour.toString() + ")");
 
-		final int rows = grid.length;
-		final int cols = grid[0].length;
-
-		for (int r = 0; r < rows; ++r) {
-			for (int c = 0; c < cols; ++c) {
-				final Cell cell = grid[r][c];
-				if (cell.getState() == state) {
-					cell.setForeground(colour);
-				}
+		for (Cell cell : cells) {
+			if (cell.getState(context) == state) {
+				cell.setForeground(colour);
 			}
 		}
 	}
 
 	/**
-	 * If the number of rows or columns is changed we create a new grid, move 
-	 * all the Cells to the new grid and add new ones as necessary, then 
-	 * update the cell locations. 
+	 * If the number of rows or columns is changed we resize the layout, keep 
+	 * the blank cells that are still needed and add new ones as necessary, 
+	 * then update the cell locations. 
 	 * 
 	 * @param rowCkr	- Row count change.
 	 * @param colCkr	- Column count change.
 	 * @return true if changes were made, false otherwise.
 	 */
 	private boolean gridChange(ChangeChecker rowCkr, ChangeChecker colCkr) {
-//		System.out.println("gridChange(rows = " + grid.length + " -> " + main.getRows() + ")");
-//		System.out.println("gridChange(rows = " + grid[0].length + " -> " + main.getCols() + ")");
+//		System.out.println("gridChange(rows = " + layout.getRows() + " -> " + main.getRows() + ")");
+//		System.out.println("gridChange(cols = " + layout.getCols() + " -> " + main.getCols() + ")");
 
 		if (!rowCkr.isChanged() && !colCkr.isChanged()) {
 			return false;
 		}
 
+		final int oldCols = layout.getCols();
 		final int rows = rowCkr.getNewValue();
 		final int cols = colCkr.getNewValue();
-		Cell[][] newGrid = new Cell[rows][cols];
+		Cell[] newBlanks = new Cell[rows * cols];
 
 		final Color back = main.getSubcategoryColour(0);
 
-		int maxRow = rows;
-		if (rowCkr.isIncreased())
-			maxRow = rowCkr.getOldValue();
-		for (int r = 0; r < maxRow; ++r) {
+		for (int r = 0; r < rows; ++r) {
 			for (int c = 0; c < cols; ++c) {
-				if (c < colCkr.getOldValue())
-					newGrid[r][c] = grid[r][c];
+				if ((r < rowCkr.getOldValue()) && (c < colCkr.getOldValue()))
+					newBlanks[r * cols + c] = blanks[r * oldCols + c];
 				else
-					newGrid[r][c] = new Cell(back);
+					newBlanks[r * cols + c] = new Cell(context, back);
 			}
 		}
 
-		// Add new rows of empty cells if necessary.
-		if (rowCkr.isIncreased()) {
-			for (int r = maxRow; r < rows; ++r)
-				for (int c = 0; c < cols; ++c)
-					newGrid[r][c] = new Cell(back);
-		}
-
-		grid = newGrid;
+		layout.resize(rows, cols);
+		blanks = newBlanks;
+		markAllDirty(true);
 		setCellLocations();
 
 		return true;
@@ -263,15 +383,12 @@ public class Grid {
 	private void sizeChange() {
 //		System.out.println("sizeChange()");
 
-		final int rows = grid.length;
-		final int cols = grid[0].length;
+		for (Cell cell : blanks)
+			cell.setBackgroundSize(context);
 
-		for (int r = 0; r < rows; ++r) {
-			for (int c = 0; c < cols; ++c) {
-				Cell cell = grid[r][c];
-				cell.setBackgroundSize();
-				cell.setFontSize();
-			}
+		for (Cell cell : cells) {
+			cell.setBackgroundSize(context);
+			cell.setFontSize(context);
 		}
 	}
 
@@ -289,6 +406,8 @@ public class Grid {
 			ChangeChecker tileCkr, ChangeChecker brdrCkr,
 			ChangeChecker tempCkr) {
 
+		context = main.getRenderContext();
+
 		boolean sizeChanged = false;
 
 		if (tileCkr.isChanged())
@@ -300,14 +419,16 @@ public class Grid {
 		boolean gridChanged = gridChange(rowCkr, colCkr);
 
 		if (sizeChanged || gridChanged) {
-			if (sizeChanged)
+			if (sizeChanged) {
 				sizeChange();
+				markAllDirty(true);
+			}
 
 			setCellLocations();
 		}
 
 		if (tempCkr.isChanged())
-			updateStates();
+			updateStates(tempCkr.getOldValue(), tempCkr.getNewValue());
 
 		return (gridChanged || sizeChanged);
 	}
@@ -318,18 +439,8 @@ public class Grid {
 	public void flipColumns() {
 //		System.out.println("Flip Columns.");
 
-		final int rows = grid.length;
-		final int cols = grid[0].length;
-
-		for (int row = 0; row < rows; row++) {
-			int e = cols - 1;
-			for (int col = 0; col < (cols/2); col++, e--) {
-				Cell temp = grid[row][col];
-				grid[row][col] = grid[row][e];
-				grid[row][e] = temp;
-			}
-		}
-
+		layout.flipColumns();
+		markAllDirty(false);
 		setCellLocations();
 	}
 
@@ -339,18 +450,39 @@ public class Grid {
 	public void flipRows() {
 //		System.out.println("Flip Rows.");
 
-		final int rows = grid.length;
-		int e = rows - 1;
-
-		for (int row = 0; row < (rows/2); row++, e--) {
-			Cell[] temp = grid[row];
-			grid[row] = grid[e];
-			grid[e] = temp;
-		}
+		layout.flipRows();
+		markAllDirty(false);
+		setCellLocations();
+	}
 
+	/**
+	 * Replace the arrangement of the Elements with the given layout, which 
+	 * must have the same dimensions, and reposition the cells.
+	 * 
+	 * @param other layout to copy.
+	 */
+	public void setLayout(Layout other) {
+		layout.copyFrom(other);
+		markAllDirty(false);
 		setCellLocations();
 	}
 
+	/**
+	 * Get the Layout direction for the given arrow key.
+	 * 
+	 * @param code of the arrow key.
+	 * @return the Layout direction, or -1 if the key is not an arrow key.
+	 */
+	public static int getDirection(KeyCode code) {
+		switch (code) {
+		case UP:	return Layout.UP;
+		case DOWN:	return Layout.DOWN;
+		case LEFT:	return Layout.LEFT;
+		case RIGHT:	return Layout.RIGHT;
+		default:	return -1;
+		}
+	}
+
 	/**
 	 * Move the currently selected cells in the direction indicated.
 	 * 
@@ -358,78 +490,36 @@ public class Grid {
 	 * @param code to indicate the direction to move the cells.
 	 */
 	public boolean moveSelection(Selection selection, KeyCode code) {
-
-		Cell[] temp;
-		final int topRow = selection.getTop();
-		final int bottomRow = selection.getBottom();
-		final int leftCol = selection.getLeft();
-		final int rightCol = selection.getRight();
-
-		switch (code) {
-		case UP:
-			temp = new Cell[rightCol+1];
-			for (int c = leftCol; c <= rightCol; ++c)
-				temp[c] = grid[topRow-1][c];
-
-			for (int r = topRow; r <= bottomRow; ++r)
-				for (int c = leftCol; c <= rightCol; ++c)
-					grid[r-1][c] = grid[r][c];
-
-			for (int c = leftCol; c <= rightCol; ++c)
-				grid[bottomRow][c] = temp[c];
-
-			break;
-
-		case DOWN:
-			temp = new Cell[rightCol+1];
-			for (int c = leftCol; c <= rightCol; ++c)
-				temp[c] = grid[bottomRow+1][c];
-
-			for (int r = bottomRow; r >= topRow; --r)
-				for (int c = leftCol; c <= rightCol; ++c)
-					grid[r+1][c] = grid[r][c];
-
-			for (int c = leftCol; c <= rightCol; ++c)
-				grid[topRow][c] = temp[c];
-
-			break;
-
-		case LEFT:
-			temp = new Cell[bottomRow+1];
-			for (int r = topRow; r <= bottomRow; ++r)
-				temp[r] = grid[r][leftCol-1];
-
-			for (int r = topRow; r <= bottomRow; ++r)
-				for (int c = leftCol; c <= rightCol; ++c)
-					grid[r][c-1] = grid[r][c];
-
-			for (int r = topRow; r <= bottomRow; ++r)
-				grid[r][rightCol] = temp[r];
-
-			break;
-
-		case RIGHT:
-			temp = new Cell[bottomRow+1];
-			for (int r = topRow; r <= bottomRow; ++r)
-				temp[r] = grid[r][rightCol+1];
-
-			for (int r = topRow; r <= bottomRow; ++r)
-				for (int c = rightCol; c >= leftCol; --c)
-					grid[r][c+1] = grid[r][c];
-
-			for (int r = topRow; r <= bottomRow; ++r)
-				grid[r][leftCol] = temp[r];
-
-			break;
-
-		default:
-//			System.out.println("Key handler (" + code.toString() + ", " + pressed + ")");
+		final int direction = getDirection(code);
+		if (direction < 0)
 			return false;
-		}
 
-		setCellLocations();
+		moveBlock(selection.getTop(), selection.getLeft(), 
+				selection.getBottom(), selection.getRight(), direction);
 
 		return true;
 	}
 
+	/**
+	 * Move the given block of cells in the given direction. The row or 
+	 * column that the block moves in to is moved to the other side of the 
+	 * block.
+	 * 
+	 * @param top		row of the block.
+	 * @param left		column of the block.
+	 * @param bottom	row of the block.
+	 * @param right		column of the block.
+	 * @param direction	to move the block.
+	 */
+	public void moveBlock(int top, int left, int bottom, int right, int direction) {
+		layout.moveBlock(top, left, bottom, right, direction);
+
+		// The block and the row or column it moves in to have changed.
+		final int dr = Layout.getRowStep(direction);
+		final int dc = Layout.getColStep(direction);
+		markDirty(top + Math.min(dr, 0), left + Math.min(dc, 0), 
+				bottom + Math.max(dr, 0), right + Math.max(dc, 0));
+		setCellLocations();
+	}
+
 }
@@ -0,0 +1,373 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * Journal is a class that is responsible for recording the history of edits 
+ * made to a Layout so that they can be undone and redone. Each edit is 
+ * appended as a single long record holding an op code and the parameters of 
+ * the edit (the block bounds and direction of a move, or the old and new 
+ * dimensions of a resize), so undo and redo are O(1) regardless of the 
+ * length of the history. Undoing a resize may need Elements that were 
+ * dropped, so the Layout before each resize is kept as well.
+ * 
+ * A snapshot of the Layout is taken every SNAPSHOT_INTERVAL records so that 
+ * seek() can jump to any point in the history by replaying at most 
+ * SNAPSHOT_INTERVAL-1 records from the nearest snapshot.
+ * 
+ * Recording an edit after undoing discards the edits that could have been 
+ * redone.
+ * 
+ * Record layout (bits):
+ *   0-3	op code.
+ *   4-11	top row of a move, or old row count of a resize.
+ *   12-19	left column of a move, or old column count of a resize.
+ *   20-27	bottom row of a move, or new row count of a resize.
+ *   28-35	right column of a move, or new column count of a resize.
+ *   36-39	direction of a move.
+ *   40-63	index of the Layout before a resize.
+ */
+package phillockett65.PTable.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class Journal {
+
+	public final static int MOVE = 0;
+	public final static int FLIP_COLUMNS = 1;
+	public final static int FLIP_ROWS = 2;
+	public final static int RESIZE = 3;
+
+	public final static int SNAPSHOT_INTERVAL = 64;
+
+	private final static int OP_SHIFT = 0;
+	private final static int TOP_SHIFT = 4;
+	private final static int LEFT_SHIFT = 12;
+	private final static int BOTTOM_SHIFT = 20;
+	private final static int RIGHT_SHIFT = 28;
+	private final static int DIRECTION_SHIFT = 36;
+	private final static int INDEX_SHIFT = 40;
+
+	private long[] records = new long[256];
+	private int count = 0;
+	private int position = 0;
+
+	// snapshots.get(i) is the Layout at position i * SNAPSHOT_INTERVAL.
+	private final ArrayList<Layout> snapshots = new ArrayList<Layout>();
+
+	// The Layout before each resize, indexed by the resize record.
+	private final ArrayList<Layout> resizes = new ArrayList<Layout>();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param initial Layout that the history starts from.
+	 */
+	public Journal(Layout initial) {
+		reset(initial);
+	}
+
+	/**
+	 * Discard the history and start again from the given Layout.
+	 * 
+	 * @param initial Layout that the history starts from.
+	 */
+	public void reset(Layout initial) {
+		count = 0;
+		position = 0;
+		snapshots.clear();
+		resizes.clear();
+		snapshots.add(new Layout(initial));
+	}
+
+
+/************************************************************************
+ * Record encoding support section.
+ */
+
+	private static long encode(int op, int a, int b, int c, int d, int direction, int index) {
+		return ((long)op << OP_SHIFT) | 
+			((long)a << TOP_SHIFT) | 
+			((long)b << LEFT_SHIFT) | 
+			((long)c << BOTTOM_SHIFT) | 
+			((long)d << RIGHT_SHIFT) | 
+			((long)direction << DIRECTION_SHIFT) | 
+			((long)index << INDEX_SHIFT);
+	}
+
+	private static int field(long record, int shift, int bits) {
+		return (int)((record >>> shift) & ((1L << bits) - 1));
+	}
+
+	public static int getOp(long record) {
+		return field(record, OP_SHIFT, 4);
+	}
+
+	public static int getTop(long record) {
+		return field(record, TOP_SHIFT, 8);
+	}
+
+	public static int getLeft(long record) {
+		return field(record, LEFT_SHIFT, 8);
+	}
+
+	public static int getBottom(long record) {
+		return field(record, BOTTOM_SHIFT, 8);
+	}
+
+	public static int getRight(long record) {
+		return field(record, RIGHT_SHIFT, 8);
+	}
+
+	public static int getDirection(long record) {
+		return field(record, DIRECTION_SHIFT, 4);
+	}
+
+	public static int getOldRows(long record) {
+		return getTop(record);
+	}
+
+	public static int getOldCols(long record) {
+		return getLeft(record);
+	}
+
+	public static int getNewRows(long record) {
+		return getBottom(record);
+	}
+
+	public static int getNewCols(long record) {
+		return getRight(record);
+	}
+
+	private static int getIndex(long record) {
+		return field(record, INDEX_SHIFT, 24);
+	}
+
+
+/************************************************************************
+ * Recording support section.
+ */
+
+	/**
+	 * Append a record, discarding any records that could have been redone, 
+	 * and take a snapshot if one is due.
+	 * 
+	 * @param record to append.
+	 * @param after the Layout after the edit has been made.
+	 */
+	private void append(long record, Layout after) {
+		truncate();
+
+		if (count == records.length)
+			records = Arrays.copyOf(records, count * 2);
+
+		records[count++] = record;
+		position = count;
+
+		if (position % SNAPSHOT_INTERVAL == 0)
+			snapshots.add(new Layout(after));
+	}
+
+	/**
+	 * Discard the records after the current position, along with their 
+	 * snapshots and resize Layouts.
+	 */
+	private void truncate() {
+		if (position == count)
+			return;
+
+		for (int i = position; i < count; ++i) {
+			if (getOp(records[i]) == RESIZE) {
+				final int index = getIndex(records[i]);
+				while (resizes.size() > index)
+					resizes.remove(resizes.size()-1);
+				break;
+			}
+		}
+
+		final int keep = position / SNAPSHOT_INTERVAL + 1;
+		while (snapshots.size() > keep)
+			snapshots.remove(snapshots.size()-1);
+
+		count = position;
+	}
+
+	/**
+	 * Record that a block has been moved.
+	 * 
+	 * @param top		row of the block before the move.
+	 * @param left		column of the block before the move.
+	 * @param bottom	row of the block before the move.
+	 * @param right		column of the block before the move.
+	 * @param direction	of the move.
+	 * @param after		the Layout after the move.
+	 */
+	public void recordMove(int top, int left, int bottom, int right, int direction, Layout after) {
+		append(encode(MOVE, top, left, bottom, right, direction, 0), after);
+	}
+
+	/**
+	 * Record that the columns have been flipped.
+	 * 
+	 * @param after the Layout after the flip.
+	 */
+	public void recordFlipColumns(Layout after) {
+		append(encode(FLIP_COLUMNS, 0, 0, 0, 0, 0, 0), after);
+	}
+
+	/**
+	 * Record that the rows have been flipped.
+	 * 
+	 * @param after the Layout after the flip.
+	 */
+	public void recordFlipRows(Layout after) {
+		append(encode(FLIP_ROWS, 0, 0, 0, 0, 0, 0), after);
+	}
+
+	/**
+	 * Record that the Layout has been resized.
+	 * 
+	 * @param before	the Layout before the resize, which is copied.
+	 * @param after		the Layout after the resize.
+	 */
+	public void recordResize(Layout before, Layout after) {
+		truncate();
+
+		final int index = resizes.size();
+		resizes.add(new Layout(before));
+		append(encode(RESIZE, 
+				before.getRows(), before.getCols(), 
+				after.getRows(), after.getCols(), 0, index), after);
+	}
+
+
+/************************************************************************
+ * Undo and redo support section.
+ */
+
+	public boolean canUndo() {
+		return position > 0;
+	}
+
+	public boolean canRedo() {
+		return position < count;
+	}
+
+	/**
+	 * Get the number of records that have been applied.
+	 * 
+	 * @return the current position in the history.
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Get the number of records available, including those that can be 
+	 * redone.
+	 * 
+	 * @return the length of the history.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Step back one record. The caller is responsible for reverting the 
+	 * returned record.
+	 * 
+	 * @return the record to revert.
+	 */
+	public long undo() {
+		return records[--position];
+	}
+
+	/**
+	 * Step forward one record. The caller is responsible for applying the 
+	 * returned record.
+	 * 
+	 * @return the record to apply.
+	 */
+	public long redo() {
+		return records[position++];
+	}
+
+	/**
+	 * Get the Layout as it was before the given resize record was applied.
+	 * 
+	 * @param record of a resize.
+	 * @return the Layout before the resize. This must not be modified.
+	 */
+	public Layout getResizeOriginal(long record) {
+		return resizes.get(getIndex(record));
+	}
+
+	/**
+	 * Apply the given record to the given Layout.
+	 * 
+	 * @param layout to apply the record to.
+	 * @param record to apply.
+	 */
+	public static void apply(Layout layout, long record) {
+		switch (getOp(record)) {
+		case MOVE:
+			layout.moveBlock(getTop(record), getLeft(record), 
+					getBottom(record), getRight(record), getDirection(record));
+			break;
+
+		case FLIP_COLUMNS:
+			layout.flipColumns();
+			break;
+
+		case FLIP_ROWS:
+			layout.flipRows();
+			break;
+
+		case RESIZE:
+			layout.resize(getNewRows(record), getNewCols(record));
+			break;
+
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Move to the given position in the history, by replaying the records 
+	 * after the nearest snapshot at or before the position.
+	 * 
+	 * @param target position in the history, from 0 to getCount().
+	 * @return the Layout at the target position.
+	 */
+	public Layout seek(int target) {
+		target = Math.max(0, Math.min(target, count));
+
+		final int snapshot = target / SNAPSHOT_INTERVAL;
+		Layout layout = new Layout(snapshots.get(snapshot));
+		for (int i = snapshot * SNAPSHOT_INTERVAL; i < target; ++i)
+			apply(layout, records[i]);
+
+		position = target;
+
+		return layout;
+	}
+
+}
@@ -63,6 +63,14 @@ public class KeyAction {
 		}
 	}
 
+	public boolean isShift() {
+		return shift;
+	}
+
+	public boolean isControl() {
+		return control;
+	}
+
 	public boolean isSelecting() {
 		return (action == SELECTING);
 	}
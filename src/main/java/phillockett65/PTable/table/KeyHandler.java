@@ -78,6 +78,10 @@ public class KeyHandler implements EventHandler<KeyEvent> {
 		pressess.put(KeyCode.DOWN, () -> handlePressed(down));
 		pressess.put(KeyCode.LEFT, () -> handlePressed(left));
 		pressess.put(KeyCode.RIGHT, () -> handlePressed(right));
+		pressess.put(KeyCode.Z, () -> handleUndo());
+		pressess.put(KeyCode.Y, () -> handleRedo());
+		pressess.put(KeyCode.HOME, () -> handleUndoAll());
+		pressess.put(KeyCode.END, () -> handleRedoAll());
 
 		releases = new HashMap<>();
 		releases.put(KeyCode.SHIFT, () -> setShift(false));
@@ -146,8 +150,11 @@ public class KeyHandler implements EventHandler<KeyEvent> {
 		final KeyCode direction =  key.getKey();
 		if (action.isMoving()) {
 			if (selection.isMove(direction)) {
+				// Blank cells don't move, so the highlighting is redone.
+				table.highlightSelectedCells(false);
 				table.moveSelection(direction);
 				selection.move(direction);
+				table.highlightSelectedCells(true);
 			}
 
 		} else {
@@ -160,6 +167,50 @@ public class KeyHandler implements EventHandler<KeyEvent> {
 		}
 	}
 
+	/**
+	 * Handle Ctrl+Z, undo the last edit, and Ctrl+Shift+Z, redo the last 
+	 * undone edit.
+	 */
+	private void handleUndo() {
+		if (!action.isControl())
+			return;
+
+		if (action.isShift())
+			table.redo();
+		else
+			table.undo();
+	}
+
+	/**
+	 * Handle Ctrl+Y, redo the last undone edit.
+	 */
+	private void handleRedo() {
+		if (!action.isControl())
+			return;
+
+		table.redo();
+	}
+
+	/**
+	 * Handle Ctrl+Home, undo all edits.
+	 */
+	private void handleUndoAll() {
+		if (!action.isControl())
+			return;
+
+		table.undoAll();
+	}
+
+	/**
+	 * Handle Ctrl+End, redo all undone edits.
+	 */
+	private void handleRedoAll() {
+		if (!action.isControl())
+			return;
+
+		table.redoAll();
+	}
+
 	/**
 	 * Handle arrow key release.
 	 */
@@ -0,0 +1,725 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * Layout is a class that is responsible for the arrangement of the Elements 
+ * on the table. The key of the Element at each position is held in a flat 
+ * array indexed by (row * cols + col), with blank positions holding 
+ * Elements.UNDEFINED_KEY. This is the model that Grid, Quantifier and the 
+ * optimiser work on; the Cells in the Grid are just a view of it. A Layout 
+ * has no JavaFX dependencies and copying one costs a few hundred bytes.
+ * 
+ * A Zobrist-style hash of the (row, column, key) of every Element is kept 
+ * up to date by each change, so identical arrangements can be recognised 
+ * without comparing them position by position. The value for each Element 
+ * at each position is generated by mixing the three together rather than 
+ * looked up in a table, so the hash works for any size of layout. Blank 
+ * positions contribute nothing, so the hash does not depend on the number 
+ * of rows and columns, only on where the Elements are.
+ * 
+ * Mirroring the layout or moving all the Elements together doesn't change 
+ * which Elements are neighbours, so such layouts are equivalent. The 
+ * canonical form is the smallest block containing all the Elements, 
+ * mirrored whichever way gives the lowest sequence of keys, and can be used 
+ * to recognise equivalent layouts.
+ */
+package phillockett65.PTable.table;
+
+import java.util.Arrays;
+
+import phillockett65.PTable.elements.ElementConfig;
+import phillockett65.PTable.elements.Elements;
+
+public class Layout {
+
+	public final static int UP = 0;
+	public final static int DOWN = 1;
+	public final static int LEFT = 2;
+	public final static int RIGHT = 3;
+	public final static int MAX_DIRECTION = 4;
+
+	private int rows;
+	private int cols;
+	private short[] keys;
+	private long hash = 0L;
+
+	/**
+	 * Constructor. All positions are initially blank.
+	 * 
+	 * @param rows	- Row count.
+	 * @param cols	- Column count.
+	 */
+	public Layout(int rows, int cols) {
+		this.rows = rows;
+		this.cols = cols;
+		keys = new short[rows * cols];
+		clear(0);
+	}
+
+	/**
+	 * Copy constructor.
+	 * 
+	 * @param other layout to copy.
+	 */
+	public Layout(Layout other) {
+		rows = other.rows;
+		cols = other.cols;
+		keys = other.keys.clone();
+		hash = other.hash;
+	}
+
+	/**
+	 * Create the standard layout, with the Elements positioned by Period and 
+	 * Group and the f-block below the main table. Elements that don't fit in 
+	 * the given dimensions are left out.
+	 * 
+	 * @param rows	- Row count.
+	 * @param cols	- Column count.
+	 * @return the standard layout.
+	 */
+	public static Layout standard(int rows, int cols) {
+		Layout layout = new Layout(rows, cols);
+
+		for (int i = Elements.firstKey(); i <= Elements.lastKey(); i = Elements.nextKey(i)) {
+			if (!Elements.isKeyValid(i)) {
+				continue;
+			}
+			ElementConfig e = Elements.element(i);
+			int r;
+			int c;
+			if (e.getPeriod() != 0) {
+				if (e.getGroup() != 0) {
+					r = (e.getPeriod()-1);
+					c = (e.getGroup()-1);
+				} else {
+					r = (e.getPeriod()+2);
+					c = (e.getGroup32()-1);
+				}
+				if ((r < rows) && (c < cols))
+					layout.setKey(r, c, i);
+			}
+		}
+
+		return layout;
+	}
+
+	/**
+	 * Set all positions from the given index onwards to blank.
+	 * 
+	 * @param from index of the first position to clear.
+	 */
+	private void clear(int from) {
+		for (int i = from; i < keys.length; ++i)
+			keys[i] = Elements.UNDEFINED_KEY;
+	}
+
+	/**
+	 * Overwrite this layout with the given layout, which must have the same 
+	 * dimensions.
+	 * 
+	 * @param other layout to copy.
+	 */
+	public void copyFrom(Layout other) {
+		System.arraycopy(other.keys, 0, keys, 0, keys.length);
+		hash = other.hash;
+	}
+
+	/**
+	 * Change the dimensions of the layout. Elements keep their row and 
+	 * column, any that no longer fit are dropped and new positions are 
+	 * blank.
+	 * 
+	 * @param newRows	- Row count.
+	 * @param newCols	- Column count.
+	 */
+	public void resize(int newRows, int newCols) {
+		if ((newRows == rows) && (newCols == cols))
+			return;
+
+		short[] newKeys = new short[newRows * newCols];
+		for (int i = 0; i < newKeys.length; ++i)
+			newKeys[i] = Elements.UNDEFINED_KEY;
+
+		final int maxRow = Math.min(rows, newRows);
+		final int maxCol = Math.min(cols, newCols);
+		for (int r = 0; r < maxRow; ++r)
+			System.arraycopy(keys, r * cols, newKeys, r * newCols, maxCol);
+
+		rows = newRows;
+		cols = newCols;
+		keys = newKeys;
+		rehash();
+	}
+
+	/**
+	 * Get the number of Rows in the layout.
+	 * 
+	 * @return the number of Rows in the layout.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Get the number of Columns in the layout.
+	 * 
+	 * @return the number of Columns in the layout.
+	 */
+	public int getCols() {
+		return cols;
+	}
+
+	/**
+	 * Get the number of positions in the layout.
+	 * 
+	 * @return the number of positions in the layout.
+	 */
+	public int getSize() {
+		return keys.length;
+	}
+
+	/**
+	 * Get the index of the given position.
+	 * 
+	 * @param row of the position.
+	 * @param col of the position.
+	 * @return the index of the position.
+	 */
+	public int getIndex(int row, int col) {
+		return row * cols + col;
+	}
+
+	/**
+	 * Get the key of the Element at the given position.
+	 * 
+	 * @param index of the position (row * cols + col).
+	 * @return the key of the Element or UNDEFINED_KEY if blank.
+	 */
+	public int getKey(int index) {
+		return keys[index];
+	}
+
+	/**
+	 * Get the key of the Element at the given position.
+	 * 
+	 * @param row of the position.
+	 * @param col of the position.
+	 * @return the key of the Element or UNDEFINED_KEY if blank.
+	 */
+	public int getKey(int row, int col) {
+		return keys[row * cols + col];
+	}
+
+	/**
+	 * Set the key of the Element at the given position.
+	 * 
+	 * @param index of the position (row * cols + col).
+	 * @param key of the Element or UNDEFINED_KEY for blank.
+	 */
+	public void setKey(int index, int key) {
+		hash ^= positionHash(index);
+		keys[index] = (short)key;
+		hash ^= positionHash(index);
+	}
+
+	/**
+	 * Set the key of the Element at the given position.
+	 * 
+	 * @param row of the position.
+	 * @param col of the position.
+	 * @param key of the Element or UNDEFINED_KEY for blank.
+	 */
+	public void setKey(int row, int col, int key) {
+		setKey(row * cols + col, key);
+	}
+
+	/**
+	 * Check if the given position is blank.
+	 * 
+	 * @param index of the position (row * cols + col).
+	 * @return true if there is no Element at the position.
+	 */
+	public boolean isBlank(int index) {
+		return keys[index] == Elements.UNDEFINED_KEY;
+	}
+
+	/**
+	 * Check if the given position is blank.
+	 * 
+	 * @param row of the position.
+	 * @param col of the position.
+	 * @return true if there is no Element at the position.
+	 */
+	public boolean isBlank(int row, int col) {
+		return keys[row * cols + col] == Elements.UNDEFINED_KEY;
+	}
+
+	/**
+	 * Find the first position that holds an invalid Element key, or an 
+	 * Element that is also at an earlier position. The Grid has a single 
+	 * Cell for each Element, so a layout read from a file must be checked 
+	 * before it is displayed or scored.
+	 * 
+	 * @return the index of the position or -1 if every key is valid and 
+	 * each Element appears at most once.
+	 */
+	public int findInvalidKey() {
+		boolean[] seen = new boolean[Elements.lastKey() + 1];
+		for (int i = 0; i < keys.length; ++i) {
+			final int key = keys[i];
+			if (key == Elements.UNDEFINED_KEY)
+				continue;
+
+			if (!Elements.isKeyValid(key) || seen[key])
+				return i;
+
+			seen[key] = true;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Swap the Elements at the given positions.
+	 * 
+	 * @param a index of the first position.
+	 * @param b index of the second position.
+	 */
+	public void swap(int a, int b) {
+		hash ^= positionHash(a) ^ positionHash(b);
+		final short temp = keys[a];
+		keys[a] = keys[b];
+		keys[b] = temp;
+		hash ^= positionHash(a) ^ positionHash(b);
+	}
+
+	/**
+	 * Determine if the given block can be moved in the given direction.
+	 * 
+	 * @param top		row of the block.
+	 * @param left		column of the block.
+	 * @param bottom	row of the block.
+	 * @param right		column of the block.
+	 * @param direction	to move the block.
+	 * @return true if the block can be moved, false otherwise.
+	 */
+	public boolean isMove(int top, int left, int bottom, int right, int direction) {
+		switch (direction) {
+		case UP:
+			return (top > 0);
+
+		case DOWN:
+			return (bottom < rows-1);
+
+		case LEFT:
+			return (left > 0);
+
+		case RIGHT:
+			return (right < cols-1);
+
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Move the given block in the given direction. The row or column that 
+	 * the block moves in to is moved to the other side of the block.
+	 * 
+	 * @param top		row of the block.
+	 * @param left		column of the block.
+	 * @param bottom	row of the block.
+	 * @param right		column of the block.
+	 * @param direction	to move the block.
+	 */
+	public void moveBlock(int top, int left, int bottom, int right, int direction) {
+		hash ^= moveHash(top, left, bottom, right, direction);
+
+		switch (direction) {
+		case UP:
+			for (int c = left; c <= right; ++c) {
+				final short temp = keys[(top-1) * cols + c];
+				for (int r = top; r <= bottom; ++r)
+					keys[(r-1) * cols + c] = keys[r * cols + c];
+				keys[bottom * cols + c] = temp;
+			}
+			break;
+
+		case DOWN:
+			for (int c = left; c <= right; ++c) {
+				final short temp = keys[(bottom+1) * cols + c];
+				for (int r = bottom; r >= top; --r)
+					keys[(r+1) * cols + c] = keys[r * cols + c];
+				keys[top * cols + c] = temp;
+			}
+			break;
+
+		case LEFT:
+			for (int r = top; r <= bottom; ++r) {
+				final int row = r * cols;
+				final short temp = keys[row + left-1];
+				System.arraycopy(keys, row + left, keys, row + left-1, right-left+1);
+				keys[row + right] = temp;
+			}
+			break;
+
+		case RIGHT:
+			for (int r = top; r <= bottom; ++r) {
+				final int row = r * cols;
+				final short temp = keys[row + right+1];
+				System.arraycopy(keys, row + left, keys, row + left+1, right-left+1);
+				keys[row + left] = temp;
+			}
+			break;
+
+		default:
+			break;
+		}
+
+		hash ^= moveHash(top, left, bottom, right, direction);
+	}
+
+	/**
+	 * Layouts are equal if they have the same dimensions and the same 
+	 * Element at every position. A Layout used as a key in a map must not be 
+	 * changed while it is in the map.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (this == other)
+			return true;
+
+		if (!(other instanceof Layout))
+			return false;
+
+		final Layout layout = (Layout)other;
+
+		return (hash == layout.hash) && (rows == layout.rows) && 
+				(cols == layout.cols) && Arrays.equals(keys, layout.keys);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(hash);
+	}
+
+	/**
+	 * Reverses the order of the columns.
+	 */
+	public void flipColumns() {
+		for (int r = 0; r < rows; ++r) {
+			final int row = r * cols;
+			int e = cols - 1;
+			for (int c = 0; c < (cols/2); c++, e--)
+				swap(row + c, row + e);
+		}
+	}
+
+	/**
+	 * Reverses the order of the rows.
+	 */
+	public void flipRows() {
+		short[] temp = new short[cols];
+		int e = rows - 1;
+
+		for (int r = 0; r < (rows/2); r++, e--) {
+			System.arraycopy(keys, r * cols, temp, 0, cols);
+			System.arraycopy(keys, e * cols, keys, r * cols, cols);
+			System.arraycopy(temp, 0, keys, e * cols, cols);
+		}
+
+		rehash();
+	}
+
+	/**
+	 * Get the direction that reverses a move in the given direction.
+	 * 
+	 * @param direction of the original move.
+	 * @return the direction of the reverse move.
+	 */
+	public static int reverse(int direction) {
+		switch (direction) {
+		case UP:	return DOWN;
+		case DOWN:	return UP;
+		case LEFT:	return RIGHT;
+		case RIGHT:	return LEFT;
+		default:	return direction;
+		}
+	}
+
+	/**
+	 * Get the change in row caused by a move in the given direction.
+	 * 
+	 * @param direction of the move.
+	 * @return -1, 0 or 1.
+	 */
+	public static int getRowStep(int direction) {
+		switch (direction) {
+		case UP:	return -1;
+		case DOWN:	return 1;
+		default:	return 0;
+		}
+	}
+
+	/**
+	 * Get the change in column caused by a move in the given direction.
+	 * 
+	 * @param direction of the move.
+	 * @return -1, 0 or 1.
+	 */
+	public static int getColStep(int direction) {
+		switch (direction) {
+		case LEFT:	return -1;
+		case RIGHT:	return 1;
+		default:	return 0;
+		}
+	}
+
+
+
+/************************************************************************
+ * Hash support section.
+ */
+
+	/**
+	 * Get the Zobrist-style hash of the arrangement of the Elements. Layouts 
+	 * with the same Elements in the same positions have the same hash, 
+	 * regardless of the number of rows and columns.
+	 * 
+	 * @return the hash of the layout.
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Generate the value that the given key at the given position 
+	 * contributes to the hash, using the SplitMix64 finalizer to spread 
+	 * the bits.
+	 * 
+	 * @param row of the position.
+	 * @param col of the position.
+	 * @param key of the Element or UNDEFINED_KEY for blank.
+	 * @return the value, which is zero for a blank position.
+	 */
+	private static long zobrist(int row, int col, int key) {
+		if (key == Elements.UNDEFINED_KEY)
+			return 0L;
+
+		long z = ((long)row << 48) ^ ((long)col << 32) ^ (key & 0xFFFFFFFFL);
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Get the value that the given position contributes to the hash.
+	 * 
+	 * @param index of the position (row * cols + col).
+	 * @return the value of the position.
+	 */
+	private long positionHash(int index) {
+		final int row = index / cols;
+
+		return zobrist(row, index - row * cols, keys[index]);
+	}
+
+	/**
+	 * Get the combined value that the given region contributes to the hash.
+	 * 
+	 * @param top		row of the region.
+	 * @param left		column of the region.
+	 * @param bottom	row of the region.
+	 * @param right		column of the region.
+	 * @return the value of the region.
+	 */
+	private long regionHash(int top, int left, int bottom, int right) {
+		long value = 0L;
+		for (int r = top; r <= bottom; ++r)
+			for (int c = left; c <= right; ++c)
+				value ^= zobrist(r, c, keys[r * cols + c]);
+
+		return value;
+	}
+
+	/**
+	 * Get the combined value that the cells changed by moving the given 
+	 * block contribute to the hash. This is the block plus the row or column 
+	 * of cells that the block is moved into.
+	 * 
+	 * @param top		row of the block.
+	 * @param left		column of the block.
+	 * @param bottom	row of the block.
+	 * @param right		column of the block.
+	 * @param direction	to move the block.
+	 * @return the value of the changed cells.
+	 */
+	private long moveHash(int top, int left, int bottom, int right, int direction) {
+		final int dr = getRowStep(direction);
+		final int dc = getColStep(direction);
+
+		return regionHash(top + Math.min(dr, 0), left + Math.min(dc, 0), 
+				bottom + Math.max(dr, 0), right + Math.max(dc, 0));
+	}
+
+	/**
+	 * Recalculate the hash from scratch after a change that moves too many 
+	 * Elements to track individually.
+	 */
+	private void rehash() {
+		hash = regionHash(0, 0, rows-1, cols-1);
+	}
+
+
+/************************************************************************
+ * Canonical form support section.
+ */
+
+	// Mirror images of a layout, combinations of reversing the rows and 
+	// reversing the columns.
+	private final static int MIRROR_COLUMNS = 1;
+	private final static int MIRROR_ROWS = 2;
+	private final static int MAX_MIRROR = 4;
+
+	/**
+	 * Find the smallest block that contains all the Elements.
+	 * 
+	 * @return the top, left, bottom and right of the block, or null if the 
+	 * 			layout is completely blank.
+	 */
+	private int[] findBounds() {
+		int top = rows;
+		int left = cols;
+		int bottom = -1;
+		int right = -1;
+
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < cols; ++c) {
+				if (keys[r * cols + c] == Elements.UNDEFINED_KEY)
+					continue;
+
+				top = Math.min(top, r);
+				left = Math.min(left, c);
+				bottom = Math.max(bottom, r);
+				right = Math.max(right, c);
+			}
+		}
+
+		if (bottom < 0)
+			return null;
+
+		return new int[] { top, left, bottom, right };
+	}
+
+	/**
+	 * Get the key at the given position of a mirror image of the given 
+	 * block.
+	 * 
+	 * @param bounds	of the block.
+	 * @param mirror	combination of MIRROR_COLUMNS and MIRROR_ROWS.
+	 * @param row		within the mirror image.
+	 * @param col		within the mirror image.
+	 * @return the key at the position.
+	 */
+	private int getKey(int[] bounds, int mirror, int row, int col) {
+		final int r = ((mirror & MIRROR_ROWS) != 0) ? bounds[2] - row : bounds[0] + row;
+		final int c = ((mirror & MIRROR_COLUMNS) != 0) ? bounds[3] - col : bounds[1] + col;
+
+		return keys[r * cols + c];
+	}
+
+	/**
+	 * Find the mirror image of the given block with the lowest sequence of 
+	 * keys, reading row by row.
+	 * 
+	 * @param bounds	of the block.
+	 * @return the combination of MIRROR_COLUMNS and MIRROR_ROWS to use.
+	 */
+	private int findCanonicalMirror(int[] bounds) {
+		final int height = bounds[2] - bounds[0] + 1;
+		final int width = bounds[3] - bounds[1] + 1;
+		int best = 0;
+
+		for (int mirror = 1; mirror < MAX_MIRROR; ++mirror) {
+			int diff = 0;
+			for (int i = 0; (diff == 0) && (i < height * width); ++i) {
+				final int row = i / width;
+				final int col = i - row * width;
+				diff = getKey(bounds, mirror, row, col) - getKey(bounds, best, row, col);
+			}
+
+			if (diff < 0)
+				best = mirror;
+		}
+
+		return best;
+	}
+
+	/**
+	 * Get the canonical form of the layout, which is the same for all 
+	 * mirror images of the layout and wherever the Elements are positioned 
+	 * within it. The dimensions are those of the smallest block that 
+	 * contains all the Elements.
+	 * 
+	 * @return a new Layout in canonical form.
+	 */
+	public Layout canonical() {
+		final int[] bounds = findBounds();
+		if (bounds == null)
+			return new Layout(0, 0);
+
+		final int mirror = findCanonicalMirror(bounds);
+		final int height = bounds[2] - bounds[0] + 1;
+		final int width = bounds[3] - bounds[1] + 1;
+		Layout layout = new Layout(height, width);
+		for (int r = 0; r < height; ++r)
+			for (int c = 0; c < width; ++c)
+				layout.setKey(r, c, getKey(bounds, mirror, r, c));
+
+		return layout;
+	}
+
+	/**
+	 * Get the hash of the canonical form of the layout without creating it. 
+	 * Equivalent layouts have the same canonical hash. Unlike the hash, this 
+	 * is calculated on each call.
+	 * 
+	 * @return the hash of the canonical form.
+	 */
+	public long canonicalHash() {
+		final int[] bounds = findBounds();
+		if (bounds == null)
+			return 0L;
+
+		final int mirror = findCanonicalMirror(bounds);
+		final int height = bounds[2] - bounds[0] + 1;
+		final int width = bounds[3] - bounds[1] + 1;
+		long value = 0L;
+		for (int r = 0; r < height; ++r)
+			for (int c = 0; c < width; ++c)
+				value ^= zobrist(r, c, getKey(bounds, mirror, r, c));
+
+		return value;
+	}
+
+}
@@ -0,0 +1,213 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * NeighbourTracker is a class that is responsible for the bookkeeping of an 
+ * incremental change to a Layout, shared by Quantifier and the optimiser. 
+ * Before the layout is changed, each position about to change is marked and 
+ * the listener is asked to remove every pair of neighbouring Elements that 
+ * touches it. After the change, the listener is asked to add the pairs 
+ * touching the marked positions back. Each pair is reported exactly once 
+ * when it is removed and once when it is added back, even if both of its 
+ * positions are marked, so the listener only needs to apply the 
+ * contribution of a single pair.
+ * 
+ * Blank positions have no pairs, so the listener is only called for pairs 
+ * of Elements. A NeighbourTracker is not thread safe.
+ */
+package phillockett65.PTable.table;
+
+import phillockett65.PTable.elements.Elements;
+
+public class NeighbourTracker {
+
+	/**
+	 * The listener that is told about each pair of neighbours touched by a 
+	 * change.
+	 */
+	public interface PairListener {
+		/**
+		 * Add or remove the contribution of a pair of neighbours.
+		 * 
+		 * @param key		- of the Element at the marked position.
+		 * @param adjacent	- key of the neighbouring Element.
+		 * @param sign		- 1 to add the contribution, -1 to remove it.
+		 */
+		void updatePair(int key, int adjacent, int sign);
+	}
+
+	// Position states used while applying an incremental change.
+	private static final byte UNMARKED = 0;
+	private static final byte MARKED = 1;
+	private static final byte ADDED = 2;
+
+	private final PairListener listener;
+	private Layout layout;
+	private int rows;
+	private int cols;
+
+	private byte[] marks = new byte[0];
+	private int[] changed = new int[0];
+	private int changedCount = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param layout	- to track the changes to.
+	 * @param listener	- told about each pair of neighbours touched.
+	 */
+	public NeighbourTracker(Layout layout, PairListener listener) {
+		this.listener = listener;
+		setLayout(layout);
+	}
+
+	/**
+	 * Track the changes to the given layout, which may be a different size. 
+	 * Any change in progress is abandoned.
+	 * 
+	 * @param layout	to track the changes to.
+	 */
+	public void setLayout(Layout layout) {
+		this.layout = layout;
+		rows = layout.getRows();
+		cols = layout.getCols();
+
+		final int size = rows * cols;
+		if (marks.length != size) {
+			marks = new byte[size];
+			changed = new int[size];
+		} else {
+			for (int i = 0; i < changedCount; ++i)
+				marks[changed[i]] = UNMARKED;
+		}
+		changedCount = 0;
+	}
+
+	/**
+	 * Report the pairs between the given position and each of its 
+	 * neighbours, skipping the neighbours with the given mark.
+	 * 
+	 * @param index	- of the position.
+	 * @param skip	- mark of neighbours to ignore.
+	 * @param sign	- 1 to add the contribution, -1 to remove it.
+	 */
+	private void updateNeighbours(int index, byte skip, int sign) {
+		final int key = layout.getKey(index);
+		if (key == Elements.UNDEFINED_KEY)
+			return;
+
+		final int row = index / cols;
+		final int col = index - row * cols;
+
+		if ((row > 0) && (marks[index-cols] != skip))
+			updatePair(key, layout.getKey(index-cols), sign);
+		if ((row < rows-1) && (marks[index+cols] != skip))
+			updatePair(key, layout.getKey(index+cols), sign);
+		if ((col > 0) && (marks[index-1] != skip))
+			updatePair(key, layout.getKey(index-1), sign);
+		if ((col < cols-1) && (marks[index+1] != skip))
+			updatePair(key, layout.getKey(index+1), sign);
+	}
+
+	private void updatePair(int key, int adjacent, int sign) {
+		if (adjacent != Elements.UNDEFINED_KEY)
+			listener.updatePair(key, adjacent, sign);
+	}
+
+	/**
+	 * Start an incremental change. The positions that are about to change 
+	 * must be marked before the layout is changed.
+	 */
+	public void beginChange() {
+		for (int i = 0; i < changedCount; ++i)
+			marks[changed[i]] = UNMARKED;
+		changedCount = 0;
+	}
+
+	/**
+	 * Mark the given position as about to change. This removes the pairs 
+	 * touching the position, so it must be called before the layout is 
+	 * changed.
+	 * 
+	 * @param index	of the position about to change.
+	 */
+	public void markCell(int index) {
+		if (marks[index] != UNMARKED)
+			return;
+
+		// Neighbours that are already marked have had the pair removed.
+		updateNeighbours(index, MARKED, -1);
+
+		marks[index] = MARKED;
+		changed[changedCount++] = index;
+	}
+
+	/**
+	 * Mark all the positions in the given region as about to change.
+	 * 
+	 * @param top		row of the region.
+	 * @param left		column of the region.
+	 * @param bottom	row of the region.
+	 * @param right		column of the region.
+	 */
+	public void markRegion(int top, int left, int bottom, int right) {
+		for (int r = top; r <= bottom; ++r)
+			for (int c = left; c <= right; ++c)
+				markCell(r * cols + c);
+	}
+
+	/**
+	 * Mark all the positions that will be changed by moving the given block 
+	 * in the given direction with Layout.moveBlock(). This is the block plus 
+	 * the row or column of positions that it is moved into.
+	 * 
+	 * @param top		row of the block.
+	 * @param left		column of the block.
+	 * @param bottom	row of the block.
+	 * @param right		column of the block.
+	 * @param direction	to move the block.
+	 */
+	public void markMove(int top, int left, int bottom, int right, int direction) {
+		final int dr = Layout.getRowStep(direction);
+		final int dc = Layout.getColStep(direction);
+		markRegion(top + Math.min(dr, 0), left + Math.min(dc, 0), 
+				bottom + Math.max(dr, 0), right + Math.max(dc, 0));
+	}
+
+	/**
+	 * Complete an incremental change. This adds the pairs touching the 
+	 * marked positions back, so it must be called after the layout is 
+	 * changed.
+	 */
+	public void endChange() {
+		for (int i = 0; i < changedCount; ++i) {
+			final int index = changed[i];
+
+			// Neighbours that have already been added back must be skipped.
+			updateNeighbours(index, ADDED, 1);
+			marks[index] = ADDED;
+		}
+
+		for (int i = 0; i < changedCount; ++i)
+			marks[changed[i]] = UNMARKED;
+		changedCount = 0;
+	}
+
+}
@@ -49,6 +49,14 @@ public class PTable extends Stage {
 
 	private Quantifier quantities;
 
+	private TableCanvas canvas = null;
+
+	private Journal journal;
+	private boolean replaying = false;
+
+	// Incremented on every edit to the layout.
+	private int changeCount = 0;
+
 
 	/**
 	 * Constructor.
@@ -74,6 +82,12 @@ public class PTable extends Stage {
 
 		initTable();
 
+		if (main.isCanvasRendering()) {
+			canvas = new TableCanvas(grid);
+			group.getChildren().add(canvas);
+			canvas.start();
+		}
+
 		scene = new Scene(group, main.getWidth(), main.getHeight());
 		setScene(scene);
 		show();
@@ -89,16 +103,18 @@ public class PTable extends Stage {
 		boolean cellHighlighted = false;
 
 		grid = new Grid(main);
-		quantities = new Quantifier(grid);
+		quantities = new Quantifier(grid.getLayout());
+		journal = new Journal(grid.getLayout());
 		selection.setRows(rows);
 		selection.setCols(cols);
 
+		if (!main.isCanvasRendering())
+			addCells(group);
+
 		for (int r = 0; r < rows; ++r) {
 			for (int c = 0; c < cols; ++c) {
 				Cell cell = grid.getCell(r, c);
 
-				group.getChildren().add(cell.getBack());
-
 				if (cell.isBlank())
 					continue;
 
@@ -108,8 +124,6 @@ public class PTable extends Stage {
 					cell.setSelected(true);
 					main.setSelected(cell);
 				}
-
-				group.getChildren().addAll(cell.getZ(), cell.getSymbol());
 			}
 		}
 
@@ -122,6 +136,82 @@ public class PTable extends Stage {
  * Table drawing support section.
  */
 
+	/**
+	 * Adds the nodes of the given cell to the given Group.
+	 * 
+	 * @param cell the given cell.
+	 * @param newGroup to add the nodes to.
+	 */
+	private void addCell(Cell cell, Group newGroup) {
+		newGroup.getChildren().add(cell.getBack());
+		if (!cell.isBlank())
+			newGroup.getChildren().addAll(cell.getZ(), cell.getSymbol());
+	}
+
+	/**
+	 * Moves the nodes of every cell in the grid to the given Group. All the 
+	 * blank cells are added first, as they don't move, then the cells of 
+	 * the Elements are added on top of them, so a blank cell is never drawn 
+	 * over an Element and a position left by an Element is not empty.
+	 * 
+	 * @param newGroup to move the nodes to.
+	 */
+	private void addCells(Group newGroup) {
+		final int rows = grid.getRows();
+		final int cols = grid.getCols();
+
+		for (int r = 0; r < rows; ++r)
+			for (int c = 0; c < cols; ++c)
+				setGroup(grid.getBlank(r, c), newGroup);
+
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < cols; ++c) {
+				Cell cell = grid.getCell(r, c);
+				if (!cell.isBlank())
+					setGroup(cell, newGroup);
+			}
+		}
+	}
+
+	/**
+	 * Request a repaint of the changed tiles if the grid is drawn on a 
+	 * Canvas. Nodes update themselves so nothing is needed otherwise.
+	 */
+	private void requestRepaint() {
+		if (canvas != null)
+			canvas.requestRepaint();
+	}
+
+	/**
+	 * Note that the layout has changed and let the controller know, so that 
+	 * the Status tab can be updated.
+	 */
+	private void layoutChanged() {
+		changeCount++;
+		main.layoutChanged();
+	}
+
+	/**
+	 * Switch between drawing the grid on a single Canvas and adding the 
+	 * nodes of every Cell to the scene graph.
+	 * 
+	 * @param enabled	true to draw on a Canvas, false to use nodes.
+	 */
+	public void setCanvasRendering(boolean enabled) {
+		if (enabled == (canvas != null))
+			return;
+
+		if (enabled) {
+			canvas = new TableCanvas(grid);
+			canvas.start();
+		} else {
+			canvas.stop();
+			canvas = null;
+		}
+
+		moveGroup();
+	}
+
 	/**
 	 * Updates the background of all Elements of the specified subcategory to 
 	 * the latest colour.
@@ -133,6 +223,7 @@ public class PTable extends Stage {
 //		System.out.println("setSubcategoryColour(subcategory = " + subcategory + ")");
 
 		grid.setSubcategoryColour(subcategory, colour);
+		requestRepaint();
 	}
 
 	/**
@@ -146,6 +237,7 @@ public class PTable extends Stage {
 //		System.out.println("setStateColour(state = " + state + ")");
 
 		grid.setStateColour(state, colour);
+		requestRepaint();
 	}
 
 	/**
@@ -160,27 +252,24 @@ public class PTable extends Stage {
 
 		group.getChildren().removeAll(cell.getBack(), cell.getZ(), cell.getSymbol());
 
-		newGroup.getChildren().add(cell.getBack());
-		if (!cell.isBlank())
-			newGroup.getChildren().addAll(cell.getZ(), cell.getSymbol());
+		addCell(cell, newGroup);
 	}
 
 	/**
 	 * If the Tile or Border size is changed we move all the nodes to a new 
-	 * Group, then use it to resize the window.
+	 * Group, then use it to resize the window. When drawing on a Canvas only 
+	 * the Canvas is moved, it resizes itself on the next repaint.
 	 */
 	private void moveGroup() {
 //		System.out.println("sizeChange(rows = " + main.getWidth() + " -> " + main.getHeight() + ")");
 
-		final int rows = grid.getRows();
-		final int cols = grid.getCols();
 		Group newGroup = new Group();
 
-		for (int r = 0; r < rows; ++r) {
-			for (int c = 0; c < cols; ++c) {
-				Cell cell = grid.getCell(r, c);
-				setGroup(cell, newGroup);
-			}
+		if (canvas != null) {
+			newGroup.getChildren().add(canvas);
+			canvas.requestFullRepaint();
+		} else {
+			addCells(newGroup);
 		}
 
 		group = newGroup;
@@ -214,24 +303,61 @@ public class PTable extends Stage {
 		if (!cell.isBlank())
 			main.setSelected(cell);
 
+		// Keep the layout before a resize as Elements may be dropped.
+		final boolean resize = rowCkr.isChanged() || colCkr.isChanged();
+		Layout before = null;
+		if (resize && !replaying)
+			before = new Layout(grid.getLayout());
+
 		if (grid.updateLayout(rowCkr, colCkr, tileCkr, brdrCkr, tempCkr))
 			moveGroup();
+
+		if (before != null)
+			journal.recordResize(before, grid.getLayout());
+
+		// Cells may have been added or removed, so a full rescan is needed.
+		if (resize) {
+			quantities.invalidate();
+			layoutChanged();
+		}
+
+		requestRepaint();
 	}
 
 	/**
-	 * Reverses the order of the columns and repositions the cells.
+	 * Reverses the order of the columns and repositions the cells. Note: 
+	 * flipping doesn't change which cells are neighbours, so the quantities 
+	 * are unaffected.
 	 */
 	public void flipColumns() {
+		highlightSelectedCells(false);
 		grid.flipColumns();
 		selection.flipColumns(grid.getCols());
+		highlightSelectedCells(true);
+		requestRepaint();
+
+		if (!replaying)
+			journal.recordFlipColumns(grid.getLayout());
+
+		layoutChanged();
 	}
 
 	/**
-	 * Reverses the order of the rows and then repositions the cells.
+	 * Reverses the order of the rows and then repositions the cells. Note: 
+	 * flipping doesn't change which cells are neighbours, so the quantities 
+	 * are unaffected.
 	 */
 	public void flipRows() {
+		highlightSelectedCells(false);
 		grid.flipRows();
 		selection.flipRows(grid.getRows());
+		highlightSelectedCells(true);
+		requestRepaint();
+
+		if (!replaying)
+			journal.recordFlipRows(grid.getLayout());
+
+		layoutChanged();
 	}
 
 	/**
@@ -243,6 +369,52 @@ public class PTable extends Stage {
 		return quantities.getQuantities();
 	}
 
+	/**
+	 * Indicate if the current quantities can be provided without a full 
+	 * recalculation.
+	 * 
+	 * @return true if the quantities are up to date.
+	 */
+	public boolean isQuantitiesValid() {
+		return quantities.isAvailable();
+	}
+
+	/**
+	 * Get the number of edits made to the layout, used to check whether a 
+	 * snapshot is still current.
+	 * 
+	 * @return the number of edits made to the layout.
+	 */
+	public int getChangeCount() {
+		return changeCount;
+	}
+
+	/**
+	 * Adopt the Quantifier of a snapshot, which has already been analyzed, 
+	 * as long as the layout hasn't changed since the snapshot was taken. 
+	 * This avoids a full recalculation on the JavaFX Application Thread.
+	 * 
+	 * @param quantifier	of the snapshot.
+	 * @param changes		the change count when the snapshot was taken.
+	 */
+	public void setQuantifier(Quantifier quantifier, int changes) {
+		if ((changes != changeCount) || quantities.isValid() || !quantifier.isValid())
+			return;
+
+		quantifier.replaceLayout(grid.getLayout());
+		quantities = quantifier;
+	}
+
+	/**
+	 * Create a Quantifier for a snapshot of the current grid, which can be 
+	 * used on another thread while the grid continues to change.
+	 * 
+	 * @return a Quantifier for a snapshot of the grid.
+	 */
+	public Quantifier getSnapshotQuantifier() {
+		return new Quantifier(quantities, new Layout(grid.getLayout()));
+	}
+
 	/**
 	 * Gets the cell that is considered the current cell by the selection.
 	 * 
@@ -296,6 +468,8 @@ public class PTable extends Stage {
 		Cell cell = getCurrentCell();
 		if (!cell.isBlank())
 			main.setSelected(cell);
+
+		requestRepaint();
 	}
 
 	/**
@@ -304,8 +478,198 @@ public class PTable extends Stage {
 	 * @param code to indicate the direction to move the cells.
 	 */
 	public void moveSelection(KeyCode code) {
-
+		final int direction = Grid.getDirection(code);
+		if (direction < 0)
+			return;
+
+		// Only the cells that move need to be re-scored.
+		quantities.beginChange();
+		quantities.markMove(selection.getTop(), selection.getLeft(), 
+				selection.getBottom(), selection.getRight(), direction);
 		grid.moveSelection(selection, code);
+		quantities.endChange();
+		requestRepaint();
+
+		journal.recordMove(selection.getTop(), selection.getLeft(), 
+				selection.getBottom(), selection.getRight(), 
+				direction, grid.getLayout());
+
+		layoutChanged();
+	}
+
+
+/************************************************************************
+ * Undo and redo support section.
+ */
+
+	/**
+	 * Select the given block of cells.
+	 * 
+	 * @param top		row of the block.
+	 * @param left		column of the block.
+	 * @param bottom	row of the block.
+	 * @param right		column of the block.
+	 */
+	private void select(int top, int left, int bottom, int right) {
+		selection.setPosition(top, left);
+		selection.saveCurrent();
+		selection.setPosition(bottom, right);
+	}
+
+	/**
+	 * Undo or redo the edit described by the given journal record.
+	 * 
+	 * @param record	describing the edit.
+	 * @param undo		true to revert the edit, false to reapply it.
+	 */
+	private void replay(long record, boolean undo) {
+		replaying = true;
+
+		switch (Journal.getOp(record)) {
+		case Journal.MOVE: {
+			int top = Journal.getTop(record);
+			int left = Journal.getLeft(record);
+			int bottom = Journal.getBottom(record);
+			int right = Journal.getRight(record);
+			int direction = Journal.getDirection(record);
+			if (undo) {
+				// The block is now one step along, so move it back.
+				final int dr = Layout.getRowStep(direction);
+				final int dc = Layout.getColStep(direction);
+				top += dr;
+				left += dc;
+				bottom += dr;
+				right += dc;
+				direction = Layout.reverse(direction);
+			}
+
+			highlightSelectedCells(false);
+			quantities.beginChange();
+			quantities.markMove(top, left, bottom, right, direction);
+			grid.moveBlock(top, left, bottom, right, direction);
+			quantities.endChange();
+
+			final int dr = Layout.getRowStep(direction);
+			final int dc = Layout.getColStep(direction);
+			select(top + dr, left + dc, bottom + dr, right + dc);
+			highlightSelectedCells(true);
+			layoutChanged();
+			break;
+		}
+
+		case Journal.FLIP_COLUMNS:
+			flipColumns();
+			break;
+
+		case Journal.FLIP_ROWS:
+			flipRows();
+			break;
+
+		case Journal.RESIZE:
+			if (undo) {
+				highlightSelectedCells(false);
+				main.setGridSize(Journal.getOldRows(record), Journal.getOldCols(record));
+				grid.setLayout(journal.getResizeOriginal(record));
+				quantities.invalidate();
+
+				// Dropped Elements are restored, so their nodes are needed.
+				moveGroup();
+				highlightSelectedCells(true);
+				layoutChanged();
+			} else {
+				main.setGridSize(Journal.getNewRows(record), Journal.getNewCols(record));
+			}
+			break;
+
+		default:
+			break;
+		}
+
+		requestRepaint();
+		replaying = false;
+	}
+
+	/**
+	 * Undo the most recent edit to the layout.
+	 */
+	public void undo() {
+		if (journal.canUndo())
+			replay(journal.undo(), true);
+	}
+
+	/**
+	 * Redo the most recently undone edit to the layout.
+	 */
+	public void redo() {
+		if (journal.canRedo())
+			replay(journal.redo(), false);
+	}
+
+	/**
+	 * Jump to the given point in the history of edits to the layout.
+	 * 
+	 * @param position in the history, 0 is the initial layout.
+	 */
+	public void seek(int position) {
+		replaying = true;
+
+		final Layout target = journal.seek(position);
+		highlightSelectedCells(false);
+		if ((target.getRows() != grid.getRows()) || (target.getCols() != grid.getCols()))
+			main.setGridSize(target.getRows(), target.getCols());
+
+		grid.setLayout(target);
+		quantities.invalidate();
+
+		// Elements may have been dropped or restored.
+		moveGroup();
+		highlightSelectedCells(true);
+		layoutChanged();
+
+		replaying = false;
+	}
+
+	/**
+	 * Undo all the edits to the layout.
+	 */
+	public void undoAll() {
+		seek(0);
+	}
+
+	/**
+	 * Redo all the undone edits to the layout.
+	 */
+	public void redoAll() {
+		seek(journal.getCount());
+	}
+
+	/**
+	 * Get the arrangement of the Elements on the table.
+	 * 
+	 * @return the Layout of the grid.
+	 */
+	public Layout getLayout() {
+		return grid.getLayout();
+	}
+
+	/**
+	 * Replace the arrangement of the Elements with the given layout, e.g. 
+	 * when a layout is loaded from a file. The layout must have the same 
+	 * dimensions as the grid. The history of edits is discarded.
+	 * 
+	 * @param layout to show.
+	 */
+	public void loadLayout(Layout layout) {
+		highlightSelectedCells(false);
+		grid.setLayout(layout);
+		journal.reset(grid.getLayout());
+		quantities.invalidate();
+
+		// Elements may have been dropped or restored.
+		moveGroup();
+		highlightSelectedCells(true);
+		requestRepaint();
+		layoutChanged();
 	}
 
 }
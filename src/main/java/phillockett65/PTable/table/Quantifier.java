@@ -23,41 +23,226 @@
  * attempt to quantify the quality of the current grid arrangement and are 
  * displayed by the Status tab. This is a basic, first attempt at this and 
  * will probably evolve.
+ * 
+ * The running totals are kept up to date after a full scan of the grid, so a 
+ * change that only affects a few cells (such as moving a selection or 
+ * swapping two cells) can be re-scored by removing the contribution of the 
+ * neighbour pairs touching those cells before the change and adding them 
+ * back afterwards. To do this, call beginChange(), mark every cell that will 
+ * change with markCell() (or markRegion()), make the change to the grid and 
+ * then call endChange(). The bookkeeping is done by a NeighbourTracker, 
+ * which the optimiser also uses. The totals are accumulated from these 
+ * changes, so to stop rounding errors building up over a long session they 
+ * are recalculated with a full scan every RESYNC_INTERVAL changes.
+ * 
+ * Quantifier works directly on a Layout, so it can be used without a Grid 
+ * or any JavaFX nodes.
+ * 
+ * The Quantities of recently analyzed layouts are remembered by the hash of 
+ * the canonical form of the Layout, so when a full recalculation is needed 
+ * for an arrangement that has been seen before, or a mirror image of one 
+ * (e.g. after a flip is undone), the result is returned at once. Finding 
+ * the canonical form scans the whole layout, so it is only done when the 
+ * running totals are out of date, and the result is remembered against the 
+ * (incrementally maintained) hash of the Layout. Results calculated from 
+ * up to date running totals are exact and are not added to the cache.
  */
 package phillockett65.PTable.table;
 
-import phillockett65.PTable.elements.ElementConfig;
+import phillockett65.PTable.elements.Elements;
 
 public class Quantifier {
 
-	private Grid grid;
+	// Number of recently analyzed layouts to remember.
+	private static final int CACHE_SIZE = 1024;
 
+	// Size of the standard layout that file and library layouts are scored against.
+	public static final int STANDARD_ROWS = 10;
+	public static final int STANDARD_COLS = 18;
+
+	// Number of incremental changes between full recalculations of the totals.
+	static final int RESYNC_INTERVAL = 4096;
+
+	// Has the original values of the standard layout, found on first use.
+	private static volatile Quantifier standard = null;
+
+	private Layout layout;
+	private boolean valid = false;
+	private final QuantitiesCache cache;
+
+	// The canonical hash of the layout and the Layout hash it was found for.
+	private boolean canonicalKnown = false;
+	private long canonicalSource;
+	private long canonicalHash;
+
+	// Created by the first full scan, after which changes can be tracked.
+	private NeighbourTracker tracker = null;
+
+	private int changeCount = 0;
 	private int elementCount = 0;
 	private int neighbourCount = 0;
 	private Deviation electronShellSimilarity;
 	private Deviation electronSubshellSimilarity;
 	private Deviation electronConfigSimilarity;
 
+	private final int elementTotal = Elements.lastKey() + 1;
+	private final float[] shellSimilarities = Elements.getSimilarities(Elements.SHELL_SIMILARITY);
+	private final float[] subshellSimilarities = Elements.getSimilarities(Elements.SUBSHELL_SIMILARITY);
+	private final float[] configSimilarities = Elements.getSimilarities(Elements.CONFIG_SIMILARITY);
+
 	/**
 	 * Constructor.
 	 * 
-	 * @param grid reference used to calculate the quantities.
+	 * @param layout reference used to calculate the quantities.
 	 */
-	public Quantifier(Grid grid) {
-		this.grid = grid;
+	public Quantifier(Layout layout) {
+		this.layout = layout;
+		cache = new QuantitiesCache(CACHE_SIZE);
 
 		electronShellSimilarity = new Deviation();
 		electronSubshellSimilarity = new Deviation();
 		electronConfigSimilarity = new Deviation();
+
+		// Establish the original values that all deviations are relative to.
+		update();
+	}
+
+	/**
+	 * Constructor for analyzing a separate layout, such as a snapshot of the 
+	 * grid, with deviations relative to the same original values as the 
+	 * given Quantifier. The layout is not analyzed until the quantities are 
+	 * requested, so the Quantifier can be constructed on one thread and used 
+	 * on another. The cache of Quantities is shared with the reference.
+	 * 
+	 * @param reference	Quantifier that has the original values.
+	 * @param layout	to analyze.
+	 */
+	public Quantifier(Quantifier reference, Layout layout) {
+		this(reference, layout, reference.cache);
+	}
+
+	/**
+	 * Constructor for a worker that analyzes layouts with deviations 
+	 * relative to the same original values as the given Quantifier. The 
+	 * original values are copied rather than found by scanning a layout, 
+	 * and the worker has its own cache of Quantities, so workers on 
+	 * different threads don't contend for it. Call setLayout() to give the 
+	 * worker a layout to analyze.
+	 * 
+	 * @param reference	Quantifier that has the original values.
+	 */
+	public Quantifier(Quantifier reference) {
+		this(reference, reference.layout, new QuantitiesCache(CACHE_SIZE));
+	}
+
+	/**
+	 * Create a Quantifier with deviations relative to the standard layout, 
+	 * as used for layouts that are not on the grid. The standard layout is 
+	 * only scanned the first time, after which the original values are 
+	 * copied.
+	 * 
+	 * @return a new Quantifier, with its own cache, for a single thread.
+	 */
+	public static Quantifier createStandard() {
+		Quantifier reference = standard;
+		if (reference == null) {
+			synchronized (Quantifier.class) {
+				reference = standard;
+				if (reference == null) {
+					reference = new Quantifier(Layout.standard(STANDARD_ROWS, STANDARD_COLS));
+					standard = reference;
+				}
+			}
+		}
+
+		return new Quantifier(reference);
 	}
 
 	/**
-	 * Reset the reference to the grid to be analyzed.
+	 * Constructor used by the other constructors that copy the original 
+	 * values from a reference Quantifier.
 	 * 
-	 * @param grid	the new grid to analyze.
+	 * @param reference	Quantifier that has the original values.
+	 * @param layout	to analyze.
+	 * @param cache		of Quantities to use.
 	 */
-	public void setGrid(Grid grid) {
-		this.grid = grid;
+	private Quantifier(Quantifier reference, Layout layout, QuantitiesCache cache) {
+		this.layout = layout;
+		this.cache = cache;
+
+		electronShellSimilarity = new Deviation(reference.electronShellSimilarity);
+		electronSubshellSimilarity = new Deviation(reference.electronSubshellSimilarity);
+		electronConfigSimilarity = new Deviation(reference.electronConfigSimilarity);
+	}
+
+	/**
+	 * Reset the reference to the layout to be analyzed.
+	 * 
+	 * @param layout	the new layout to analyze.
+	 */
+	public void setLayout(Layout layout) {
+		this.layout = layout;
+		invalidate();
+	}
+
+	/**
+	 * Switch to analyzing the given layout, which must have the same 
+	 * contents as the current layout, keeping the running totals. This 
+	 * allows the results of analyzing a snapshot to be reused for the grid.
+	 * 
+	 * @param layout	with the same contents as the current layout.
+	 */
+	public void replaceLayout(Layout layout) {
+		this.layout = layout;
+		if (tracker != null)
+			tracker.setLayout(layout);
+	}
+
+	/**
+	 * Indicate if the running totals are up to date, in which case the 
+	 * quantities can be requested without a full recalculation.
+	 * 
+	 * @return true if the running totals are up to date.
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * Indicate if the quantities can be requested without a full 
+	 * recalculation, either because the running totals are up to date or 
+	 * because the arrangement has been analyzed recently.
+	 * 
+	 * @return true if the quantities are available immediately.
+	 */
+	public boolean isAvailable() {
+		return valid || cache.contains(findCanonicalHash());
+	}
+
+	/**
+	 * Get the hash of the canonical form of the layout, which is only 
+	 * recalculated if the layout has changed since it was last requested.
+	 * 
+	 * @return the hash of the canonical form of the layout.
+	 */
+	private long findCanonicalHash() {
+		final long hash = layout.getHash();
+		if (!canonicalKnown || (hash != canonicalSource)) {
+			canonicalSource = hash;
+			canonicalHash = layout.canonicalHash();
+			canonicalKnown = true;
+		}
+
+		return canonicalHash;
+	}
+
+	/**
+	 * Indicate that the grid has changed in a way that can't be tracked 
+	 * incrementally (e.g. the number of rows or columns has changed), forcing 
+	 * a full recalculation the next time the quantities are requested.
+	 */
+	public void invalidate() {
+		valid = false;
 	}
 
 	/**
@@ -67,56 +252,57 @@ public class Quantifier {
 	private void update() {
 //		System.out.println("update()");
 
+		changeCount = 0;
 		elementCount = 0;
 		neighbourCount = 0;
 		electronShellSimilarity.reset();
 		electronSubshellSimilarity.reset();
 		electronConfigSimilarity.reset();
 
-		final int rows = grid.getRows();
-		final int cols = grid.getCols();
+		final int rows = layout.getRows();
+		final int cols = layout.getCols();
 
 		for (int r = 0; r < rows; ++r) {
 			for (int c = 0; c < cols; ++c) {
-				final Cell cell = grid.getCell(r, c);
-				if (cell.isBlank())
+				final int key = layout.getKey(r, c);
+				if (key == Elements.UNDEFINED_KEY)
 					continue;
 
 				elementCount++;
-				Cell adjacent;
+				int adjacent;
 				if (r > 0) {
-					adjacent = grid.getCell(r-1, c);
-					if (!adjacent.isBlank()) {
+					adjacent = layout.getKey(r-1, c);
+					if (adjacent != Elements.UNDEFINED_KEY) {
 						// Neighbour to the North.
 						neighbourCount++;
-						calcSimilarities(cell.getE(), adjacent.getE());
+						calcSimilarities(key, adjacent);
 					}
 				}
 
 				if (r < rows-1) {
-					adjacent = grid.getCell(r+1, c);
-					if (!adjacent.isBlank()) {
+					adjacent = layout.getKey(r+1, c);
+					if (adjacent != Elements.UNDEFINED_KEY) {
 						// Neighbour to the South.
 						neighbourCount++;
-						calcSimilarities(cell.getE(), adjacent.getE());
+						calcSimilarities(key, adjacent);
 					}
 				}
 
 				if (c > 0) {
-					adjacent = grid.getCell(r, c-1);
-					if (!adjacent.isBlank()) {
+					adjacent = layout.getKey(r, c-1);
+					if (adjacent != Elements.UNDEFINED_KEY) {
 						// Neighbour to the West.
 						neighbourCount++;
-						calcSimilarities(cell.getE(), adjacent.getE());
+						calcSimilarities(key, adjacent);
 					}
 				}
 
 				if (c < cols-1) {
-					adjacent = grid.getCell(r, c+1);
-					if (!adjacent.isBlank()) {
+					adjacent = layout.getKey(r, c+1);
+					if (adjacent != Elements.UNDEFINED_KEY) {
 						// Neighbour to the East.
 						neighbourCount++;
-						calcSimilarities(cell.getE(), adjacent.getE());
+						calcSimilarities(key, adjacent);
 					}
 				}
 			}
@@ -125,69 +311,176 @@ public class Quantifier {
 		electronShellSimilarity.finalize();
 		electronSubshellSimilarity.finalize();
 		electronConfigSimilarity.finalize();
+
+		if (tracker == null)
+			tracker = new NeighbourTracker(layout, this::updatePair);
+		else
+			tracker.setLayout(layout);
+		valid = true;
 	}
 
 	/**
-	 * Calculate the Similarities of the lists of interest and add them to the 
+	 * Look up the Similarities of the lists of interest and add them to the 
 	 * running totals.
 	 * 
-	 * @param e			current Element.
-	 * @param adjacent	neighboring Element.
+	 * @param key			of the current Element.
+	 * @param adjacent	key of the neighboring Element.
 	 */
-	private void calcSimilarities(ElementConfig e, ElementConfig adjacent) {
-		electronShellSimilarity.add(calcSimilarity(e.getElectronShellCounts(), adjacent.getElectronShellCounts()));
-		electronSubshellSimilarity.add(calcSimilarity(e.getElectronSubshellCounts(), adjacent.getElectronSubshellCounts()));
-		electronConfigSimilarity.add(calcSimilarity(e.getElectronConfigurationCounts(), adjacent.getElectronConfigurationCounts()));
+	private void calcSimilarities(int key, int adjacent) {
+		calcSimilarities(key, adjacent, 1F);
 	}
 
 	/**
-	 * Calculate the similarity of two lists of numbers.
+	 * Look up the Similarities of the lists of interest, scale them by the 
+	 * given weight and add them to the running totals.
 	 * 
-	 * @param a first list.
-	 * @param b second list.
-	 * @return the similarity of the two lists.
+	 * @param key			of the current Element.
+	 * @param adjacent	key of the neighboring Element.
+	 * @param weight	to scale the Similarities by (may be negative).
 	 */
-	private float calcSimilarity(int[] a, int[] b) {
-		final int aLen = a.length;
-		final int bLen = b.length;
-		float current = 0;
-		int diff = 0;
-		if (aLen < bLen) {
-			for (int s = 0; s < aLen; ++s) {
-				diff = a[s] - b[s];
-				if (diff < 0)
-					diff *= -1;
-				current += diff;
-			}
-			for (int s = aLen; s < bLen; ++s)
-				current += b[s];
-
-			current /= 2 * bLen;
-		} else {
-			for (int s = 0; s < bLen; ++s) {
-				diff = a[s] - b[s];
-				if (diff < 0)
-					diff *= -1;
-				current += diff;
-			}
-			for (int s = bLen; s < aLen; ++s)
-				current += a[s];
+	private void calcSimilarities(int key, int adjacent, float weight) {
+		final int index = key * elementTotal + adjacent;
+		electronShellSimilarity.add(weight * shellSimilarities[index]);
+		electronSubshellSimilarity.add(weight * subshellSimilarities[index]);
+		electronConfigSimilarity.add(weight * configSimilarities[index]);
+	}
+
+	/**
+	 * Add (or remove) the contribution of the pair of neighbouring cells to 
+	 * the running totals, as reported by the NeighbourTracker. The full scan 
+	 * counts each pair twice, once from each cell, so the same is done here 
+	 * to keep the totals consistent.
+	 * 
+	 * @param key			of the current Element.
+	 * @param adjacent	key of the neighbouring Element.
+	 * @param sign		1 to add the contribution, -1 to remove it.
+	 */
+	private void updatePair(int key, int adjacent, int sign) {
+		neighbourCount += 2 * sign;
+		calcSimilarities(key, adjacent, 2F * sign);
+	}
+
+	/**
+	 * Start an incremental change. The cells that are about to change must 
+	 * be marked before the grid is changed.
+	 */
+	public void beginChange() {
+		if (!valid)
+			return;
+
+		tracker.beginChange();
+	}
+
+	/**
+	 * Mark the cell at the given position as about to change. This removes 
+	 * the contribution of the cell and its neighbours from the running 
+	 * totals, so it must be called before the grid is changed.
+	 * 
+	 * @param row	of the cell about to change.
+	 * @param col	of the cell about to change.
+	 */
+	public void markCell(int row, int col) {
+		if (!valid)
+			return;
+
+		tracker.markCell(layout.getIndex(row, col));
+	}
+
+	/**
+	 * Mark all the cells in the given region as about to change.
+	 * 
+	 * @param top		row of the region.
+	 * @param left		column of the region.
+	 * @param bottom	row of the region.
+	 * @param right		column of the region.
+	 */
+	public void markRegion(int top, int left, int bottom, int right) {
+		if (!valid)
+			return;
 
-			current /= 2 * aLen;
+		tracker.markRegion(top, left, bottom, right);
+	}
+
+	/**
+	 * Mark all the cells that will be changed by moving the given block in 
+	 * the given direction with Layout.moveBlock() or Grid.moveSelection(). 
+	 * This is the block plus the row or column of cells that it is moved 
+	 * into.
+	 * 
+	 * @param top		row of the block.
+	 * @param left		column of the block.
+	 * @param bottom	row of the block.
+	 * @param right		column of the block.
+	 * @param direction	to move the block.
+	 */
+	public void markMove(int top, int left, int bottom, int right, int direction) {
+		if (!valid)
+			return;
+
+		tracker.markMove(top, left, bottom, right, direction);
+	}
+
+	/**
+	 * Complete an incremental change. This adds the contribution of the 
+	 * marked cells and their neighbours back in to the running totals, so it 
+	 * must be called after the grid is changed. The totals are recalculated 
+	 * with a full scan every RESYNC_INTERVAL changes.
+	 */
+	public void endChange() {
+		if (!valid)
+			return;
+
+		tracker.endChange();
+		if (++changeCount >= RESYNC_INTERVAL) {
+			update();
+			return;
 		}
 
-		return current;
+		electronShellSimilarity.finalize();
+		electronSubshellSimilarity.finalize();
+		electronConfigSimilarity.finalize();
+	}
+
+	/**
+	 * Get the cache of the Quantities of recently analyzed layouts.
+	 * 
+	 * @return the cache.
+	 */
+	public QuantitiesCache getCache() {
+		return cache;
 	}
 
 	/**
 	 * Get the latest Quantities that indicate the quality of the current grid 
-	 * arrangement. A recalculation is performed if necessary.
+	 * arrangement. If the running totals are out of date the cache is 
+	 * checked first and a recalculation is only performed if the 
+	 * arrangement hasn't been seen recently. The Quantities may be shared 
+	 * with the cache, so must not be changed.
 	 * 
-	 * @return
+	 * @return the latest Quantities.
 	 */
 	public Quantities getQuantities() {
+		if (valid)
+			return createQuantities();
+
+		final long hash = findCanonicalHash();
+		final Quantities cached = cache.get(hash);
+		if (cached != null)
+			return cached;
+
 		update();
+		final Quantities quantities = createQuantities();
+		cache.put(hash, quantities);
 
+		return quantities;
+	}
+
+	/**
+	 * Create Quantities from the running totals.
+	 * 
+	 * @return the Quantities of the current grid arrangement.
+	 */
+	private Quantities createQuantities() {
 		Quantities quantities = new Quantities();
 
 		quantities.setElementCount(elementCount);
@@ -21,12 +21,20 @@
 /*
  * Quantities is a simple class that is responsible for passing values to the 
  * Status tab. Only setters and tweaked getters are provided. The getters 
- * return the value as a String for convenience.
+ * return the value as a String for convenience. The values can also be 
+ * accessed by identifier with getValue(), e.g. to store them in an index.
  */
 package phillockett65.PTable.table;
 
 public class Quantities {
 
+	public final static int ELEMENT_COUNT = 0;
+	public final static int NEIGHBOUR_COUNT = 1;
+	public final static int SHELL_SIMILARITY = 2;
+	public final static int SUBSHELL_SIMILARITY = 3;
+	public final static int CONFIG_SIMILARITY = 4;
+	public final static int MAX_QUANTITY = 5;
+
 	private int elementCount = 0;
 	private int neighbourCount = 0;
 	private float electronShellSimilarity;
@@ -72,4 +80,21 @@ public class Quantities {
 	public void setElectronConfigSimilarity(float electronConfigSimilarity) {
 		this.electronConfigSimilarity = electronConfigSimilarity;
 	}
+
+	/**
+	 * Get the value of the given quantity.
+	 * 
+	 * @param quantity identifier, ELEMENT_COUNT to CONFIG_SIMILARITY.
+	 * @return the value of the quantity.
+	 */
+	public float getValue(int quantity) {
+		switch (quantity) {
+		case ELEMENT_COUNT:			return elementCount;
+		case NEIGHBOUR_COUNT:		return neighbourCount;
+		case SHELL_SIMILARITY:		return electronShellSimilarity;
+		case SUBSHELL_SIMILARITY:	return electronSubshellSimilarity;
+		case CONFIG_SIMILARITY:		return electronConfigSimilarity;
+		default:					return 0;
+		}
+	}
 }
@@ -0,0 +1,119 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * QuantitiesCache is a simple class that is responsible for remembering the 
+ * Quantities of recently analyzed layouts, keyed by the hash of the 
+ * canonical form of the Layout, so that arrangements that are revisited 
+ * (e. g. a flip that is undone or a move that is reversed) don't need a 
+ * full recalculation. Mirror images and translations of a layout have the 
+ * same Quantities, so they share an entry. The least 
+ * recently used entry is discarded when the cache is full.
+ * 
+ * The Quantities are relative to the original values of the Quantifier that 
+ * calculated them, so a cache must only be shared by Quantifiers with the 
+ * same original values. Access is synchronized so that a snapshot can be 
+ * analyzed on another thread.
+ */
+package phillockett65.PTable.table;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class QuantitiesCache {
+
+	private final LinkedHashMap<Long, Quantities> map;
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacity maximum number of Quantities to remember.
+	 */
+	public QuantitiesCache(final int capacity) {
+		map = new LinkedHashMap<Long, Quantities>(16, 0.75F, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Quantities> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Get the Quantities of the layout with the given hash.
+	 * 
+	 * @param hash of the layout.
+	 * @return the Quantities, or null if they are not in the cache.
+	 */
+	public synchronized Quantities get(long hash) {
+		final Quantities quantities = map.get(hash);
+		if (quantities == null)
+			misses++;
+		else
+			hits++;
+
+		return quantities;
+	}
+
+	/**
+	 * Check if the Quantities of the layout with the given hash are in the 
+	 * cache, without affecting which entry is least recently used.
+	 * 
+	 * @param hash of the layout.
+	 * @return true if the Quantities are in the cache.
+	 */
+	public synchronized boolean contains(long hash) {
+		return map.containsKey(hash);
+	}
+
+	/**
+	 * Remember the Quantities of the layout with the given hash.
+	 * 
+	 * @param hash			of the layout.
+	 * @param quantities	of the layout, which must not be changed 
+	 * 						afterwards.
+	 */
+	public synchronized void put(long hash, Quantities quantities) {
+		map.put(hash, quantities);
+	}
+
+	/**
+	 * Forget all the remembered Quantities.
+	 */
+	public synchronized void clear() {
+		map.clear();
+	}
+
+	public synchronized int size() {
+		return map.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+}
@@ -0,0 +1,169 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * RenderContext is an immutable class that captures the settings used to 
+ * draw the cells of a table: the temperature that determines the state of 
+ * each element, the tile and border sizes and the size and position of the 
+ * element descriptions. A Grid hands its context to each Cell as it is drawn, so 
+ * several tables can be drawn side by side with different settings, e.g. at 
+ * different temperatures. A new context is created whenever a setting 
+ * changes, which means a context can be shared freely between threads.
+ */
+package phillockett65.PTable.table;
+
+public final class RenderContext {
+
+	private final int temp;
+	private final int tileSize;
+	private final int borderSize;
+
+	private final int ZSize;
+	private final int ZDy;
+
+	private final int symbolSize;
+	private final int symbolDx;
+	private final int symbolDy;
+
+	/**
+	 * Constructor. The descriptors are copied, so later changes to them are 
+	 * not reflected in the context.
+	 * 
+	 * @param temp		- temperature used to determine the state.
+	 * @param tileSize	- tile size (in pixels).
+	 * @param borderSize	- border size (in pixels).
+	 * @param Z			- Atomic Number descriptor.
+	 * @param symbol	- Symbol descriptor.
+	 */
+	public RenderContext(int temp, int tileSize, int borderSize, Desc Z, Desc symbol) {
+		this(temp, tileSize, borderSize, 
+				Z.getSizeInt(), Z.getDy(), 
+				symbol.getSizeInt(), symbol.getDx(), symbol.getDy());
+	}
+
+	private RenderContext(int temp, int tileSize, int borderSize, int ZSize, int ZDy, 
+			int symbolSize, int symbolDx, int symbolDy) {
+		this.temp = temp;
+		this.tileSize = tileSize;
+		this.borderSize = borderSize;
+		this.ZSize = ZSize;
+		this.ZDy = ZDy;
+		this.symbolSize = symbolSize;
+		this.symbolDx = symbolDx;
+		this.symbolDy = symbolDy;
+	}
+
+	/**
+	 * Get a context that is the same as this one except for the temperature.
+	 * 
+	 * @param temp to use.
+	 * @return this context if the temperature is unchanged, a new context 
+	 * otherwise.
+	 */
+	public RenderContext withTemp(int temp) {
+		if (temp == this.temp)
+			return this;
+
+		return new RenderContext(temp, tileSize, borderSize, ZSize, ZDy, 
+				symbolSize, symbolDx, symbolDy);
+	}
+
+	/**
+	 * Get the temperature used to determine the state of each element.
+	 * 
+	 * @return the temperature.
+	 */
+	public int getTemp() {
+		return temp;
+	}
+
+	/**
+	 * Get the tile size.
+	 * 
+	 * @return the tile size (in pixels).
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Get the border size, which is the gap around and between the tiles.
+	 * 
+	 * @return the border size (in pixels).
+	 */
+	public int getBorderSize() {
+		return borderSize;
+	}
+
+	/**
+	 * Get the distance from the origin of one tile to the origin of the next.
+	 * 
+	 * @return the tile size plus the border size (in pixels).
+	 */
+	public int getStepSize() {
+		return tileSize + borderSize;
+	}
+
+	/**
+	 * Get the font size of the Atomic Number.
+	 * 
+	 * @return the font size of the Atomic Number.
+	 */
+	public int getZSize() {
+		return ZSize;
+	}
+
+	/**
+	 * Get the vertical offset of the Atomic Number from the tile origin.
+	 * 
+	 * @return the vertical offset of the Atomic Number (in pixels).
+	 */
+	public int getZDy() {
+		return ZDy;
+	}
+
+	/**
+	 * Get the font size of the Symbol.
+	 * 
+	 * @return the font size of the Symbol.
+	 */
+	public int getSymbolSize() {
+		return symbolSize;
+	}
+
+	/**
+	 * Get the horizontal offset of the Symbol from the tile origin.
+	 * 
+	 * @return the horizontal offset of the Symbol (in pixels).
+	 */
+	public int getSymbolDx() {
+		return symbolDx;
+	}
+
+	/**
+	 * Get the vertical offset of the Symbol from the tile origin.
+	 * 
+	 * @return the vertical offset of the Symbol (in pixels).
+	 */
+	public int getSymbolDy() {
+		return symbolDy;
+	}
+
+}
@@ -0,0 +1,262 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+/*
+ * TableCanvas is a class that is responsible for drawing the grid on a single 
+ * Canvas as an alternative to adding the nodes of every Cell to the scene 
+ * graph. Repaints are requested by calling requestRepaint() and are carried 
+ * out at most once per frame by an AnimationTimer. Only the tiles that have 
+ * changed since they were last drawn are repainted; a tile is considered 
+ * changed if a different Cell is now at that position or the displayed 
+ * colours of the Cell have changed. Any change to the geometry (rows, 
+ * columns, tile size, border size or font sizes) forces a full repaint. 
+ * All the drawing parameters are taken from the RenderContext of the Grid.
+ */
+package phillockett65.PTable.table;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+import phillockett65.PTable.elements.ElementConfig;
+
+public class TableCanvas extends Canvas {
+
+	private final Grid grid;
+
+	private boolean pending = false;
+	private boolean full = true;
+
+	// Geometry used for the last paint.
+	private RenderContext context;
+	private int rows = 0;
+	private int cols = 0;
+	private int tileSize = 0;
+	private int borderSize = 0;
+	private int ZSize = 0;
+	private int symbolSize = 0;
+
+	private Font ZFont;
+	private Font symbolFont;
+
+	// What was last drawn at each position.
+	private Cell[] drawnCells = new Cell[0];
+	private Color[] drawnBacks = new Color[0];
+	private Color[] drawnFores = new Color[0];
+
+	private final AnimationTimer timer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			if (pending)
+				paint();
+		}
+	};
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param grid	the grid to draw.
+	 */
+	public TableCanvas(Grid grid) {
+		super(getWidth(grid), getHeight(grid));
+		this.grid = grid;
+	}
+
+	/**
+	 * Get the width needed to draw the given grid with its current context.
+	 * 
+	 * @param grid	to draw.
+	 * @return the width (in pixels).
+	 */
+	private static int getWidth(Grid grid) {
+		final RenderContext context = grid.getContext();
+
+		return (context.getStepSize() * grid.getCols()) + context.getBorderSize();
+	}
+
+	/**
+	 * Get the height needed to draw the given grid with its current context.
+	 * 
+	 * @param grid	to draw.
+	 * @return the height (in pixels).
+	 */
+	private static int getHeight(Grid grid) {
+		final RenderContext context = grid.getContext();
+
+		return (context.getStepSize() * grid.getRows()) + context.getBorderSize();
+	}
+
+	/**
+	 * Start drawing. A full repaint is requested for the first frame.
+	 */
+	public void start() {
+		requestFullRepaint();
+		timer.start();
+	}
+
+	/**
+	 * Stop drawing.
+	 */
+	public void stop() {
+		timer.stop();
+	}
+
+	/**
+	 * Request that the changed tiles are repainted on the next frame. Many 
+	 * requests before the next frame result in a single repaint.
+	 */
+	public void requestRepaint() {
+		pending = true;
+	}
+
+	/**
+	 * Request that every tile is repainted on the next frame.
+	 */
+	public void requestFullRepaint() {
+		full = true;
+		pending = true;
+	}
+
+	/**
+	 * Check whether the geometry has changed since the last paint and, if 
+	 * so, note the new geometry and force a full repaint.
+	 */
+	private void checkGeometry() {
+		context = grid.getContext();
+		final int newRows = grid.getRows();
+		final int newCols = grid.getCols();
+		final int newTile = context.getTileSize();
+		final int newBorder = context.getBorderSize();
+		final int newZSize = context.getZSize();
+		final int newSymbolSize = context.getSymbolSize();
+
+		if ((rows != newRows) || (cols != newCols)) {
+			rows = newRows;
+			cols = newCols;
+			drawnCells = new Cell[rows * cols];
+			drawnBacks = new Color[rows * cols];
+			drawnFores = new Color[rows * cols];
+			full = true;
+		}
+
+		if ((tileSize != newTile) || (borderSize != newBorder)) {
+			tileSize = newTile;
+			borderSize = newBorder;
+			full = true;
+		}
+
+		if ((ZSize != newZSize) || (symbolSize != newSymbolSize)) {
+			ZSize = newZSize;
+			symbolSize = newSymbolSize;
+			ZFont = Desc.findFont(FontWeight.NORMAL, ZSize);
+			symbolFont = Desc.findFont(FontWeight.BOLD, symbolSize);
+			full = true;
+		}
+
+		final int width = getWidth(grid);
+		final int height = getHeight(grid);
+		if ((getWidth() != width) || (getHeight() != height)) {
+			setWidth(width);
+			setHeight(height);
+			full = true;
+		}
+	}
+
+	/**
+	 * Repaint the tiles that have changed since the last paint, or all the 
+	 * tiles if a full repaint is needed.
+	 */
+	private void paint() {
+		pending = false;
+		checkGeometry();
+
+		final GraphicsContext gc = getGraphicsContext2D();
+		if (full)
+			gc.clearRect(0, 0, getWidth(), getHeight());
+
+		final int step = context.getStepSize();
+		int index = 0;
+		int y = borderSize;
+		for (int r = 0; r < rows; ++r, y += step) {
+			int x = borderSize;
+			for (int c = 0; c < cols; ++c, x += step, ++index) {
+				final Cell cell = grid.getCell(r, c);
+				final Color back = cell.getBackgroundFill();
+				final Color fore = cell.getForegroundFill();
+
+				if (!full && 
+					(drawnCells[index] == cell) && 
+					back.equals(drawnBacks[index]) && 
+					((fore == null) ? (drawnFores[index] == null) : fore.equals(drawnFores[index])))
+					continue;
+
+				drawTile(gc, cell, back, fore, x, y);
+				drawnCells[index] = cell;
+				drawnBacks[index] = back;
+				drawnFores[index] = fore;
+			}
+		}
+
+		full = false;
+	}
+
+	/**
+	 * Draw a single tile, clipped to the tile so that it doesn't disturb 
+	 * its neighbours.
+	 * 
+	 * @param gc	to draw with.
+	 * @param cell	to draw.
+	 * @param back	colour of the tile.
+	 * @param fore	colour of the text, null if the cell is blank.
+	 * @param x		coordinate of tile position.
+	 * @param y		coordinate of tile position.
+	 */
+	private void drawTile(GraphicsContext gc, Cell cell, Color back, Color fore, int x, int y) {
+		gc.setFill(back);
+		gc.fillRect(x, y, tileSize, tileSize);
+
+		if (fore == null)
+			return;
+
+		final ElementConfig e = cell.getE();
+
+		gc.save();
+		gc.beginPath();
+		gc.rect(x, y, tileSize, tileSize);
+		gc.clip();
+
+		gc.setFill(fore);
+
+		gc.setFont(ZFont);
+		gc.setTextAlign(TextAlignment.RIGHT);
+		gc.fillText(String.valueOf(e.getZ()), x + tileSize, y + context.getZDy());
+
+		gc.setFont(symbolFont);
+		gc.setTextAlign(TextAlignment.LEFT);
+		gc.fillText(e.getSymbol(), x + context.getSymbolDx(), y + context.getSymbolDy());
+
+		gc.restore();
+	}
+
+}
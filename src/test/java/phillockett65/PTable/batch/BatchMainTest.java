@@ -0,0 +1,84 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BatchMainTest checks that an invalid layout is reported and skipped 
+ * without losing the layouts that follow it.
+ */
+package phillockett65.PTable.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+public class BatchMainTest {
+
+	private static final String LAYOUTS = 
+			"> a\n" +
+			"H  .  He\n" +
+			"Li Be B\n" +
+			"\n" +
+			"> b\n" +
+			"H  Xx He\n" +
+			"Li Be B\n" +
+			"\n" +
+			"> c\n" +
+			"H  He\n" +
+			"Li Be\n";
+
+	@Test
+	public void invalidLayoutInTheMiddleIsSkipped() throws IOException {
+		StringWriter out = new StringWriter();
+		BatchMain batch = new BatchMain(new ResultWriter(out, ResultWriter.CSV));
+
+		final int count = batch.score(new BufferedReader(new StringReader(LAYOUTS)), "in.txt");
+
+		final String[] lines = out.toString().split("\n");
+		assertEquals(2, count);
+		assertEquals(3, lines.length);
+		assertTrue(lines[0].startsWith("a,2,3,"));
+		assertEquals("in.txt,error,\"in.txt:6: unknown element symbol \"\"Xx\"\"\"", lines[1]);
+		assertTrue(lines[2].startsWith("c,2,2,"));
+	}
+
+	@Test
+	public void repeatedElementIsReportedPerLayout() throws IOException {
+		final String layouts = "H H\n\nHe\n\nLi Li\n\nBe\n";
+		StringWriter out = new StringWriter();
+		BatchMain batch = new BatchMain(new ResultWriter(out, ResultWriter.CSV));
+
+		final int count = batch.score(new BufferedReader(new StringReader(layouts)), "in.txt");
+
+		final String[] lines = out.toString().split("\n");
+		assertEquals(2, count);
+		assertEquals(4, lines.length);
+		assertTrue(lines[0].startsWith("in.txt,error,"));
+		assertTrue(lines[1].startsWith("in.txt#2,1,1,"));
+		assertTrue(lines[2].startsWith("in.txt,error,"));
+		assertTrue(lines[3].startsWith("in.txt#4,1,1,"));
+	}
+
+}
@@ -0,0 +1,62 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CsvParserTest checks that a record too short for a required field is 
+ * reported with its line number rather than read as an empty field.
+ */
+package phillockett65.PTable.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+public class CsvParserTest {
+
+	@Test
+	public void missingFieldIsReportedWithTheLineNumber() throws IOException {
+		CsvParser csv = new CsvParser(new StringReader("a,b,c\n\nd,e\n"), "in.csv");
+
+		assertTrue(csv.next());
+		assertEquals("c", csv.getField(2));
+		assertTrue(csv.next());
+		assertEquals("e", csv.getField(1));
+
+		IOException e = assertThrows(IOException.class, () -> csv.getField(2));
+		assertEquals("in.csv:3: missing field 3, the record has 2", e.getMessage());
+	}
+
+	@Test
+	public void missingLayoutFieldIsAnError() {
+		LayoutTextReader layouts = new LayoutTextReader(
+				new StringReader("name,layout\na,H He\nb\n"), TextFormat.CSV, "in.csv");
+
+		IOException e = assertThrows(IOException.class, () -> {
+			while (layouts.next() != null);
+		});
+		assertEquals("in.csv:3: missing field 2, the record has 1", e.getMessage());
+	}
+
+}
@@ -0,0 +1,65 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ScoreIndexTest checks that an index written column by column is read back 
+ * unchanged.
+ */
+package phillockett65.PTable.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import phillockett65.PTable.table.Layout;
+
+public class ScoreIndexTest {
+
+	@Test
+	public void indexIsReadBackUnchanged(@TempDir Path dir) throws IOException {
+		List<LayoutRecord> records = new ArrayList<LayoutRecord>();
+		records.add(new LayoutRecord(Layout.standard(10, 18), 50, 2, 274));
+		records.add(new LayoutRecord(Layout.standard(8, 20), 50, 2, 274));
+		records.add(new LayoutRecord(Layout.standard(12, 18), 50, 2, 274));
+		final Path library = dir.resolve("library" + LayoutFile.EXTENSION);
+		LayoutFile.write(library, records);
+
+		ScoreIndex built = ScoreIndex.build(library, null, null);
+		final Path path = ScoreIndex.getIndexPath(library);
+		built.write(path);
+		ScoreIndex read = ScoreIndex.read(path);
+
+		assertEquals(ScoreIndex.HEADER_SIZE + 3 * 32, Files.size(path));
+		assertEquals(built.getCount(), read.getCount());
+		for (int i = 0; i < built.getCount(); ++i) {
+			assertEquals(built.getOffset(i), read.getOffset(i));
+			for (int c = 0; c < ScoreIndex.MAX_COLUMN; ++c)
+				assertEquals(built.getValue(c, i), read.getValue(c, i));
+		}
+	}
+
+}
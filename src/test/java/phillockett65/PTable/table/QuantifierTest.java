@@ -0,0 +1,57 @@
+/*  PTDesigner - a simple application to design a periodic table.
+ *
+ *  Copyright 2020 Philip Lockett.
+ *
+ *  This file is part of PTDesigner.
+ *
+ *  PTDesigner is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  PTDesigner is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with PTDesigner.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * QuantifierTest checks that the running totals, after a long run of 
+ * incremental changes, match a full recalculation of the layout.
+ */
+package phillockett65.PTable.table;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+public class QuantifierTest {
+
+	@Test
+	public void totalsAreResyncedAfterManyChanges() {
+		Layout layout = Layout.standard(Quantifier.STANDARD_ROWS, Quantifier.STANDARD_COLS);
+		Quantifier quantifier = new Quantifier(layout);
+		SplittableRandom random = new SplittableRandom(1);
+
+		for (int i = 0; i < Quantifier.RESYNC_INTERVAL; ++i) {
+			final int a = random.nextInt(layout.getSize());
+			final int b = random.nextInt(layout.getSize());
+			quantifier.beginChange();
+			quantifier.markCell(a / layout.getCols(), a % layout.getCols());
+			quantifier.markCell(b / layout.getCols(), b % layout.getCols());
+			layout.swap(a, b);
+			quantifier.endChange();
+		}
+
+		Quantities incremental = quantifier.getQuantities();
+		Quantities full = new Quantifier(quantifier, new Layout(layout)).getQuantities();
+		for (int q = 0; q < Quantities.MAX_QUANTITY; ++q)
+			assertEquals(full.getValue(q), incremental.getValue(q));
+	}
+
+}